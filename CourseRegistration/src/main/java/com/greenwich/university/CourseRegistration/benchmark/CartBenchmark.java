@@ -0,0 +1,192 @@
+package benchmark;
+
+import model.Course;
+import model.Student;
+import service.RegistrationSystem;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timetable submission two ways, on the same carts: tryRegisterCart, and
+ * what a client had to do before it, i.e. tryRegister per course and, if
+ * any course did not come through, tryDrop on everything the cart got
+ * (seats and waitlist places). Course demand is Zipf-shaped and capacity
+ * short, so a good share of carts fail. After a warm-up of each, the two
+ * are run alternately (taking turns going first) and the median carts/sec
+ * of each is compared. Every run checks afterwards that seat counts match
+ * the students holding them, and that with carts every student got their
+ * whole timetable or nothing.
+ * Usage: CartBenchmark [students] [courses] [threads]
+ */
+public class CartBenchmark {
+    private static final double ZIPF_EXPONENT = 1.1;
+    private static final int MIN_CART = 4;
+    private static final int MAX_CART = 6;
+    private static final double SEATS_PER_WISH = 0.7;   // total seats / total wishes
+    private static final int WARMUP_RUNS = 2;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int courses = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        String[][] carts = makeCarts(students, courses, new Random(42));
+        int[] capacities = makeCapacities(carts, courses);
+        System.out.printf("%d students, %d courses, %d threads%n", students, courses, threads);
+        for (int run = 0; run < WARMUP_RUNS; run++) {
+            run(carts, capacities, threads, true);
+            run(carts, capacities, threads, false);
+        }
+
+        double[] cart = new double[ROUNDS];
+        double[] separate = new double[ROUNDS];
+        long[] committed = new long[2];
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int turn = 0; turn < 2; turn++) {
+                boolean useCart = (round + turn) % 2 == 0;
+                long[] result = run(carts, capacities, threads, useCart);
+                (useCart ? cart : separate)[round] = students * 1e9 / result[0];
+                committed[useCart ? 0 : 1] = result[1];
+            }
+        }
+        double c = median(cart);
+        double s = median(separate);
+        System.out.printf("%-14s %,10.0f carts/sec  %,8d committed%n", "cart", c, committed[0]);
+        System.out.printf("%-14s %,10.0f carts/sec  %,8d committed%n", "register+drop", s, committed[1]);
+        System.out.printf("cart is %.2fx register+drop (median of %d each)%n", c / s, ROUNDS);
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    // Returns {nanos, committed carts}
+    private static long[] run(String[][] carts, int[] capacities, int threads, boolean useCart) throws InterruptedException {
+        RegistrationSystem system = new RegistrationSystem();
+        Course[] courses = new Course[capacities.length];
+        for (int i = 0; i < courses.length; i++) {
+            courses[i] = new Course(code(i), "Course " + i, capacities[i]);
+            system.addCourse(courses[i]);
+        }
+        for (int i = 0; i < carts.length; i++) system.addStudent(new Student(id(i), "Student " + i));
+
+        AtomicLong committed = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int s = first; s < carts.length; s += threads) {
+                    boolean ok = useCart
+                            ? system.tryRegisterCart(id(s), carts[s]).isCommitted()
+                            : registerThenCompensate(system, id(s), carts[s]);
+                    if (ok) committed.incrementAndGet();
+                }
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        long nanos = System.nanoTime() - begin;
+
+        check(system, courses, carts, useCart);
+        return new long[] { nanos, committed.get() };
+    }
+
+    private static boolean registerThenCompensate(RegistrationSystem system, String id, String[] cart) {
+        boolean[] joined = new boolean[cart.length];
+        boolean ok = true;
+        for (int i = 0; i < cart.length; i++) {
+            RegistrationSystem.Result r = system.tryRegister(id, cart[i]);
+            joined[i] = r == RegistrationSystem.Result.REGISTERED || r == RegistrationSystem.Result.WAITLISTED;
+            if (r != RegistrationSystem.Result.REGISTERED) ok = false;
+        }
+        if (!ok) {
+            for (int i = 0; i < cart.length; i++) {
+                if (joined[i]) system.tryDrop(id, cart[i], null);
+            }
+        }
+        return ok;
+    }
+
+    private static void check(RegistrationSystem system, Course[] courses, String[][] carts, boolean allOrNothing) {
+        int[] holders = new int[courses.length];
+        for (int s = 0; s < carts.length; s++) {
+            Student student = system.getStudent(id(s));
+            int have = 0;
+            for (String code : student.getRegisteredCourses()) {
+                holders[Integer.parseInt(code.substring(2))]++;
+                have++;
+            }
+            if (allOrNothing && have != 0 && have != carts[s].length) {
+                throw new IllegalStateException(student + " holds " + have + " of " + carts[s].length + " cart courses");
+            }
+            if (!student.getWaitlistedCourses().isEmpty()) {
+                throw new IllegalStateException(student + " was left on a waitlist");
+            }
+        }
+        for (int i = 0; i < courses.length; i++) {
+            if (holders[i] != courses[i].getEnrolled()) {
+                throw new IllegalStateException(courses[i].getCode() + " counts " + courses[i].getEnrolled()
+                        + " seats but " + holders[i] + " students");
+            }
+        }
+    }
+
+    private static String[][] makeCarts(int students, int courses, Random random) {
+        double[] cumulative = new double[courses];
+        double sum = 0;
+        for (int i = 0; i < courses; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cumulative[i] = sum;
+        }
+        String[][] carts = new String[students][];
+        for (int s = 0; s < students; s++) {
+            int size = MIN_CART + random.nextInt(MAX_CART - MIN_CART + 1);
+            int[] picked = new int[size];
+            int n = 0;
+            while (n < size) {
+                double x = random.nextDouble() * sum;
+                int lo = 0, hi = courses - 1;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (cumulative[mid] < x) lo = mid + 1;
+                    else hi = mid;
+                }
+                boolean seen = false;
+                for (int j = 0; j < n; j++) seen |= picked[j] == lo;
+                if (!seen) picked[n++] = lo;
+            }
+            carts[s] = new String[size];
+            for (int j = 0; j < size; j++) carts[s][j] = code(picked[j]);
+        }
+        return carts;
+    }
+
+    // Seats per course follow demand, scaled down so that not every cart fits
+    private static int[] makeCapacities(String[][] carts, int courses) {
+        int[] demand = new int[courses];
+        for (String[] cart : carts) {
+            for (String code : cart) demand[Integer.parseInt(code.substring(2))]++;
+        }
+        int[] capacities = new int[courses];
+        for (int i = 0; i < courses; i++) capacities[i] = Math.max(1, (int) (demand[i] * SEATS_PER_WISH));
+        return capacities;
+    }
+
+    private static String code(int course) { return "CS" + course; }
+
+    private static String id(int student) { return String.valueOf(100_000 + student); }
+}
@@ -0,0 +1,206 @@
+package benchmark;
+
+import model.Course;
+import model.Student;
+import service.RegistrationJournal;
+import service.RegistrationSystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Measures what the registration journal costs and how fast it recovers.
+ * A registration week (registers, drops and carts over a skewed catalog)
+ * runs on a pool of threads in memory and journaled at a few fsync batch
+ * sizes, with snapshots taken along the way. In-memory and journaled runs
+ * take turns, after warm-up runs of both, and the medians are compared,
+ * since single runs vary by tens of percent. Each journaled run is then
+ * recovered into a fresh system and compared with the live one: same seats,
+ * same registrations, same waitlists in the same order. Finally recovery
+ * time is compared for replaying the whole week from the log and for
+ * loading a snapshot plus the log written after it.
+ * Usage: RegistrationJournalBenchmark [operations] [threads]
+ */
+public class RegistrationJournalBenchmark {
+    private static final int STUDENTS = 40_000;
+    private static final int COURSES = 400;
+    private static final double DROP_SHARE = 0.3;
+    private static final double CART_SHARE = 0.05;
+    private static final int SNAPSHOT_EVERY = 200_000;
+    private static final int WARMUP_RUNS = 2;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run(null, operations / 4, threads);
+            runJournaled(operations / 4, threads, 256, SNAPSHOT_EVERY);
+        }
+
+        for (int syncEvery : new int[]{64, 256, 1024}) {
+            double[] base = new double[ROUNDS];
+            double[] journaled = new double[ROUNDS];
+            // Alternated, so anything else the machine is doing hits both sides alike
+            for (int r = 0; r < ROUNDS; r++) {
+                base[r] = operations * 1e9 / run(null, operations, threads).nanos;
+                journaled[r] = runJournaled(operations, threads, syncEvery, SNAPSHOT_EVERY);
+            }
+            double b = median(base);
+            double j = median(journaled);
+            System.out.printf("Journal, sync/%-5d: %,10.0f ops/s against %,10.0f in memory (%.1f%% %s, median of %d), "
+                    + "recovered state matches%n", syncEvery, j, b, Math.abs(b - j) * 100 / b, j <= b ? "slower" : "faster", ROUNDS);
+        }
+
+        // Whole week in the log, against a snapshot with a tail of a tenth of the week after it
+        Path dir = Files.createTempDirectory("registration-recovery");
+        try {
+            try (RegistrationJournal journal = new RegistrationJournal(dir, 1024, Integer.MAX_VALUE)) {
+                Week week = run(journal, operations, threads);
+                journal.sync();
+                long logBytes = Files.size(dir.resolve("registration.log"));
+                System.out.printf("Full replay of %,d ops: %d ms (%,d bytes of log)%n",
+                        operations, recoveryMillis(dir, week.system), logBytes);
+                long start = System.nanoTime();
+                week.system.snapshot();
+                System.out.printf("Snapshot written in %d ms (registration paused meanwhile)%n",
+                        (System.nanoTime() - start) / 1_000_000);
+                drive(week.system, operations / 10, threads, 7);
+                journal.sync();
+                System.out.printf("Snapshot + %,d op tail: %d ms (%,d bytes of snapshot, %,d of log)%n",
+                        operations / 10, recoveryMillis(dir, week.system),
+                        Files.size(dir.resolve("snapshot.bin")), Files.size(dir.resolve("registration.log")));
+            }
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    private static final class Week {
+        RegistrationSystem system;
+        long nanos;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double runJournaled(int operations, int threads, int syncEvery, int snapshotEvery) throws Exception {
+        Path dir = Files.createTempDirectory("registration-journal");
+        try {
+            Week week;
+            try (RegistrationJournal journal = new RegistrationJournal(dir, syncEvery, snapshotEvery)) {
+                week = run(journal, operations, threads);
+            }
+            recoveryMillis(dir, week.system);
+            return operations * 1e9 / week.nanos;
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    // Recovers dir into a new system, checks it against live and returns how long recovery took
+    private static long recoveryMillis(Path dir, RegistrationSystem live) throws IOException {
+        long start = System.nanoTime();
+        RegistrationSystem recovered = new RegistrationSystem();
+        RegistrationJournal journal = new RegistrationJournal(dir, 1024, Integer.MAX_VALUE);
+        recovered.enableJournal(journal);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        recovered.closeJournal();
+        compare(live, recovered);
+        return millis;
+    }
+
+    private static Week run(RegistrationJournal journal, int operations, int threads) throws Exception {
+        RegistrationSystem system = new RegistrationSystem();
+        if (journal != null) system.enableJournal(journal);
+        for (int i = 0; i < COURSES; i++) {
+            system.addCourse(new Course(code(i), "Course " + i, 20 + (i * 37) % 180));
+        }
+        for (int i = 0; i < STUDENTS; i++) system.addStudent(new Student(id(i), "Student " + i));
+
+        Week week = new Week();
+        week.system = system;
+        long start = System.nanoTime();
+        drive(system, operations, threads, 1);
+        week.nanos = System.nanoTime() - start;
+        return week;
+    }
+
+    private static void drive(RegistrationSystem system, int operations, int threads, long seed) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long workerSeed = seed * 1_000 + t;
+            int ops = operations / threads;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(workerSeed);
+                for (int op = 0; op < ops; op++) {
+                    String student = id(random.nextInt(STUDENTS));
+                    double kind = random.nextDouble();
+                    if (kind < CART_SHARE) {
+                        system.tryRegisterCart(student, code(popular(random)), code(popular(random)),
+                                code(popular(random)), code(popular(random)));
+                    } else if (kind < CART_SHARE + DROP_SHARE) {
+                        system.tryDrop(student, code(popular(random)), null);
+                    } else {
+                        system.tryRegister(student, code(popular(random)));
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) w.join();
+    }
+
+    // Low course numbers are asked for far more often
+    private static int popular(Random random) {
+        double x = random.nextDouble();
+        return (int) (x * x * COURSES);
+    }
+
+    private static void compare(RegistrationSystem live, RegistrationSystem recovered) {
+        for (int i = 0; i < COURSES; i++) {
+            Course a = live.getCourse(code(i));
+            Course b = recovered.getCourse(code(i));
+            if (b == null || a.getEnrolled() != b.getEnrolled() || a.getCapacity() != b.getCapacity()
+                    || !Arrays.equals(a.getWaitlist(), b.getWaitlist())) {
+                throw new IllegalStateException("Recovered " + b + " differs from " + a);
+            }
+        }
+        for (int i = 0; i < STUDENTS; i++) {
+            Student a = live.getStudent(id(i));
+            Student b = recovered.getStudent(id(i));
+            if (b == null || !sameCourses(a, b)) throw new IllegalStateException("Recovered student " + id(i) + " differs");
+        }
+    }
+
+    private static boolean sameCourses(Student a, Student b) {
+        if (a.getRegisteredCourses().size() != b.getRegisteredCourses().size()) return false;
+        if (a.getWaitlistedCourses().size() != b.getWaitlistedCourses().size()) return false;
+        for (String code : a.getRegisteredCourses()) {
+            if (!b.isRegistered(code)) return false;
+        }
+        for (String code : a.getWaitlistedCourses()) {
+            if (!b.isWaiting(code)) return false;
+        }
+        return true;
+    }
+
+    private static String code(int course) { return "CS" + (100 + course); }
+
+    private static String id(int student) { return String.valueOf(100_000 + student); }
+
+    private static void deleteAll(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
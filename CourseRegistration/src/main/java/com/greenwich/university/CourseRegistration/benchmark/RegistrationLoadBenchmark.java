@@ -0,0 +1,308 @@
+package benchmark;
+
+import datastructures.MyArray;
+import model.Course;
+import model.Student;
+import service.RegistrationSystem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Headless registration-day load: a catalog of hundreds of courses whose
+ * popularity follows a Zipf curve, and tens of thousands of students who
+ * each want a handful of them. Two phases are replayed with a pool of
+ * threads:
+ *  - open: every student's registrations at once, as at 9:00 on opening day
+ *  - add/drop: drops (which promote from waitlists) mixed with late registrations
+ * For each phase it reports ops/sec, latency percentiles and bytes allocated
+ * per op, and appends them to a CSV file together with -Dbench.label, so a
+ * change to MyHashTable, Course or the waitlists can be compared with the
+ * previous run of the same shape.
+ * Usage: RegistrationLoadBenchmark [students] [courses] [threads] [resultsFile]
+ */
+public class RegistrationLoadBenchmark {
+    private static final double ZIPF_EXPONENT = 1.1;   // a few courses get most of the demand
+    private static final int MIN_WISHES = 4;
+    private static final int MAX_WISHES = 6;
+    private static final double DROP_SHARE = 0.4;       // of add/drop phase ops
+    private static final int WARMUP_RUNS = 2;
+    private static final String HEADER = "time,label,students,courses,threads,phase,ops,opsPerSec,"
+            + "p50Micros,p90Micros,p99Micros,p999Micros,bytesPerOp";
+
+    // One measured phase: ops are (student, course, drop) triples split across threads
+    private static final class Phase {
+        final String name;
+        final int[] students;
+        final int[] courses;
+        final boolean[] drops;
+
+        Phase(String name, int size) {
+            this.name = name;
+            this.students = new int[size];
+            this.courses = new int[size];
+            this.drops = new boolean[size];
+        }
+    }
+
+    private static final class Result {
+        long nanos;
+        long[] latencies;
+        long allocatedBytes;
+        long registered;
+        long waitlisted;
+        long dropped;
+        long promoted;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 40_000;
+        int courses = args.length > 1 ? Integer.parseInt(args[1]) : 400;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        Path results = Paths.get(args.length > 3 ? args[3] : "registration-benchmark.csv");
+        String label = System.getProperty("bench.label", "");
+
+        System.out.printf("%d students, %d courses, %d threads%s%n", students, courses, threads,
+                label.isEmpty() ? "" : " [" + label + "]");
+        // Same seed every run, so runs differ only in the code under test
+        for (int run = 0; run < WARMUP_RUNS; run++) runAll(students, courses, threads, null, label);
+        runAll(students, courses, threads, results, label);
+    }
+
+    private static void runAll(int studentCount, int courseCount, int threads, Path results, String label)
+            throws InterruptedException {
+        Random random = new Random(2024);
+        RegistrationSystem system = new RegistrationSystem();
+        String[] courseCodes = new String[courseCount];
+        for (int i = 0; i < courseCount; i++) {
+            courseCodes[i] = "C" + (100_000 + i);
+            // Capacities from seminar rooms to lecture halls
+            system.addCourse(new Course(courseCodes[i], "Course " + i, 20 + random.nextInt(281)));
+        }
+        String[] studentIds = new String[studentCount];
+        for (int i = 0; i < studentCount; i++) {
+            studentIds[i] = String.valueOf(1_000_000 + i);
+            system.addStudent(new Student(studentIds[i], "Student " + i));
+        }
+
+        double[] popularity = zipfCdf(courseCount);
+        int[][] wishes = new int[studentCount][];
+        int wishCount = 0;
+        for (int s = 0; s < studentCount; s++) {
+            wishes[s] = pickDistinct(random, popularity, MIN_WISHES + random.nextInt(MAX_WISHES - MIN_WISHES + 1));
+            wishCount += wishes[s].length;
+        }
+
+        Phase open = new Phase("open", wishCount);
+        int k = 0;
+        for (int s = 0; s < studentCount; s++) {
+            for (int c : wishes[s]) {
+                open.students[k] = s;
+                open.courses[k++] = c;
+            }
+        }
+        shuffle(open, random);
+
+        // Drops hit courses students asked for; late registrations follow the same popularity
+        Phase addDrop = new Phase("add/drop", wishCount / 2);
+        for (int i = 0; i < addDrop.students.length; i++) {
+            int s = random.nextInt(studentCount);
+            addDrop.students[i] = s;
+            if (random.nextDouble() < DROP_SHARE) {
+                addDrop.drops[i] = true;
+                addDrop.courses[i] = wishes[s][random.nextInt(wishes[s].length)];
+            } else {
+                addDrop.courses[i] = sample(random, popularity);
+            }
+        }
+
+        for (Phase phase : List.of(open, addDrop)) {
+            Result r = runPhase(system, phase, studentIds, courseCodes, threads);
+            if (results != null) report(phase, r, studentCount, courseCount, threads, results, label);
+        }
+    }
+
+    private static Result runPhase(RegistrationSystem system, Phase phase, String[] studentIds,
+                                   String[] courseCodes, int threads) throws InterruptedException {
+        int ops = phase.students.length;
+        Result[] parts = new Result[threads];
+        Thread[] workers = new Thread[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            Result part = parts[t] = new Result();
+            int first = t;
+            part.latencies = new long[(ops - first + threads - 1) / threads];
+            workers[t] = new Thread(() -> {
+                MyArray<String> promoted = new MyArray<>();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long allocatedBefore = allocatedBytes();
+                int n = 0;
+                for (int i = first; i < ops; i += threads) {
+                    String student = studentIds[phase.students[i]];
+                    String course = courseCodes[phase.courses[i]];
+                    long began = System.nanoTime();
+                    if (phase.drops[i]) {
+                        if (system.tryDrop(student, course, promoted)) part.dropped++;
+                    } else {
+                        RegistrationSystem.Result result = system.tryRegister(student, course);
+                        if (result == RegistrationSystem.Result.REGISTERED) part.registered++;
+                        else if (result == RegistrationSystem.Result.WAITLISTED) part.waitlisted++;
+                    }
+                    part.latencies[n++] = System.nanoTime() - began;
+                }
+                part.allocatedBytes = allocatedBytes() - allocatedBefore;
+                part.promoted = promoted.size();
+            });
+            workers[t].start();
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        long nanos = System.nanoTime() - began;
+
+        Result total = new Result();
+        total.nanos = nanos;
+        total.latencies = new long[ops];
+        int offset = 0;
+        for (Result part : parts) {
+            System.arraycopy(part.latencies, 0, total.latencies, offset, part.latencies.length);
+            offset += part.latencies.length;
+            total.allocatedBytes += part.allocatedBytes;
+            total.registered += part.registered;
+            total.waitlisted += part.waitlisted;
+            total.dropped += part.dropped;
+            total.promoted += part.promoted;
+        }
+        Arrays.sort(total.latencies);
+        return total;
+    }
+
+    private static void report(Phase phase, Result r, int students, int courses, int threads, Path results, String label) {
+        int ops = r.latencies.length;
+        double opsPerSec = ops / (r.nanos / 1e9);
+        double bytesPerOp = r.allocatedBytes < 0 ? -1 : (double) r.allocatedBytes / ops;
+        double[] micros = {percentile(r.latencies, 0.50), percentile(r.latencies, 0.90),
+                percentile(r.latencies, 0.99), percentile(r.latencies, 0.999)};
+
+        System.out.printf("%n%-9s %,d ops in %.0f ms = %,.0f ops/s%n", phase.name, ops, r.nanos / 1e6, opsPerSec);
+        System.out.printf("          registered %,d | waitlisted %,d | dropped %,d | promoted %,d%n",
+                r.registered, r.waitlisted, r.dropped, r.promoted);
+        System.out.printf("          latency p50 %.1f us | p90 %.1f us | p99 %.1f us | p999 %.1f us%n",
+                micros[0], micros[1], micros[2], micros[3]);
+        System.out.printf("          allocation %.0f bytes/op (%.1f MB/s)%n", bytesPerOp,
+                bytesPerOp * opsPerSec / (1 << 20));
+
+        String row = String.join(",", LocalDateTime.now().withNano(0).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                label.replace(',', ' '), String.valueOf(students), String.valueOf(courses), String.valueOf(threads),
+                phase.name, String.valueOf(ops), String.format("%.0f", opsPerSec),
+                String.format("%.2f", micros[0]), String.format("%.2f", micros[1]),
+                String.format("%.2f", micros[2]), String.format("%.2f", micros[3]), String.format("%.0f", bytesPerOp));
+        String[] previous = lastRow(results, students, courses, threads, phase.name);
+        if (previous != null) {
+            System.out.printf("          vs %s%s: ops/s %+.1f%%, p99 %+.1f%%, bytes/op %+.1f%%%n", previous[0],
+                    previous[1].isEmpty() ? "" : " [" + previous[1] + "]",
+                    change(Double.parseDouble(previous[7]), opsPerSec),
+                    change(Double.parseDouble(previous[10]), micros[2]),
+                    change(Double.parseDouble(previous[12]), bytesPerOp));
+        }
+        try {
+            if (!Files.exists(results)) Files.writeString(results, HEADER + System.lineSeparator());
+            Files.writeString(results, row + System.lineSeparator(), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save results to " + results, e);
+        }
+    }
+
+    // Latest saved row for the same workload, or null
+    private static String[] lastRow(Path results, int students, int courses, int threads, String phase) {
+        if (!Files.exists(results)) return null;
+        try {
+            String[] last = null;
+            for (String line : Files.readAllLines(results)) {
+                String[] cells = line.split(",", -1);
+                if (cells.length == 13 && cells[2].equals(String.valueOf(students)) && cells[3].equals(String.valueOf(courses))
+                        && cells[4].equals(String.valueOf(threads)) && cells[5].equals(phase)) {
+                    last = cells;
+                }
+            }
+            return last;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + results, e);
+        }
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) * 100 / before;
+    }
+
+    // Bytes allocated by the calling thread so far, or -1 where the JVM cannot tell
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.max(0, Math.ceil(p * sorted.length) - 1));
+        return sorted[index] / 1_000.0;
+    }
+
+    // Cumulative Zipf weights: course i is picked with weight 1 / (i + 1)^s
+    private static double[] zipfCdf(int n) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) cdf[i] /= sum;
+        return cdf;
+    }
+
+    private static int sample(Random random, double[] cdf) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(cdf.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    private static int[] pickDistinct(Random random, double[] cdf, int count) {
+        int[] picked = new int[Math.min(count, cdf.length)];
+        int n = 0;
+        while (n < picked.length) {
+            int c = sample(random, cdf);
+            boolean seen = false;
+            for (int i = 0; i < n; i++) seen |= picked[i] == c;
+            if (!seen) picked[n++] = c;
+        }
+        return picked;
+    }
+
+    private static void shuffle(Phase phase, Random random) {
+        for (int i = phase.students.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int s = phase.students[i];
+            phase.students[i] = phase.students[j];
+            phase.students[j] = s;
+            int c = phase.courses[i];
+            phase.courses[i] = phase.courses[j];
+            phase.courses[j] = c;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package benchmark;
+
+import model.Course;
+import model.Student;
+import service.RegistrationSystem;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stress check for the concurrent RegistrationSystem: many threads start
+ * at the same instant (registration opening at 9:00) and register, drop and
+ * re-register random students in a few oversubscribed courses. A watcher
+ * thread checks no course is ever over capacity while it runs. Afterwards
+ * every (student, course) pair must end up exactly where the results the
+ * threads got say it should be: the ops on one pair, taken in any order
+ * consistent with what each call returned, leave it registered or
+ * waitlisted (once) or out. Waitlists must match the students' records and
+ * the positions Course reports, and no seat may be free while someone is
+ * waiting.
+ * Usage: RegistrationStress [threads] [opsPerThread] [rounds]
+ */
+public class RegistrationStress {
+    private static final int STUDENTS = 4_000;
+    private static final int COURSES = 40;
+    private static final double DROP_CHANCE = 0.3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int opsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        for (int round = 1; round <= rounds; round++) {
+            long millis = runRound(round, threads, opsPerThread);
+            System.out.printf("Round %d: %d threads x %d ops in %d ms, all checks passed%n",
+                    round, threads, opsPerThread, millis);
+        }
+    }
+
+    private static long runRound(int seed, int threads, int opsPerThread) throws InterruptedException {
+        RegistrationSystem system = new RegistrationSystem();
+        Random setup = new Random(seed);
+        Course[] courses = new Course[COURSES];
+        for (int i = 0; i < COURSES; i++) {
+            courses[i] = new Course("CS" + (100 + i), "Course " + i, 5 + setup.nextInt(60));
+            system.addCourse(courses[i]);
+        }
+        String[] ids = new String[STUDENTS];
+        for (int i = 0; i < STUDENTS; i++) {
+            ids[i] = String.valueOf(10_000 + i);
+            system.addStudent(new Student(ids[i], "Student " + i));
+        }
+
+        // Per pair: successful registers (joined or waitlisted) minus successful drops
+        AtomicIntegerArray balance = new AtomicIntegerArray(STUDENTS * COURSES);
+        AtomicLong failures = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch nine = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long workerSeed = seed * 1_000L + t;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(workerSeed);
+                try {
+                    nine.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int op = 0; op < opsPerThread; op++) {
+                    int student = random.nextInt(STUDENTS);
+                    int course = random.nextInt(COURSES);
+                    int pair = student * COURSES + course;
+                    if (random.nextDouble() < DROP_CHANCE) {
+                        if (system.tryDrop(ids[student], courses[course].getCode(), null)) balance.decrementAndGet(pair);
+                    } else {
+                        RegistrationSystem.Result result = system.tryRegister(ids[student], courses[course].getCode());
+                        if (result == RegistrationSystem.Result.REGISTERED || result == RegistrationSystem.Result.WAITLISTED) {
+                            balance.incrementAndGet(pair);
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        Thread watcher = new Thread(() -> {
+            while (running.get()) {
+                for (Course c : courses) {
+                    if (c.getEnrolled() > c.getCapacity()) failures.incrementAndGet();
+                }
+                Thread.yield();
+            }
+        });
+        watcher.start();
+
+        long start = System.nanoTime();
+        nine.countDown();
+        for (Thread w : workers) w.join();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        running.set(false);
+        watcher.join();
+        if (failures.get() > 0) throw new IllegalStateException("Overbooked course seen " + failures.get() + " times");
+
+        check(system, courses, ids, balance);
+        return millis;
+    }
+
+    private static void check(RegistrationSystem system, Course[] courses, String[] ids, AtomicIntegerArray balance) {
+        for (int ci = 0; ci < courses.length; ci++) {
+            Course c = courses[ci];
+            int registered = 0;
+            Set<String> waiting = new HashSet<>();
+            for (int si = 0; si < ids.length; si++) {
+                Student s = system.getStudent(ids[si]);
+                boolean in = s.isRegistered(c.getCode());
+                boolean waits = s.isWaiting(c.getCode());
+                int expected = balance.get(si * COURSES + ci);
+                if (in && waits) fail(s + " is both registered and waitlisted for " + c.getCode());
+                if (expected != ((in || waits) ? 1 : 0)) {
+                    fail(s + " in " + c.getCode() + ": calls net to " + expected + " but registered=" + in + " waiting=" + waits);
+                }
+                if (in) registered++;
+                if (waits) waiting.add(s.getId());
+            }
+            if (registered != c.getEnrolled()) fail(c.getCode() + " counts " + c.getEnrolled() + " seats but " + registered + " students");
+            if (c.getEnrolled() > c.getCapacity()) fail(c.getCode() + " is overbooked: " + c);
+            String[] queue = c.getWaitlist();
+            Set<String> queued = new HashSet<>();
+            for (int i = 0; i < queue.length; i++) {
+                if (!queued.add(queue[i])) fail(queue[i] + " is queued twice for " + c.getCode());
+                if (c.getWaitlistPosition(queue[i]) != i + 1) fail(queue[i] + " is not at position " + (i + 1) + " of " + c.getCode());
+            }
+            if (!queued.equals(waiting)) fail(c.getCode() + " waitlist does not match the students waiting for it");
+            if (queue.length != c.getWaitlistSize()) fail(c.getCode() + " waitlist size is off");
+            if (queue.length > 0 && c.hasSpace()) fail(c.getCode() + " has a free seat while " + queue.length + " wait");
+        }
+    }
+
+    private static void fail(String message) {
+        throw new IllegalStateException(message);
+    }
+}
@@ -33,6 +33,15 @@ public class MyArray<T> {
         data[--size] = null;
     }
 
+    // O(1) removal: the last element moves into the gap, so order is not kept
+    public T swapRemove(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException();
+        T removed = data[index];
+        data[index] = data[--size];
+        data[size] = null;
+        return removed;
+    }
+
     public int size() { return size; }
 
     public boolean isEmpty() { return size == 0; }
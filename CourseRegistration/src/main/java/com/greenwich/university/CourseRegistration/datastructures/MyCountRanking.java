@@ -0,0 +1,128 @@
+package datastructures;
+
+/**
+ * Items ranked by a count that only ever moves by one, such as seats taken.
+ * Items sit in an array sorted by count, highest first, and above[c] says
+ * how many have a count greater than c, i.e. where the block of count c
+ * starts. Moving an item up or down one is a single swap with the edge of
+ * its block, so updates are O(1), the top k are the first k slots, and an
+ * item's rank is where its block starts. Items with equal counts share a
+ * rank and come out in no particular order.
+ */
+@SuppressWarnings("unchecked")
+public class MyCountRanking<T> {
+    private T[] items = (T[]) new Object[16];
+    private int[] counts = new int[16];
+    private int[] above = new int[16];
+    private int size;
+    private MyHashTable<T, Integer> positions = new MyHashTable<>();
+
+    // Takes O(count) to bring the item up to its block
+    public void add(T item, int count) {
+        if (count < 0) throw new IllegalArgumentException("Count must be >= 0");
+        if (positions.containsKey(item)) throw new IllegalArgumentException("Already ranked: " + item);
+        if (size == items.length) {
+            T[] newItems = (T[]) new Object[size * 2];
+            int[] newCounts = new int[size * 2];
+            System.arraycopy(items, 0, newItems, 0, size);
+            System.arraycopy(counts, 0, newCounts, 0, size);
+            items = newItems;
+            counts = newCounts;
+        }
+        items[size] = item;
+        counts[size] = 0;   // count 0 sorts last
+        positions.put(item, size++);
+        for (int i = 0; i < count; i++) increment(item);
+    }
+
+    public boolean remove(T item) {
+        Integer p = positions.get(item);
+        if (p == null) return false;
+        while (counts[p] > 0) p = moveDown(p);
+        // The zero block is at the end, so the last slot holds a count of 0 too
+        swap(p, size - 1);
+        positions.remove(item);
+        items[--size] = null;
+        return true;
+    }
+
+    public void increment(T item) {
+        moveUp(position(item));
+    }
+
+    public void decrement(T item) {
+        int p = position(item);
+        if (counts[p] == 0) throw new IllegalStateException("Count of " + item + " is already 0");
+        moveDown(p);
+    }
+
+    // Moves the item one block at a time, so O(difference)
+    public void setCount(T item, int count) {
+        if (count < 0) throw new IllegalArgumentException("Count must be >= 0");
+        int p = position(item);
+        while (counts[p] < count) p = moveUp(p);
+        while (counts[p] > count) p = moveDown(p);
+    }
+
+    public boolean contains(T item) { return positions.containsKey(item); }
+
+    // 1 for the highest count; 0 if the item is not ranked
+    public int rankOf(T item) {
+        Integer p = positions.get(item);
+        return p == null ? 0 : above[counts[p]] + 1;
+    }
+
+    public int countOf(T item) {
+        return counts[position(item)];
+    }
+
+    // The k highest, best first
+    public MyArray<T> top(int k) {
+        MyArray<T> out = new MyArray<>();
+        for (int i = 0; i < Math.min(k, size); i++) out.add(items[i]);
+        return out;
+    }
+
+    public int size() { return size; }
+
+    private int moveUp(int p) {
+        int c = counts[p];
+        if (c + 1 >= above.length) {
+            int[] newAbove = new int[Math.max(above.length * 2, c + 2)];
+            System.arraycopy(above, 0, newAbove, 0, above.length);
+            above = newAbove;
+        }
+        int first = above[c];   // first slot of block c
+        swap(p, first);
+        counts[first] = c + 1;
+        above[c]++;
+        return first;
+    }
+
+    private int moveDown(int p) {
+        int c = counts[p];
+        int last = above[c - 1] - 1;   // last slot of block c
+        swap(p, last);
+        counts[last] = c - 1;
+        above[c - 1]--;
+        return last;
+    }
+
+    private int position(T item) {
+        Integer p = positions.get(item);
+        if (p == null) throw new IllegalArgumentException("Not ranked: " + item);
+        return p;
+    }
+
+    private void swap(int i, int j) {
+        if (i == j) return;
+        T a = items[i];
+        items[i] = items[j];
+        items[j] = a;
+        int c = counts[i];
+        counts[i] = counts[j];
+        counts[j] = c;
+        positions.put(items[i], i);
+        positions.put(items[j], j);
+    }
+}
@@ -1,65 +1,262 @@
 package datastructures;
 
-public class MyHashTable<K, V> {
-    private static class Entry<K, V> {
-        K key;
-        V value;
-        Entry<K, V> next;
-        Entry(K k, V v) { key = k; value = v; }
-    }
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Open-addressing hash table: keys, values and cached hashes sit in flat
+ * arrays of power-of-two size, found by linear probing, so a lookup is a
+ * few array reads instead of a walk down a chain of Entry objects.
+ *
+ * Growing is incremental. When the table fills up a table twice the size is
+ * started and every later put or remove moves a few slots of the old one
+ * across, so no single put pays for rehashing everything. Until the move is
+ * done a key is looked up in the new table first, then in the old one.
+ * Reads never move anything, so a table that stops being written part way
+ * through a move would probe both tables on every lookup for good; owners
+ * of tables that are read far more than written call finishMove() after
+ * their writes. Iterating finishes any pending move first.
+ *
+ * Not thread-safe, but reads never write: get, containsKey and size may run
+ * on many threads at once as long as nothing changes the table meanwhile.
+ */
+@SuppressWarnings("unchecked")
+public class MyHashTable<K, V> implements Iterable<K> {
+    private static final double LOAD_FACTOR = 0.5;   // short probe runs matter more than memory here
+    private static final int MIGRATE_STEP = 4;       // old slots moved per put or remove while growing
+    private static final Object DELETED = new Object();   // marks a removed key in the old table only
+
+    private K[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int count;        // entries in the current table
+    private int threshold;
 
-    private Entry<K, V>[] buckets;
-    private int size;
-    private static final double LOAD_FACTOR = 0.75;
+    // Table being emptied into the current one, or null
+    private K[] oldKeys;
+    private Object[] oldValues;
+    private int[] oldHashes;
+    private int migrated;     // old slots before this index have been moved
+    private int oldLive;      // entries still waiting in the old table
 
-    @SuppressWarnings("unchecked")
     public MyHashTable() {
-        buckets = new Entry[16];
-        size = 0;
+        this(16);
     }
 
-    private int hash(K key) {
-        return Math.abs(key.hashCode()) % buckets.length;
+    // expectedSize: entries the table should hold before it first grows
+    public MyHashTable(int expectedSize) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Expected size must be >= 0");
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) capacity <<= 1;
+        allocate(capacity);
+    }
+
+    // Spreads the high bits down, so keys whose hashes differ only there still get distinct slots
+    private static int spread(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
     }
 
     public void put(K key, V value) {
-        int idx = hash(key);
-        Entry<K, V> e = buckets[idx];
-        while (e != null) {
-            if (e.key.equals(key)) { e.value = value; return; }
-            e = e.next;
+        int h = spread(key);
+        step();
+        int slot = find(keys, hashes, key, h);
+        if (slot >= 0) {
+            values[slot] = value;
+            return;
+        }
+        if (oldKeys != null) {
+            // A key still waiting in the old table moves now; the stale copy is marked so it is not moved again
+            removeOld(key, h);
+        } else if (count + 1 > threshold) {
+            grow();
         }
-        Entry<K, V> newE = new Entry<>(key, value);
-        newE.next = buckets[idx];
-        buckets[idx] = newE;
-        size++;
-        if ((double) size / buckets.length > LOAD_FACTOR) resize();
+        insert(key, value, h);
     }
 
-    public V get(K key) {
-        int idx = hash(key);
-        Entry<K, V> e = buckets[idx];
-        while (e != null) {
-            if (e.key.equals(key)) return e.value;
-            e = e.next;
+    // Maps key to value unless key is already there; returns the value it had, or null if value went in.
+    // One probe run finds either the key or the free slot it goes in
+    public V putIfAbsent(K key, V value) {
+        int h = spread(key);
+        step();
+        int mask = keys.length - 1;
+        int i = h & mask;
+        for (; keys[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == h && keys[i].equals(key)) return (V) values[i];
+        }
+        if (oldKeys != null) {
+            int slot = find(oldKeys, oldHashes, key, h);
+            if (slot >= 0 && oldValues[slot] != DELETED) return (V) oldValues[slot];
+        } else if (count + 1 > threshold) {
+            grow();
+            insert(key, value, h);
+            return null;
         }
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = h;
+        count++;
         return null;
     }
 
+    public V get(K key) {
+        int h = spread(key);
+        int slot = find(keys, hashes, key, h);
+        if (slot >= 0) return (V) values[slot];
+        if (oldKeys == null) return null;
+        slot = find(oldKeys, oldHashes, key, h);
+        return slot >= 0 && oldValues[slot] != DELETED ? (V) oldValues[slot] : null;
+    }
+
     public boolean containsKey(K key) {
-        return get(key) != null;
-    }
-
-    @SuppressWarnings("unchecked")
-    private void resize() {
-        Entry<K, V>[] old = buckets;
-        buckets = new Entry[old.length * 2];
-        size = 0;
-        for (Entry<K, V> e : old) {
-            while (e != null) {
-                put(e.key, e.value);
-                e = e.next;
+        int h = spread(key);
+        if (find(keys, hashes, key, h) >= 0) return true;
+        if (oldKeys == null) return false;
+        int slot = find(oldKeys, oldHashes, key, h);
+        return slot >= 0 && oldValues[slot] != DELETED;
+    }
+
+    // Returns the value that was mapped to key, or null if there was none
+    public V remove(K key) {
+        int h = spread(key);
+        step();
+        int slot = find(keys, hashes, key, h);
+        if (slot >= 0) {
+            V old = (V) values[slot];
+            deleteAt(slot);
+            return old;
+        }
+        if (oldKeys == null) return null;
+        slot = find(oldKeys, oldHashes, key, h);
+        if (slot < 0 || oldValues[slot] == DELETED) return null;
+        V old = (V) oldValues[slot];
+        oldValues[slot] = DELETED;
+        oldLive--;
+        return old;
+    }
+
+    public int size() { return count + oldLive; }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    // Keys in table order; the table must not change while iterating
+    @Override
+    public Iterator<K> iterator() {
+        finishMove();
+        return new Slots<>(true);
+    }
+
+    public Iterable<V> values() {
+        finishMove();
+        return () -> new Slots<>(false);
+    }
+
+    private class Slots<T> implements Iterator<T> {
+        private final boolean keysWanted;
+        private int next = advance(0);
+
+        Slots(boolean keysWanted) { this.keysWanted = keysWanted; }
+
+        private int advance(int from) {
+            while (from < keys.length && keys[from] == null) from++;
+            return from;
+        }
+
+        public boolean hasNext() { return next < keys.length; }
+
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            T item = (T) (keysWanted ? keys[next] : values[next]);
+            next = advance(next + 1);
+            return item;
+        }
+    }
+
+    // Slot holding key in the given arrays, or -1
+    private static int find(Object[] keyArray, int[] hashArray, Object key, int h) {
+        int mask = keyArray.length - 1;
+        for (int i = h & mask; keyArray[i] != null; i = (i + 1) & mask) {
+            if (hashArray[i] == h && keyArray[i].equals(key)) return i;
+        }
+        return -1;
+    }
+
+    // key is known to be absent from the current table
+    private void insert(K key, Object value, int h) {
+        int mask = keys.length - 1;
+        int i = h & mask;
+        while (keys[i] != null) i = (i + 1) & mask;
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = h;
+        count++;
+    }
+
+    // Backward-shift delete: later entries of the probe run move up, so no tombstones build up
+    private void deleteAt(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int i = (slot + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+            int home = hashes[i] & mask;
+            // The entry may fill the hole unless its home lies after the hole (cyclically)
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hashes[hole] = hashes[i];
+                hole = i;
             }
         }
+        keys[hole] = null;
+        values[hole] = null;
+        count--;
+    }
+
+    // Marks key as gone from the old table; false if it was not waiting there
+    private boolean removeOld(K key, int h) {
+        int slot = find(oldKeys, oldHashes, key, h);
+        if (slot < 0 || oldValues[slot] == DELETED) return false;
+        oldValues[slot] = DELETED;
+        oldLive--;
+        return true;
+    }
+
+    private void grow() {
+        oldKeys = keys;
+        oldValues = values;
+        oldHashes = hashes;
+        oldLive = count;
+        migrated = 0;
+        allocate(keys.length * 2);
+    }
+
+    private void allocate(int capacity) {
+        keys = (K[]) new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        count = 0;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // Moves the next few old slots across; old entries are never shifted, so lookups there stay valid
+    private void step() {
+        if (oldKeys == null) return;
+        int end = Math.min(oldKeys.length, migrated + MIGRATE_STEP);
+        for (; migrated < end; migrated++) {
+            K key = oldKeys[migrated];
+            if (key == null || oldValues[migrated] == DELETED) continue;
+            insert(key, oldValues[migrated], oldHashes[migrated]);
+            oldValues[migrated] = DELETED;
+            oldLive--;
+        }
+        if (migrated == oldKeys.length) {
+            oldKeys = null;
+            oldValues = null;
+            oldHashes = null;
+        }
+    }
+
+    // Moves whatever is left of the old table across now; O(1) when no move is pending
+    public void finishMove() {
+        while (oldKeys != null) step();
     }
 }
@@ -0,0 +1,133 @@
+package datastructures;
+
+import java.util.Iterator;
+
+/**
+ * FIFO queue of distinct values that can also drop any value and say where
+ * a value stands, for waitlists people leave and check on all the time.
+ * Values sit in a doubly linked list with a hash index to their node, so
+ * offer, poll, contains and remove find their node in O(1); offer probes the
+ * index once. Positions come from a Fenwick tree over ticket numbers that
+ * counts the values still queued, so a value's position is a prefix sum in
+ * O(log n). The tree is built only when a position is asked for: the live
+ * values are numbered from 0 into a tree with room for as many again, in
+ * O(n). While it exists each offer, poll or remove updates it in O(log n);
+ * once its tickets run out it is dropped rather than rebuilt, so a queue
+ * nobody asks about never pays for it and the O(n) build is spread over at
+ * least n offers.
+ */
+public class MyIndexedQueue<T> implements Iterable<T> {
+    private static class Node<T> {
+        final T value;
+        int ticket;
+        Node<T> prev, next;
+        Node(T value) { this.value = value; }
+    }
+
+    private Node<T> head, tail;
+    private MyHashTable<T, Node<T>> index = new MyHashTable<>();
+    private int[] tree;   // Fenwick tree, 1-based: slot t lives at t + 1; null until a position is asked for
+    private int nextTicket;
+
+    // False (and no change) if the value is already queued
+    public boolean offer(T value) {
+        Node<T> n = new Node<>(value);
+        if (index.putIfAbsent(value, n) != null) return false;
+        if (tail == null) {
+            head = tail = n;
+        } else {
+            n.prev = tail;
+            tail.next = n;
+            tail = n;
+        }
+        if (tree != null) {
+            if (nextTicket == tree.length - 1) {
+                tree = null;
+            } else {
+                n.ticket = nextTicket++;
+                update(n.ticket, 1);
+            }
+        }
+        return true;
+    }
+
+    // Front value, taken off the queue, or null
+    public T poll() {
+        if (head == null) return null;
+        T value = head.value;
+        unlink(head);
+        index.remove(value);
+        return value;
+    }
+
+    public T peek() { return head == null ? null : head.value; }
+
+    public boolean remove(T value) {
+        Node<T> n = index.remove(value);
+        if (n == null) return false;
+        unlink(n);
+        return true;
+    }
+
+    public boolean contains(T value) { return index.containsKey(value); }
+
+    // 1 for the front of the queue; 0 if the value is not queued
+    public int positionOf(T value) {
+        Node<T> n = index.get(value);
+        if (n == null) return 0;
+        if (tree == null) buildTree();
+        int count = 0;
+        for (int i = n.ticket + 1; i > 0; i -= i & -i) count += tree[i];
+        return count;
+    }
+
+    public int size() { return index.size(); }
+
+    public boolean isEmpty() { return head == null; }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Node<T> cur = head;
+
+            @Override
+            public boolean hasNext() { return cur != null; }
+
+            @Override
+            public T next() {
+                T value = cur.value;
+                cur = cur.next;
+                return value;
+            }
+        };
+    }
+
+    private void unlink(Node<T> n) {
+        if (n.prev == null) head = n.next;
+        else n.prev.next = n.next;
+        if (n.next == null) tail = n.prev;
+        else n.next.prev = n.prev;
+        n.prev = n.next = null;
+        if (tree != null) update(n.ticket, -1);
+    }
+
+    private void update(int ticket, int delta) {
+        for (int i = ticket + 1; i < tree.length; i += i & -i) tree[i] += delta;
+    }
+
+    // Tickets 0.. in queue order, in a tree with room for as many again
+    private void buildTree() {
+        int size = index.size();
+        tree = new int[Math.max(16, size * 2) + 1];
+        int t = 0;
+        for (Node<T> n = head; n != null; n = n.next) {
+            n.ticket = t++;
+            tree[t] = 1;
+        }
+        nextTicket = t;
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+    }
+}
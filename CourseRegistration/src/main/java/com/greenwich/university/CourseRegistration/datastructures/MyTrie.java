@@ -0,0 +1,140 @@
+package datastructures;
+
+/**
+ * Prefix tree from string keys to values, for type-ahead search: finding the
+ * node of a prefix costs one step per character, and listing matches stops
+ * after the first few, so a lookup per keystroke stays cheap however large
+ * the tree is. Children are kept sorted, so matches come out in key order.
+ * A key may hold several values. Nodes left empty by remove() are pruned.
+ */
+public class MyTrie<V> {
+    private static class Node<V> {
+        char[] labels = new char[0];
+        Node<V>[] children = newNodes(0);
+        int childCount;
+        MyLinkedList<V> values;   // values whose key ends here, or null
+        int size;                 // values in this subtree
+
+        int indexOf(char c) {
+            int lo = 0, hi = childCount - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (labels[mid] < c) lo = mid + 1;
+                else if (labels[mid] > c) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+
+        Node<V> child(char c) {
+            int i = indexOf(c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node<V> childOrAdd(char c) {
+            int i = indexOf(c);
+            if (i >= 0) return children[i];
+            i = -(i + 1);
+            if (childCount == labels.length) {
+                int capacity = Math.max(2, childCount * 2);
+                char[] newLabels = new char[capacity];
+                Node<V>[] newChildren = newNodes(capacity);
+                System.arraycopy(labels, 0, newLabels, 0, childCount);
+                System.arraycopy(children, 0, newChildren, 0, childCount);
+                labels = newLabels;
+                children = newChildren;
+            }
+            System.arraycopy(labels, i, labels, i + 1, childCount - i);
+            System.arraycopy(children, i, children, i + 1, childCount - i);
+            labels[i] = c;
+            children[i] = new Node<>();
+            childCount++;
+            return children[i];
+        }
+
+        void removeChild(char c) {
+            int i = indexOf(c);
+            System.arraycopy(labels, i + 1, labels, i, childCount - i - 1);
+            System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+            children[--childCount] = null;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        static <V> Node<V>[] newNodes(int n) { return (Node<V>[]) new Node[n]; }
+    }
+
+    private final Node<V> root = new Node<>();
+
+    public void insert(String key, V value) {
+        Node<V> node = root;
+        node.size++;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrAdd(key.charAt(i));
+            node.size++;
+        }
+        if (node.values == null) node.values = new MyLinkedList<>();
+        node.values.add(value);
+    }
+
+    // Removes one value stored under exactly this key; false if it was not there
+    public boolean remove(String key, V value) {
+        Node<V> node = root;
+        for (int i = 0; i < key.length() && node != null; i++) node = node.child(key.charAt(i));
+        if (node == null || node.values == null || !node.values.remove(value)) return false;
+        if (node.values.isEmpty()) node.values = null;
+
+        node = root;
+        node.size--;
+        for (int i = 0; i < key.length(); i++) {
+            Node<V> next = node.child(key.charAt(i));
+            if (--next.size == 0) {
+                node.removeChild(key.charAt(i));   // the rest of the path only led here
+                return true;
+            }
+            node = next;
+        }
+        return true;
+    }
+
+    // Up to limit values whose key starts with prefix, in key order
+    public MyArray<V> startingWith(String prefix, int limit) {
+        return startingWith(prefix, limit, false);
+    }
+
+    /**
+     * Same, but a value stored under several matching keys (say, once per word
+     * of a name) is listed once, and the search goes on past the repeats until
+     * limit different values are found.
+     */
+    public MyArray<V> distinctStartingWith(String prefix, int limit) {
+        return startingWith(prefix, limit, true);
+    }
+
+    public int size() { return root.size; }
+
+    private MyArray<V> startingWith(String prefix, int limit, boolean distinct) {
+        MyArray<V> out = new MyArray<>();
+        Node<V> node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) node = node.child(prefix.charAt(i));
+        if (node != null && limit > 0) collect(node, limit, distinct, out);
+        return out;
+    }
+
+    private void collect(Node<V> node, int limit, boolean distinct, MyArray<V> out) {
+        if (node.values != null) {
+            for (V v : node.values) {
+                if (out.size() == limit) return;
+                // out holds at most limit values, and limits are small
+                if (!distinct || !contains(out, v)) out.add(v);
+            }
+        }
+        for (int i = 0; i < node.childCount && out.size() < limit; i++) collect(node.children[i], limit, distinct, out);
+    }
+
+    private static <V> boolean contains(MyArray<V> values, V value) {
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i).equals(value)) return true;
+        }
+        return false;
+    }
+}
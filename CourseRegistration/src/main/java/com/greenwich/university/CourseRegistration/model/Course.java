@@ -1,64 +1,134 @@
 package model;
 
-import datastructures.MyQueue;
+import datastructures.MyIndexedQueue;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A course and its seats. Seats are claimed and released with compare-and-set
+ * on one counter, so any number of threads can register at once without
+ * locking the course and without ever going over capacity. The waitlist is
+ * an indexed FIFO queue of student ids, locked on its own, so a student who
+ * gives up leaves it at once and anyone can ask their place in line. Its
+ * size is mirrored in a volatile field so the check registration makes on
+ * every call does not take the lock. Which student holds which seat is
+ * kept by RegistrationSystem; a Course only counts them. A seat listener is
+ * only told about the first change after it last looked, so while it is not
+ * looking a seat change costs one read of a flag on top of the CAS.
+ */
 public class Course {
     private String code;
     private String name;
     private int capacity;
-    private int enrolled;
-    private MyQueue<String> waitlist;
+    private final AtomicInteger enrolled = new AtomicInteger();
+    private final MyIndexedQueue<String> waitlist = new MyIndexedQueue<>();   // guarded by itself
+    private volatile int waitlistSize;
+    private volatile SeatListener seatListener;
+    private final AtomicBoolean seatsChanged = new AtomicBoolean();   // since the listener last looked
 
     public Course(String code, String name, int capacity) {
         this.code = code;
         this.name = name;
         this.capacity = capacity;
-        this.enrolled = 0;
-        this.waitlist = new MyQueue<>();
     }
 
     public String getCode() { return code; }
     public String getName() { return name; }
     public int getCapacity() { return capacity; }
-    public int getEnrolled() { return enrolled; }
-    public MyQueue<String> getWaitlist() { return waitlist; }
+    public int getEnrolled() { return enrolled.get(); }
+    public int getWaitlistSize() { return waitlistSize; }
+
+    // At most one; CourseManager uses it to keep its popularity ranking current
+    public void setSeatListener(SeatListener listener) { this.seatListener = listener; }
+
+    // For the seat listener: seats taken now; the next change after this call tells the listener again
+    public int takeSeatChange() {
+        seatsChanged.set(false);
+        return enrolled.get();
+    }
 
     public boolean hasSpace() {
-        return enrolled < capacity;
+        return enrolled.get() < capacity;
     }
 
-    // Try to enroll a student. If full, add to waitlist.
-    public boolean enroll(String studentId) {
-        if (hasSpace()) {
-            enrolled++;
+    // Takes one seat if there is one left
+    public boolean tryClaimSeat() {
+        while (true) {
+            int taken = enrolled.get();
+            if (taken >= capacity) return false;
+            if (enrolled.compareAndSet(taken, taken + 1)) {
+                notifySeats();
+                return true;
+            }
+        }
+    }
+
+    public void releaseSeat() {
+        while (true) {
+            int taken = enrolled.get();
+            if (taken <= 0) throw new IllegalStateException("No seat to release in " + code);
+            if (enrolled.compareAndSet(taken, taken - 1)) {
+                notifySeats();
+                return;
+            }
+        }
+    }
+
+    private void notifySeats() {
+        SeatListener listener = seatListener;
+        if (listener != null && !seatsChanged.get() && seatsChanged.compareAndSet(false, true)) {
+            listener.seatsChanged(this);
+        }
+    }
+
+    // False if the student is already on the waitlist
+    public boolean addToWaitlist(String studentId) {
+        synchronized (waitlist) {
+            if (!waitlist.offer(studentId)) return false;
+            waitlistSize = waitlist.size();
             return true;
-        } else {
-            waitlist.enqueue(studentId);
-            return false;
         }
     }
 
-    /**
-     * Drop a student. If waitlist exists, promote first student and return their ID.
-     * @param studentId the student who dropped
-     * @return promoted student ID if promotion happened, else null
-     */
-    public String drop(String studentId) {
-        if (enrolled > 0) {
-            enrolled--;
+    // Longest-waiting student id, taken off the waitlist, or null
+    public String pollWaitlist() {
+        synchronized (waitlist) {
+            String studentId = waitlist.poll();
+            waitlistSize = waitlist.size();
+            return studentId;
+        }
+    }
+
+    public boolean removeFromWaitlist(String studentId) {
+        synchronized (waitlist) {
+            if (!waitlist.remove(studentId)) return false;
+            waitlistSize = waitlist.size();
+            return true;
         }
+    }
 
-        if (!waitlist.isEmpty()) {
-            String promoted = waitlist.dequeue();
-            enrolled++;
-            return promoted;
+    // 1 for the next student to get a seat; 0 if the student is not waiting
+    public int getWaitlistPosition(String studentId) {
+        synchronized (waitlist) {
+            return waitlist.positionOf(studentId);
         }
+    }
 
-        return null;
+    public boolean hasWaitlist() { return waitlistSize > 0; }
+
+    // Snapshot of the waitlist in order
+    public String[] getWaitlist() {
+        synchronized (waitlist) {
+            String[] ids = new String[waitlist.size()];
+            int i = 0;
+            for (String id : waitlist) ids[i++] = id;
+            return ids;
+        }
     }
 
     @Override
     public String toString() {
-        return code + " - " + name + " (" + enrolled + "/" + capacity + ")";
+        return code + " - " + name + " (" + enrolled.get() + "/" + capacity + ")";
     }
 }
@@ -0,0 +1,10 @@
+package model;
+
+/**
+ * Told when a course's seats change for the first time since the listener
+ * last called Course.takeSeatChange(), on the thread that changed them. A
+ * burst of changes costs one call; the listener reads the count itself.
+ */
+public interface SeatListener {
+    void seatsChanged(Course course);
+}
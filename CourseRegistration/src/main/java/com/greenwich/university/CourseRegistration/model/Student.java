@@ -2,15 +2,22 @@ package model;
 
 import datastructures.MyLinkedList;
 
+/**
+ * A student's registered and waitlisted courses. Not thread-safe on its own:
+ * RegistrationSystem changes and reads a student only under that student's
+ * lock stripe.
+ */
 public class Student {
     private String id;
     private String name;
     private MyLinkedList<String> registeredCourses;
+    private MyLinkedList<String> waitlistedCourses;
 
     public Student(String id, String name) {
         this.id = id;
         this.name = name;
         this.registeredCourses = new MyLinkedList<>();
+        this.waitlistedCourses = new MyLinkedList<>();
     }
 
     public String getId() { return id; }
@@ -20,12 +27,38 @@ public class Student {
         return registeredCourses;
     }
 
+    public MyLinkedList<String> getWaitlistedCourses() {
+        return waitlistedCourses;
+    }
+
     public void registerCourse(String code) {
         registeredCourses.add(code);
     }
 
-    public void dropCourse(String code) {
-        registeredCourses.remove(code);
+    public boolean dropCourse(String code) {
+        return registeredCourses.remove(code);
+    }
+
+    public boolean isRegistered(String code) {
+        for (String c : registeredCourses) {
+            if (c.equals(code)) return true;
+        }
+        return false;
+    }
+
+    public void waitFor(String code) {
+        waitlistedCourses.add(code);
+    }
+
+    public boolean stopWaiting(String code) {
+        return waitlistedCourses.remove(code);
+    }
+
+    public boolean isWaiting(String code) {
+        for (String c : waitlistedCourses) {
+            if (c.equals(code)) return true;
+        }
+        return false;
     }
 
     @Override
@@ -1,18 +1,22 @@
 package com.greenwich.university.CourseRegistration;
 
+import datastructures.MyArray;
 import model.Course;
 import model.Student;
 import service.CourseManager;
+import service.RegistrationJournal;
 import service.RegistrationSystem;
 import util.InputValidator;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 public class registrationMain {
     public void run() {
         Scanner scanner = new Scanner(System.in);
         CourseManager courseManager = new CourseManager();
-        RegistrationSystem registrationSystem = new RegistrationSystem();
+        RegistrationSystem registrationSystem = createRegistrationSystem(courseManager);
 
         System.out.println("===================================");
         System.out.println(" Welcome to Course Registration ");
@@ -34,7 +38,8 @@ public class registrationMain {
                     System.out.println("2. Remove course");
                     System.out.println("3. List courses");
                     System.out.println("4. Show popular courses");
-                    System.out.println("5. Back to main menu");
+                    System.out.println("5. Search courses by name");
+                    System.out.println("6. Back to main menu");
                     System.out.print("Choice: ");
                     String adminChoice = scanner.nextLine();
 
@@ -63,7 +68,10 @@ public class registrationMain {
                         }
 
                         Course course = new Course(code, name, capacity);
-                        courseManager.addCourse(course);
+                        if (!courseManager.addCourse(course)) {
+                            System.out.println(" A course with code " + code + " already exists.");
+                            continue;
+                        }
                         registrationSystem.addCourse(course);
                         System.out.println(" Course added: " + course);
 
@@ -88,6 +96,14 @@ public class registrationMain {
                         courseManager.printPopularCourses();
 
                     } else if (adminChoice.equals("5")) {
+                        System.out.print("Name starts with: ");
+                        MyArray<Course> matches = courseManager.searchByName(scanner.nextLine(), 10);
+                        if (matches.isEmpty()) System.out.println(" No matching courses.");
+                        for (int i = 0; i < matches.size(); i++) {
+                            System.out.println("   " + matches.get(i));
+                        }
+
+                    } else if (adminChoice.equals("6")) {
                         break; // back to main menu
                     } else {
                         System.out.println(" Invalid choice.");
@@ -111,14 +127,18 @@ public class registrationMain {
                 }
 
                 Student student = new Student(studentId, studentName);
-                registrationSystem.addStudent(student);
+                if (!registrationSystem.addStudent(student)) {
+                    student = registrationSystem.getStudent(studentId);
+                    System.out.println(" Welcome back, " + student.getName() + "!");
+                }
 
                 while (true) {
                     System.out.println("\n--- Student Menu ---");
                     System.out.println("1. Register for a course");
                     System.out.println("2. Drop a course");
                     System.out.println("3. View my courses");
-                    System.out.println("4. Back to main menu");
+                    System.out.println("4. Register a timetable (all or nothing)");
+                    System.out.println("5. Back to main menu");
                     System.out.print("Choice: ");
                     String studentChoice = scanner.nextLine();
 
@@ -144,6 +164,19 @@ public class registrationMain {
                         registrationSystem.printStudentCourses(studentId);
 
                     } else if (studentChoice.equals("4")) {
+                        System.out.print("Enter course codes separated by spaces: ");
+                        String[] codes = scanner.nextLine().trim().split("[\\s,]+");
+                        boolean valid = true;
+                        for (String code : codes) {
+                            if (!InputValidator.validateCourseCode(code)) valid = false;
+                        }
+                        if (!valid) {
+                            System.out.println(" Invalid course code! Example: CS101 MA201");
+                            continue;
+                        }
+                        registrationSystem.registerCart(studentId, codes);
+
+                    } else if (studentChoice.equals("5")) {
                         break; // back to main menu
                     } else {
                         System.out.println(" Invalid choice.");
@@ -151,6 +184,11 @@ public class registrationMain {
                 }
 
             } else if (roleChoice.equals("3")) {
+                try {
+                    registrationSystem.closeJournal();
+                } catch (IOException e) {
+                    System.out.println(" Could not close journal: " + e.getMessage());
+                }
                 System.out.println(" Exiting system. Goodbye!");
                 break;
             } else {
@@ -158,4 +196,21 @@ public class registrationMain {
             }
         }
     }
+
+    // Run with -Dregistration.journal=<dir> to keep courses and registrations across restarts
+    private RegistrationSystem createRegistrationSystem(CourseManager courseManager) {
+        RegistrationSystem registrationSystem = new RegistrationSystem();
+        String journalDir = System.getProperty("registration.journal");
+        if (journalDir != null) {
+            try {
+                registrationSystem.enableJournal(new RegistrationJournal(Paths.get(journalDir), 32, 10_000));
+                MyArray<Course> restored = registrationSystem.getCourses();
+                for (int i = 0; i < restored.size(); i++) courseManager.addCourse(restored.get(i));
+                System.out.println(" Registrations restored from " + journalDir + " (" + restored.size() + " courses)");
+            } catch (IOException e) {
+                System.out.println(" Could not open journal, running in memory only: " + e.getMessage());
+            }
+        }
+        return registrationSystem;
+    }
 }
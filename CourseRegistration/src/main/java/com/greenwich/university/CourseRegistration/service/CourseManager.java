@@ -1,23 +1,78 @@
 package service;
 
 import datastructures.MyArray;
-import datastructures.MyComparator;
-import datastructures.MyHeap;
+import datastructures.MyHashTable;
+import datastructures.MyLinkedList;
+import datastructures.MyTrie;
 import model.Course;
 
+import java.util.Locale;
+
+/**
+ * The course catalog plus indexes kept in step with it: case-folded hash
+ * indexes by code and by name, and a prefix trie over names for type-ahead
+ * search. The trie holds each name from its start and from the start of
+ * every later word, so "struct" finds "Data Structures".
+ * Removing a course moves the last one into its place, so removal is O(1)
+ * but the catalog order changes. Listed courses are also ranked by
+ * enrollment in a PopularityIndex that catches up on seat changes when read.
+ */
 public class CourseManager {
     private MyArray<Course> catalog;
+    private MyHashTable<String, Integer> positionByCode;   // folded code -> index in catalog
+    private MyHashTable<String, MyLinkedList<Course>> byName;
+    private MyTrie<Course> nameTrie;
+    private PopularityIndex popularity;
 
     public CourseManager() {
         catalog = new MyArray<>();
+        positionByCode = new MyHashTable<>();
+        byName = new MyHashTable<>();
+        nameTrie = new MyTrie<>();
+        popularity = new PopularityIndex();
     }
 
-    public void addCourse(Course course) {
+    // False if a course with the same code (in any case) is already listed
+    public boolean addCourse(Course course) {
+        String code = fold(course.getCode());
+        if (positionByCode.containsKey(code)) return false;
+        positionByCode.put(code, catalog.size());
         catalog.add(course);
+
+        String name = fold(course.getName());
+        MyLinkedList<Course> sameName = byName.get(name);
+        if (sameName == null) {
+            sameName = new MyLinkedList<>();
+            byName.put(name, sameName);
+        }
+        sameName.add(course);
+        MyArray<String> keys = searchKeys(name);
+        for (int i = 0; i < keys.size(); i++) nameTrie.insert(keys.get(i), course);
+        popularity.track(course);
+        return true;
     }
 
-    public void removeCourse(int index) {
-        catalog.removeAt(index);
+    public Course removeCourse(int index) {
+        return removeByCode(catalog.get(index).getCode());
+    }
+
+    // The removed course, or null if no course has that code
+    public Course removeByCode(String code) {
+        Integer position = positionByCode.remove(fold(code));
+        if (position == null) return null;
+        Course removed = catalog.swapRemove(position);
+        if (position < catalog.size()) {
+            positionByCode.put(fold(catalog.get(position).getCode()), position);
+        }
+
+        String name = fold(removed.getName());
+        MyLinkedList<Course> sameName = byName.get(name);
+        sameName.remove(removed);
+        if (sameName.isEmpty()) byName.remove(name);
+        MyArray<String> keys = searchKeys(name);
+        for (int i = 0; i < keys.size(); i++) nameTrie.remove(keys.get(i), removed);
+        popularity.untrack(removed);
+        return removed;
     }
 
     public MyArray<Course> getCatalog() {
@@ -25,21 +80,45 @@ public class CourseManager {
     }
 
     public Course findByCode(String code) {
-        for (int i = 0; i < catalog.size(); i++) {
-            if (catalog.get(i).getCode().equalsIgnoreCase(code)) {
-                return catalog.get(i);
-            }
-        }
-        return null;
+        Integer position = positionByCode.get(fold(code));
+        return position == null ? null : catalog.get(position);
     }
 
+    // The first listed course with this name
     public Course findByName(String name) {
-        for (int i = 0; i < catalog.size(); i++) {
-            if (catalog.get(i).getName().equalsIgnoreCase(name)) {
-                return catalog.get(i);
-            }
+        MyLinkedList<Course> sameName = byName.get(fold(name));
+        return sameName == null ? null : sameName.iterator().next();
+    }
+
+    // Up to limit courses with a name, or a word in it, starting with prefix
+    public MyArray<Course> searchByName(String prefix, int limit) {
+        // A course is filed under its name and each word in it, so one prefix can reach it twice
+        return nameTrie.distinctStartingWith(fold(prefix), limit);
+    }
+
+    // For the trending widget: the k most enrolled courses, O(k) plus courses changed since the last read
+    public MyArray<Course> getTopCourses(int k) {
+        return popularity.top(k);
+    }
+
+    // 1 for the most enrolled course; 0 if no course has that code
+    public int getPopularityRank(String code) {
+        Course course = findByCode(code);
+        return course == null ? 0 : popularity.rankOf(course);
+    }
+
+    private static String fold(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // The folded name, and the rest of it from each later word
+    private static MyArray<String> searchKeys(String foldedName) {
+        MyArray<String> keys = new MyArray<>();
+        keys.add(foldedName);
+        for (int i = 1; i < foldedName.length(); i++) {
+            if (foldedName.charAt(i - 1) == ' ' && foldedName.charAt(i) != ' ') keys.add(foldedName.substring(i));
         }
-        return null;
+        return keys;
     }
 
     // --- Option 3: Display all courses in a clean table
@@ -54,22 +133,14 @@ public class CourseManager {
             Course c = catalog.get(i);
             System.out.printf("%-10s %-25s %-10d %-10d %-10d%n",
                     c.getCode(), c.getName(), c.getEnrolled(),
-                    c.getCapacity(), c.getWaitlist().size());
+                    c.getCapacity(), c.getWaitlistSize());
         }
         System.out.println("---------------------------------------------------------------");
     }
 
     // --- Option 4: Show courses ranked by popularity
     public void printPopularCourses() {
-        MyHeap<Course> heap = new MyHeap<>(new MyComparator<>() {
-            @Override
-            public int compare(Course a, Course b) {
-                return Integer.compare(a.getEnrolled(), b.getEnrolled());
-            }
-        });
-        for (int i = 0; i < catalog.size(); i++) {
-            heap.insert(catalog.get(i));
-        }
+        MyArray<Course> ranked = popularity.top(catalog.size());
 
         System.out.println("\n🔥 Popular Courses (Ranked by Enrollment):");
         System.out.println("---------------------------------------------------------------");
@@ -77,11 +148,10 @@ public class CourseManager {
                 "Rank", "Code", "Name", "Enrolled");
         System.out.println("---------------------------------------------------------------");
 
-        int rank = 1;
-        while (!heap.isEmpty()) {
-            Course c = heap.extractMax();
+        for (int i = 0; i < ranked.size(); i++) {
+            Course c = ranked.get(i);
             System.out.printf("%-5d %-10s %-25s %-10d%n",
-                    rank++, c.getCode(), c.getName(), c.getEnrolled());
+                    popularity.rankOf(c), c.getCode(), c.getName(), c.getEnrolled());
         }
         System.out.println("---------------------------------------------------------------");
     }
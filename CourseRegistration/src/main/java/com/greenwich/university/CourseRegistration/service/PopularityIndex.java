@@ -0,0 +1,65 @@
+package service;
+
+import datastructures.MyArray;
+import datastructures.MyCountRanking;
+import model.Course;
+import model.SeatListener;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Courses ranked by seats taken, kept up to date as seats change instead of
+ * being sorted on every request. Registration never waits for the ranking:
+ * the first seat change after the index last looked at a course puts the
+ * course on a lock-free queue of changed courses, and later changes only
+ * find it already marked. Each read drains that queue and moves every
+ * course on it to the count Course.takeSeatChange() reports, one block at
+ * a time (see MyCountRanking). Counts are read, never summed from deltas,
+ * so a change that is both queued and already read is not counted twice.
+ */
+public class PopularityIndex implements SeatListener {
+    private final MyCountRanking<Course> ranking = new MyCountRanking<>();
+    private final ConcurrentLinkedQueue<Course> changed = new ConcurrentLinkedQueue<>();
+
+    // The listener goes in first, so a seat taken meanwhile is either in the count read here or queued
+    public synchronized void track(Course course) {
+        course.setSeatListener(this);
+        ranking.add(course, course.takeSeatChange());
+    }
+
+    public synchronized void untrack(Course course) {
+        course.setSeatListener(null);
+        ranking.remove(course);
+    }
+
+    // Runs on the registering thread; only queues the course
+    @Override
+    public void seatsChanged(Course course) {
+        changed.offer(course);
+    }
+
+    // The k most enrolled courses, most first; O(k) plus the courses changed since the last read
+    public synchronized MyArray<Course> top(int k) {
+        catchUp();
+        return ranking.top(k);
+    }
+
+    // 1 for the most enrolled; courses with equal seats share a rank; 0 if not tracked
+    public synchronized int rankOf(Course course) {
+        catchUp();
+        return ranking.rankOf(course);
+    }
+
+    public synchronized int enrolledCount(Course course) {
+        catchUp();
+        return ranking.countOf(course);
+    }
+
+    private void catchUp() {
+        Course course;
+        while ((course = changed.poll()) != null) {
+            // Untracked since it was queued
+            if (ranking.contains(course)) ranking.setCount(course, course.takeSeatChange());
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package service;
+
+import model.Course;
+import model.Student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Write-ahead event log for a RegistrationSystem.
+ * Every change is appended to registration.log as a small binary record.
+ * Records are batched in a direct buffer and the file is fsynced once per
+ * syncEvery records (group commit), so a crash loses at most that many
+ * operations. Every snapshotEvery records the whole state is written to
+ * snapshot.bin and the log is truncated, so recovery loads the snapshot and
+ * replays only the log written since.
+ *
+ * Replaying a record is not idempotent (a WAITLIST replayed after the
+ * student was promoted and joined again would move them to the tail), so
+ * each snapshot and each log carries a generation number. A snapshot is
+ * written with the next generation and moved into place before the log is
+ * restarted under that generation; a crash between the two leaves a log
+ * with an older generation than the snapshot, and recovery discards it
+ * because everything in it is already in the snapshot. A snapshot is
+ * consistent by construction, so its records are applied without the
+ * checks log replay does, which would scan each student's course lists.
+ * Seat counts are not logged: a course holds as many seats as students
+ * registered for it.
+ *
+ * Both files start with a magic number and the generation as a long, then
+ * hold the same records; ids and codes are a length byte plus UTF-8, names a
+ * length short plus UTF-8:
+ *   COURSE: type, code, capacity, name
+ *   STUDENT: type, id, name
+ *   REGISTER: type, id, code; took a free seat
+ *   WAITLIST: type, id, code; joined the end of the waitlist
+ *   DROP: type, id, code; gave up a seat
+ *   LEAVE: type, id, code; left the waitlist
+ *   PROMOTE: type, id, code; left the waitlist for a seat
+ *   CART: type, id, count, count codes; registered for all of them at once
+ */
+public class RegistrationJournal implements Closeable {
+    private static final byte COURSE = 1;
+    private static final byte STUDENT = 2;
+    private static final byte REGISTER = 3;
+    private static final byte WAITLIST = 4;
+    private static final byte DROP = 5;
+    private static final byte LEAVE = 6;
+    private static final byte PROMOTE = 7;
+    private static final byte CART = 8;
+    private static final int SNAPSHOT_MAGIC = 0x52454732; // "REG2"
+    private static final int LOG_MAGIC = 0x524C4F47; // "RLOG"
+    private static final int HEADER_SIZE = 4 + 8;
+    private static final int BUFFER_SIZE = 1 << 17; // room for the longest record a name or cart can produce
+
+    private final Path logFile;
+    private final Path snapshotFile;
+    private final FileChannel log;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final int syncEvery;
+    private final int snapshotEvery;
+    private int unsynced;
+    private long sinceSnapshot;
+    private long generation; // of the current snapshot, and of the log written since
+
+    /**
+     * @param syncEvery     records per fsync; 1 makes every operation durable before it returns
+     * @param snapshotEvery records between compacting snapshots
+     */
+    public RegistrationJournal(Path directory, int syncEvery, int snapshotEvery) throws IOException {
+        if (syncEvery <= 0 || snapshotEvery <= 0) throw new IllegalArgumentException("syncEvery and snapshotEvery must be > 0");
+        Files.createDirectories(directory);
+        this.logFile = directory.resolve("registration.log");
+        this.snapshotFile = directory.resolve("snapshot.bin");
+        this.log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.syncEvery = syncEvery;
+        this.snapshotEvery = snapshotEvery;
+        if (Files.exists(snapshotFile)) {
+            try (FileChannel in = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+                generation = readHeader(in, SNAPSHOT_MAGIC, snapshotFile).getLong();
+            }
+        }
+        // A log shorter than its header was being restarted, so it holds nothing the snapshot lacks
+        if (log.size() < HEADER_SIZE) startLog();
+        log.position(log.size());
+    }
+
+    synchronized void logCourse(Course course) throws IOException {
+        byte[] code = shortText(course.getCode());
+        byte[] name = longText(course.getName());
+        ensureRoom(1 + 1 + code.length + 4 + 2 + name.length);
+        putCourse(buffer, code, course.getCapacity(), name);
+        recordWritten();
+    }
+
+    synchronized void logStudent(Student student) throws IOException {
+        byte[] id = shortText(student.getId());
+        byte[] name = longText(student.getName());
+        ensureRoom(1 + 1 + id.length + 2 + name.length);
+        putStudent(buffer, id, name);
+        recordWritten();
+    }
+
+    synchronized void logRegister(String studentId, String courseCode) throws IOException {
+        logPair(REGISTER, studentId, courseCode);
+    }
+
+    synchronized void logWaitlist(String studentId, String courseCode) throws IOException {
+        logPair(WAITLIST, studentId, courseCode);
+    }
+
+    synchronized void logDrop(String studentId, String courseCode) throws IOException {
+        logPair(DROP, studentId, courseCode);
+    }
+
+    synchronized void logLeave(String studentId, String courseCode) throws IOException {
+        logPair(LEAVE, studentId, courseCode);
+    }
+
+    synchronized void logPromote(String studentId, String courseCode) throws IOException {
+        logPair(PROMOTE, studentId, courseCode);
+    }
+
+    // One record for the whole cart, so a torn write loses all of it or none
+    synchronized void logCart(String studentId, String[] courseCodes, int count) throws IOException {
+        if (count > 0xFF) throw new IllegalArgumentException("Cart too large to journal");
+        byte[] id = shortText(studentId);
+        byte[][] codes = new byte[count][];
+        int size = 1 + 1 + id.length + 1;
+        for (int i = 0; i < count; i++) {
+            codes[i] = shortText(courseCodes[i]);
+            size += 1 + codes[i].length;
+        }
+        ensureRoom(size);
+        buffer.put(CART);
+        putText(buffer, id);
+        buffer.put((byte) count);
+        for (byte[] code : codes) putText(buffer, code);
+        recordWritten();
+    }
+
+    synchronized boolean isSnapshotDue() { return sinceSnapshot >= snapshotEvery; }
+
+    // Writes everything still buffered and fsyncs the log
+    public synchronized void sync() throws IOException {
+        writeBuffer();
+        log.force(false);
+        unsynced = 0;
+    }
+
+    /**
+     * Replaces the snapshot with the given state and empties the log.
+     * The caller must hold off registration while this runs.
+     */
+    synchronized void writeSnapshot(Iterable<Course> courses, Iterable<Student> students) throws IOException {
+        sync();
+        Path tmp = snapshotFile.resolveSibling("snapshot.tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buf.putInt(SNAPSHOT_MAGIC).putLong(generation + 1);
+            for (Course course : courses) {
+                byte[] code = shortText(course.getCode());
+                byte[] name = longText(course.getName());
+                drainIfFull(out, buf, 1 + 1 + code.length + 4 + 2 + name.length);
+                putCourse(buf, code, course.getCapacity(), name);
+            }
+            // Students with their seats, then each waitlist in order
+            for (Student student : students) {
+                byte[] id = shortText(student.getId());
+                byte[] name = longText(student.getName());
+                drainIfFull(out, buf, 1 + 1 + id.length + 2 + name.length);
+                putStudent(buf, id, name);
+                for (String code : student.getRegisteredCourses()) {
+                    byte[] c = shortText(code);
+                    drainIfFull(out, buf, 1 + 1 + id.length + 1 + c.length);
+                    putPair(buf, REGISTER, id, c);
+                }
+            }
+            for (Course course : courses) {
+                byte[] code = shortText(course.getCode());
+                for (String studentId : course.getWaitlist()) {
+                    byte[] id = shortText(studentId);
+                    drainIfFull(out, buf, 1 + 1 + id.length + 1 + code.length);
+                    putPair(buf, WAITLIST, id, code);
+                }
+            }
+            writeFully(out, buf);
+            out.force(true);
+        }
+        // From here until startLog() is done the log is a generation behind and recovery ignores it
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        generation++;
+        startLog();
+        sinceSnapshot = 0;
+    }
+
+    /**
+     * Rebuilds state from the snapshot and the log, passing every course and
+     * student to the consumers with seats taken and waitlists filled. A torn
+     * record at the end of the log (crash mid-write) is cut off, and a log
+     * from before the snapshot is dropped.
+     */
+    synchronized void recover(Consumer<Course> courseSink, Consumer<Student> studentSink) throws IOException {
+        Map<String, Course> courses = new LinkedHashMap<>();
+        Map<String, Student> students = new LinkedHashMap<>();
+
+        if (Files.exists(snapshotFile)) {
+            try (FileChannel in = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+                ByteBuffer snap = readAll(in);
+                checkHeader(snap, SNAPSHOT_MAGIC, snapshotFile);
+                if (snap.getLong() != generation) throw new IOException("Snapshot replaced while open: " + snapshotFile);
+                replay(snap, courses, students, true);
+            }
+        }
+
+        ByteBuffer records = readAll(log);
+        checkHeader(records, LOG_MAGIC, logFile);
+        long logGeneration = records.getLong();
+        if (logGeneration == generation) {
+            long good = replay(records, courses, students, false);
+            log.truncate(good);
+            log.position(good);
+        } else if (logGeneration < generation) {
+            startLog(); // crashed after the snapshot went in but before the log was restarted
+        } else {
+            throw new IOException("Log generation " + logGeneration + " is newer than snapshot generation "
+                    + generation + ": " + snapshotFile + " is missing or stale");
+        }
+
+        Map<String, Integer> seats = new HashMap<>();
+        for (Student student : students.values()) {
+            for (String code : student.getRegisteredCourses()) seats.merge(code, 1, Integer::sum);
+        }
+        for (Course course : courses.values()) {
+            int taken = seats.getOrDefault(course.getCode(), 0);
+            for (int i = 0; i < taken; i++) {
+                if (!course.tryClaimSeat()) throw new IOException("Journal overbooks " + course.getCode());
+            }
+            courseSink.accept(course);
+        }
+        for (Student student : students.values()) studentSink.accept(student);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        log.close();
+    }
+
+    // Applies records until the buffer ends or a record is incomplete; returns bytes consumed
+    private static long replay(ByteBuffer in, Map<String, Course> courses, Map<String, Student> students,
+                               boolean fromSnapshot) {
+        int good = in.position();
+        // Snapshots group records by student and by course; remembering the last one saves most lookups
+        Student student = null;
+        Course course = null;
+        try {
+            while (in.hasRemaining()) {
+                byte type = in.get();
+                if (type == COURSE) {
+                    String code = getText(in);
+                    int capacity = in.getInt();
+                    String name = getLongText(in);
+                    courses.putIfAbsent(code, new Course(code, name, capacity));
+                } else if (type == STUDENT) {
+                    String id = getText(in);
+                    String name = getLongText(in);
+                    students.putIfAbsent(id, new Student(id, name));
+                } else if (type == CART) {
+                    Student buyer = students.get(getText(in));
+                    int count = Byte.toUnsignedInt(in.get());
+                    for (int i = 0; i < count; i++) {
+                        String code = getText(in);
+                        if (buyer != null && !buyer.isRegistered(code)) buyer.registerCourse(code);
+                    }
+                } else if (type >= REGISTER && type <= PROMOTE) {
+                    String id = getText(in);
+                    String code = getText(in);
+                    if (student == null || !student.getId().equals(id)) student = students.get(id);
+                    if (course == null || !course.getCode().equals(code)) course = courses.get(code);
+                    if (student != null && course != null) {
+                        if (fromSnapshot) applyTrusted(type, student, course);
+                        else apply(type, student, course);
+                    }
+                } else {
+                    break; // garbage after a torn write
+                }
+                good = in.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // Last record was only partly written
+        }
+        return good;
+    }
+
+    // Snapshots hold only REGISTER and WAITLIST, each pair at most once
+    private static void applyTrusted(byte type, Student student, Course course) {
+        if (type == REGISTER) {
+            student.registerCourse(course.getCode());
+        } else {
+            student.waitFor(course.getCode());
+            course.addToWaitlist(student.getId());
+        }
+    }
+
+    private static void apply(byte type, Student student, Course course) {
+        String code = course.getCode();
+        if (type == REGISTER || type == PROMOTE) {
+            if (student.stopWaiting(code)) course.removeFromWaitlist(student.getId());
+            if (!student.isRegistered(code)) student.registerCourse(code);
+        } else if (type == WAITLIST) {
+            if (!student.isRegistered(code) && !student.isWaiting(code)) {
+                student.waitFor(code);
+                course.addToWaitlist(student.getId());
+            }
+        } else if (type == DROP) {
+            student.dropCourse(code);
+        } else if (student.stopWaiting(code)) {
+            course.removeFromWaitlist(student.getId());
+        }
+    }
+
+    // Empties the log and stamps it with the current generation; the buffer must be empty
+    private void startLog() throws IOException {
+        log.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(LOG_MAGIC).putLong(generation).flip();
+        log.position(0);
+        while (header.hasRemaining()) log.write(header);
+        log.force(true);
+    }
+
+    private static ByteBuffer readHeader(FileChannel in, int magic, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        in.position(0);
+        while (header.hasRemaining() && in.read(header) >= 0) { }
+        checkHeader(header.flip(), magic, file);
+        return header;
+    }
+
+    private static void checkHeader(ByteBuffer in, int magic, Path file) throws IOException {
+        if (in.remaining() < HEADER_SIZE || in.getInt() != magic) throw new IOException("Not a registration journal file: " + file);
+    }
+
+    private void logPair(byte type, String studentId, String courseCode) throws IOException {
+        byte[] id = shortText(studentId);
+        byte[] code = shortText(courseCode);
+        ensureRoom(1 + 1 + id.length + 1 + code.length);
+        putPair(buffer, type, id, code);
+        recordWritten();
+    }
+
+    private static void putCourse(ByteBuffer buf, byte[] code, int capacity, byte[] name) {
+        buf.put(COURSE);
+        putText(buf, code);
+        buf.putInt(capacity).putShort((short) name.length).put(name);
+    }
+
+    private static void putStudent(ByteBuffer buf, byte[] id, byte[] name) {
+        buf.put(STUDENT);
+        putText(buf, id);
+        buf.putShort((short) name.length).put(name);
+    }
+
+    private static void putPair(ByteBuffer buf, byte type, byte[] id, byte[] code) {
+        buf.put(type);
+        putText(buf, id);
+        putText(buf, code);
+    }
+
+    private static void putText(ByteBuffer buf, byte[] text) {
+        buf.put((byte) text.length).put(text);
+    }
+
+    private static String getText(ByteBuffer in) {
+        byte[] text = new byte[Byte.toUnsignedInt(in.get())];
+        in.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    private static String getLongText(ByteBuffer in) {
+        byte[] text = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    // Ids and course codes
+    private static byte[] shortText(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFF) throw new IllegalArgumentException("Id too long to journal: " + text);
+        return bytes;
+    }
+
+    // Names; the bound keeps every record within the buffer
+    private static byte[] longText(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) throw new IllegalArgumentException("Name too long to journal");
+        return bytes;
+    }
+
+    private void recordWritten() throws IOException {
+        sinceSnapshot++;
+        if (++unsynced >= syncEvery) sync();
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) writeBuffer();
+    }
+
+    private void writeBuffer() throws IOException {
+        writeFully(log, buffer);
+    }
+
+    private static void drainIfFull(FileChannel out, ByteBuffer buf, int needed) throws IOException {
+        if (buf.remaining() < needed) writeFully(out, buf);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) out.write(buf);
+        buf.clear();
+    }
+
+    // Plain reads rather than a mapping, so the files can be truncated or replaced afterwards
+    private static ByteBuffer readAll(FileChannel in) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate((int) in.size());
+        in.position(0);
+        while (data.hasRemaining() && in.read(data) >= 0) { }
+        return data.flip();
+    }
+}
@@ -1,66 +1,535 @@
 package service;
 
+import datastructures.MyArray;
 import datastructures.MyHashTable;
 import model.Course;
 import model.Student;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Registration engine, safe to call from many threads at once (registration
+ * opens for everyone at the same minute). Seats are claimed with CAS on the
+ * course, each waitlist has its own short lock, and each student record is changed
+ * under one of a fixed set of striped locks, so registrations of different
+ * students run in parallel. No thread ever holds two stripes.
+ *
+ * A seat that comes free goes to the head of the waitlist before anyone new:
+ * newcomers join the waitlist while it is not empty, and whoever frees or
+ * finds a seat promotes waiting students until seats or waiters run out.
+ * Courses and students are looked up under a read lock; adding them takes
+ * the write lock, which is expected to be rare once registration is open.
+ * An add that makes a table grow also finishes moving it before letting
+ * readers back in, so lookups never keep probing a half-moved table.
+ *
+ * A cart registers a whole timetable all or nothing: seats are claimed in
+ * course code order while the student's stripe is held, and if any course
+ * cannot be had the seats already claimed are handed back (to the waitlist
+ * first, as with a drop) before anyone sees the student registered.
+ *
+ * With a journal attached, every change is also logged while the locks that
+ * order it are held: a student's changes under their stripe, and joins of a
+ * waitlist under the course, so log order matches waitlist order. Changes
+ * run under the read side of a snapshot lock; a snapshot takes the write
+ * side and so sees no change half done.
+ */
 public class RegistrationSystem {
+    public enum Result { REGISTERED, WAITLISTED, ALREADY_REGISTERED, ALREADY_WAITLISTED, UNKNOWN }
+
+    /**
+     * What a cart did with one course. RESERVED and ALREADY_REGISTERED are
+     * the only outcomes in a committed cart. After the first failure, seats
+     * claimed before it are ROLLED_BACK and the courses after it SKIPPED.
+     */
+    public enum CartOutcome { RESERVED, ALREADY_REGISTERED, FULL, WAITLISTED, UNKNOWN, ROLLED_BACK, SKIPPED }
+
+    // Outcome per course of one cart, in course code order
+    public static class CartReport {
+        private final String[] codes;
+        private final CartOutcome[] outcomes;
+        private boolean committed;
+
+        private CartReport(String[] codes) {
+            this.codes = codes;
+            this.outcomes = new CartOutcome[codes.length];
+        }
+
+        public boolean isCommitted() { return committed; }
+        public int size() { return codes.length; }
+        public String getCode(int i) { return codes[i]; }
+        public CartOutcome getOutcome(int i) { return outcomes[i]; }
+    }
+
+    private static final int STRIPE_BITS = 6;   // 64 locks
+    private static final int MAX_CART = 255;
+
     private MyHashTable<String, Course> courses;
     private MyHashTable<String, Student> students;
+    private final ReentrantReadWriteLock directoryLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes = new ReentrantLock[1 << STRIPE_BITS];
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private volatile RegistrationJournal journal;
 
     public RegistrationSystem() {
         courses = new MyHashTable<>();
         students = new MyHashTable<>();
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
     }
 
-    public void addCourse(Course c) {
-        courses.put(c.getCode(), c);
+    /**
+     * Turns on journaling: replays whatever the journal holds into this
+     * system, which must still be empty, then logs every later change. A
+     * crash between a drop and the promotions it caused leaves free seats
+     * with students waiting; those promotions are made (and logged) here.
+     */
+    public void enableJournal(RegistrationJournal journal) throws IOException {
+        snapshotLock.writeLock().lock();
+        directoryLock.writeLock().lock();
+        try {
+            if (!courses.isEmpty() || !students.isEmpty()) {
+                throw new IllegalStateException("Journal must be attached to an empty registration system");
+            }
+            journal.recover(c -> courses.put(c.getCode(), c), s -> students.put(s.getId(), s));
+            courses.finishMove();
+            students.finishMove();
+            this.journal = journal;
+            for (Course c : courses.values()) promote(journal, c, false, null);
+        } finally {
+            directoryLock.writeLock().unlock();
+            snapshotLock.writeLock().unlock();
+        }
     }
 
-    public void addStudent(Student s) {
-        students.put(s.getId(), s);
+    // Flushes and closes the journal, if any; registration keeps working in memory only
+    public void closeJournal() throws IOException {
+        snapshotLock.writeLock().lock();
+        try {
+            RegistrationJournal current = journal;
+            if (current == null) return;
+            journal = null;
+            current.close();
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
     }
 
-    public boolean register(String studentId, String courseCode) {
-        Student s = students.get(studentId);
-        Course c = courses.get(courseCode);
+    // Writes a snapshot now and empties the log; registration waits while it runs
+    public void snapshot() throws IOException {
+        writeSnapshot(false);
+    }
+
+    // False if a course with that code is already listed
+    public boolean addCourse(Course c) {
+        RegistrationJournal j = beginChange();
+        try {
+            directoryLock.writeLock().lock();
+            try {
+                if (courses.putIfAbsent(c.getCode(), c) != null) return false;
+                courses.finishMove();
+                log(j, journal -> journal.logCourse(c));
+                return true;
+            } finally {
+                directoryLock.writeLock().unlock();
+            }
+        } finally {
+            endChange(j);
+        }
+    }
+
+    // False if a student with that id is already known
+    public boolean addStudent(Student s) {
+        RegistrationJournal j = beginChange();
+        try {
+            directoryLock.writeLock().lock();
+            try {
+                if (students.putIfAbsent(s.getId(), s) != null) return false;
+                students.finishMove();
+                log(j, journal -> journal.logStudent(s));
+                return true;
+            } finally {
+                directoryLock.writeLock().unlock();
+            }
+        } finally {
+            endChange(j);
+        }
+    }
+
+    // Snapshot of the listed courses, in no particular order
+    public MyArray<Course> getCourses() {
+        directoryLock.writeLock().lock();   // iterating may finish moving the table
+        try {
+            MyArray<Course> out = new MyArray<>();
+            for (Course c : courses.values()) out.add(c);
+            return out;
+        } finally {
+            directoryLock.writeLock().unlock();
+        }
+    }
+
+    public Course getCourse(String courseCode) {
+        directoryLock.readLock().lock();
+        try {
+            return courses.get(courseCode);
+        } finally {
+            directoryLock.readLock().unlock();
+        }
+    }
+
+    public Student getStudent(String studentId) {
+        directoryLock.readLock().lock();
+        try {
+            return students.get(studentId);
+        } finally {
+            directoryLock.readLock().unlock();
+        }
+    }
+
+    // Thread-safe and silent; register() is the same with console output
+    public Result tryRegister(String studentId, String courseCode) {
+        RegistrationJournal j = beginChange();
+        try {
+            return tryRegister(j, studentId, courseCode);
+        } finally {
+            endChange(j);
+        }
+    }
+
+    private Result tryRegister(RegistrationJournal j, String studentId, String courseCode) {
+        Student s = getStudent(studentId);
+        Course c = getCourse(courseCode);
+        if (s == null || c == null) return Result.UNKNOWN;
+
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            if (s.isRegistered(courseCode)) return Result.ALREADY_REGISTERED;
+            if (s.isWaiting(courseCode)) return Result.ALREADY_WAITLISTED;
+            if (!c.hasWaitlist() && c.tryClaimSeat()) {
+                s.registerCourse(courseCode);
+                log(j, journal -> journal.logRegister(studentId, courseCode));
+                return Result.REGISTERED;
+            }
+            s.waitFor(courseCode);
+            if (j == null) {
+                c.addToWaitlist(studentId);
+            } else {
+                synchronized (c) {
+                    c.addToWaitlist(studentId);
+                    log(j, journal -> journal.logWaitlist(studentId, courseCode));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // A seat may have come free since we looked; we may even be the one promoted
+        promote(j, c, false, null);
+        lock.lock();
+        try {
+            return s.isRegistered(courseCode) ? Result.REGISTERED : Result.WAITLISTED;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a registered course, or leaves its waitlist. A freed seat goes
+     * straight to the waitlist; ids of students promoted into it are added to
+     * promoted (may be null). Returns false if there was nothing to drop.
+     */
+    public boolean tryDrop(String studentId, String courseCode, MyArray<String> promoted) {
+        RegistrationJournal j = beginChange();
+        try {
+            return tryDrop(j, studentId, courseCode, promoted);
+        } finally {
+            endChange(j);
+        }
+    }
+
+    private boolean tryDrop(RegistrationJournal j, String studentId, String courseCode, MyArray<String> promoted) {
+        Student s = getStudent(studentId);
+        Course c = getCourse(courseCode);
         if (s == null || c == null) return false;
 
-        if (c.enroll(studentId)) {
-            s.registerCourse(courseCode);
-            System.out.println("✅ " + s.getName() + " registered for " + c.getName());
-            return true;
-        } else {
-            System.out.println("⚠️ " + c.getName() + " is full. Added " + s.getName() + " to waitlist.");
-            return false;
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            if (!s.dropCourse(courseCode)) {
+                if (!s.stopWaiting(courseCode)) return false;
+                // Gone from the queue at once, so promote() only ever polls students still waiting;
+                // if one already polled us, it sees we stopped waiting and passes the seat on
+                c.removeFromWaitlist(studentId);
+                log(j, journal -> journal.logLeave(studentId, courseCode));
+                return true;
+            }
+            log(j, journal -> journal.logDrop(studentId, courseCode));
+        } finally {
+            lock.unlock();
         }
+        promote(j, c, true, promoted);
+        return true;
     }
 
-    public void drop(String studentId, String courseCode) {
-        Student s = students.get(studentId);
-        Course c = courses.get(courseCode);
+    /**
+     * Registers the student for every course in the cart or for none. Never
+     * waitlists: a course that is full, or has people waiting, fails the
+     * cart. Courses the student already has count as satisfied and are kept
+     * either way. Duplicate codes are ignored; at most 255 courses. Thread-safe
+     * and silent; registerCart() is the same with console output.
+     */
+    public CartReport tryRegisterCart(String studentId, String... courseCodes) {
+        RegistrationJournal j = beginChange();
+        try {
+            return tryRegisterCart(j, studentId, courseCodes);
+        } finally {
+            endChange(j);
+        }
+    }
+
+    private CartReport tryRegisterCart(RegistrationJournal j, String studentId, String[] courseCodes) {
+        String[] codes = distinctSorted(courseCodes);
+        if (codes.length > MAX_CART) throw new IllegalArgumentException("A cart holds at most " + MAX_CART + " courses");
+        CartReport report = new CartReport(codes);
+        int n = codes.length;
 
-        if (s != null && c != null) {
-            s.dropCourse(courseCode);
-            String promotedId = c.drop(studentId);
+        // One trip to the directory for the whole cart
+        Student s;
+        Course[] cart = new Course[n];
+        directoryLock.readLock().lock();
+        try {
+            s = students.get(studentId);
+            for (int i = 0; i < n; i++) cart[i] = courses.get(codes[i]);
+        } finally {
+            directoryLock.readLock().unlock();
+        }
+        if (s == null) {
+            Arrays.fill(report.outcomes, CartOutcome.UNKNOWN);
+            return report;
+        }
 
-            System.out.println("❌ " + s.getName() + " dropped " + c.getName());
+        // Claiming in code order means two carts racing for the same last seats
+        // meet at the same course first, and one of them gets all of them
+        int failed = -1;
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
+            for (int i = 0; i < n && failed < 0; i++) {
+                Course c = cart[i];
+                CartOutcome outcome;
+                if (c == null) outcome = CartOutcome.UNKNOWN;
+                else if (s.isRegistered(codes[i])) outcome = CartOutcome.ALREADY_REGISTERED;
+                else if (s.isWaiting(codes[i])) outcome = CartOutcome.WAITLISTED;   // no jumping your own queue
+                else if (!c.hasWaitlist() && c.tryClaimSeat()) outcome = CartOutcome.RESERVED;
+                else outcome = CartOutcome.FULL;
+                report.outcomes[i] = outcome;
+                if (outcome != CartOutcome.RESERVED && outcome != CartOutcome.ALREADY_REGISTERED) failed = i;
+            }
+            if (failed < 0) {
+                String[] reserved = new String[n];
+                int count = 0;
+                for (int i = 0; i < n; i++) {
+                    if (report.outcomes[i] == CartOutcome.RESERVED) {
+                        s.registerCourse(codes[i]);
+                        reserved[count++] = codes[i];
+                    }
+                }
+                int reservedCount = count;
+                if (reservedCount > 0) log(j, journal -> journal.logCart(studentId, reserved, reservedCount));
+                report.committed = true;
+                return report;
+            }
+            for (int i = failed + 1; i < n; i++) report.outcomes[i] = CartOutcome.SKIPPED;
+        } finally {
+            lock.unlock();
+        }
 
-            if (promotedId != null) {
-                Student promoted = students.get(promotedId);
-                promoted.registerCourse(courseCode);
-                System.out.println("✅ " + promoted.getName() + " registered for " + c.getName() + " (promoted from waitlist).");
+        // Outside our stripe: handing a seat on may lock the stripe of whoever gets it
+        for (int i = 0; i < failed; i++) {
+            if (report.outcomes[i] == CartOutcome.RESERVED) {
+                report.outcomes[i] = CartOutcome.ROLLED_BACK;
+                promote(j, cart[i], true, null);
             }
         }
+        return report;
+    }
+
+    public boolean registerCart(String studentId, String... courseCodes) {
+        Student s = getStudent(studentId);
+        if (s == null) return false;
+        CartReport report = tryRegisterCart(studentId, courseCodes);
+        for (int i = 0; i < report.size(); i++) {
+            System.out.println("   " + report.getCode(i) + ": " + report.getOutcome(i));
+        }
+        if (report.isCommitted()) {
+            System.out.println("✅ " + s.getName() + " registered for all " + report.size() + " courses");
+        } else {
+            System.out.println("⚠️ Timetable not registered; " + s.getName() + " keeps the courses they had before.");
+        }
+        return report.isCommitted();
+    }
+
+    // 1 if the student gets the next free seat; 0 if they are not waiting for the course
+    public int getWaitlistPosition(String studentId, String courseCode) {
+        Course c = getCourse(courseCode);
+        return c == null ? 0 : c.getWaitlistPosition(studentId);
+    }
+
+    public boolean register(String studentId, String courseCode) {
+        Result result = tryRegister(studentId, courseCode);
+        if (result == Result.UNKNOWN) return false;
+        Student s = getStudent(studentId);
+        Course c = getCourse(courseCode);
+        switch (result) {
+            case REGISTERED:
+                System.out.println("✅ " + s.getName() + " registered for " + c.getName());
+                return true;
+            case WAITLISTED:
+                System.out.println("⚠️ " + c.getName() + " is full. Added " + s.getName() + " to waitlist.");
+                return false;
+            case ALREADY_REGISTERED:
+                System.out.println("ℹ️ " + s.getName() + " is already registered for " + c.getName());
+                return false;
+            default:
+                System.out.println("ℹ️ " + s.getName() + " is already on the waitlist for " + c.getName());
+                return false;
+        }
+    }
+
+    public void drop(String studentId, String courseCode) {
+        Student s = getStudent(studentId);
+        Course c = getCourse(courseCode);
+        if (s == null || c == null) return;
+
+        MyArray<String> promoted = new MyArray<>();
+        if (!tryDrop(studentId, courseCode, promoted)) {
+            System.out.println("⚠️ " + s.getName() + " is not registered for " + c.getName());
+            return;
+        }
+        System.out.println("❌ " + s.getName() + " dropped " + c.getName());
+        for (int i = 0; i < promoted.size(); i++) {
+            System.out.println("✅ " + getStudent(promoted.get(i)).getName() + " registered for " + c.getName()
+                    + " (promoted from waitlist).");
+        }
     }
 
     public void printStudentCourses(String studentId) {
-        Student s = students.get(studentId);
-        if (s != null) {
+        Student s = getStudent(studentId);
+        if (s == null) return;
+        ReentrantLock lock = stripeFor(studentId);
+        lock.lock();
+        try {
             System.out.println("📘 Courses for " + s.getName() + ":");
             for (String code : s.getRegisteredCourses()) {
                 System.out.println("   - " + code);
             }
+            for (String code : s.getWaitlistedCourses()) {
+                int position = getWaitlistPosition(studentId, code);
+                System.out.println("   - " + code + (position > 0 ? " (waitlisted, #" + position + ")" : " (waitlisted)"));
+            }
+        } finally {
+            lock.unlock();
         }
     }
+
+    /**
+     * Fills seats from the waitlist while both are left. holdingSeat: the
+     * caller freed a seat and hands it over without releasing it, so no
+     * newcomer can take it first. A student who left the waitlist after
+     * being polled is skipped and the seat passed on.
+     */
+    private void promote(RegistrationJournal j, Course c, boolean holdingSeat, MyArray<String> promoted) {
+        boolean seat = holdingSeat;
+        while (true) {
+            if (!seat) {
+                if (!c.hasWaitlist() || !c.tryClaimSeat()) return;
+                seat = true;
+            }
+            String id = c.pollWaitlist();
+            if (id == null) {
+                // Someone may have joined after our poll and failed to claim the seat we held; loop to check
+                c.releaseSeat();
+                seat = false;
+                continue;
+            }
+            Student s = getStudent(id);
+            ReentrantLock lock = stripeFor(id);
+            lock.lock();
+            try {
+                if (s.stopWaiting(c.getCode())) {
+                    s.registerCourse(c.getCode());
+                    log(j, journal -> journal.logPromote(id, c.getCode()));
+                    seat = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!seat && promoted != null) promoted.add(id);
+        }
+    }
+
+    // Returns the journal to log to, or null; a non-null journal must be passed to endChange()
+    private RegistrationJournal beginChange() {
+        if (journal == null) return null;
+        snapshotLock.readLock().lock();
+        RegistrationJournal j = journal;
+        if (j == null) snapshotLock.readLock().unlock();   // closed meanwhile
+        return j;
+    }
+
+    private void endChange(RegistrationJournal j) {
+        if (j == null) return;
+        snapshotLock.readLock().unlock();
+        if (j.isSnapshotDue()) {
+            try {
+                writeSnapshot(true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write registration snapshot", e);
+            }
+        }
+    }
+
+    private void writeSnapshot(boolean onlyIfDue) throws IOException {
+        snapshotLock.writeLock().lock();
+        directoryLock.writeLock().lock();
+        try {
+            RegistrationJournal j = journal;
+            // Whoever got here first already wrote it
+            if (j == null || (onlyIfDue && !j.isSnapshotDue())) return;
+            j.writeSnapshot(courses.values(), students.values());
+        } finally {
+            directoryLock.writeLock().unlock();
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    private interface JournalWrite {
+        void write(RegistrationJournal journal) throws IOException;
+    }
+
+    private static void log(RegistrationJournal j, JournalWrite write) {
+        if (j == null) return;
+        try {
+            write.write(j);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal registration change", e);
+        }
+    }
+
+    private static String[] distinctSorted(String[] codes) {
+        String[] sorted = codes.clone();
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (n == 0 || !sorted[i].equals(sorted[n - 1])) sorted[n++] = sorted[i];
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+
+    private ReentrantLock stripeFor(String studentId) {
+        return stripes[(studentId.hashCode() * 0x9E3779B9) >>> (32 - STRIPE_BITS)];
+    }
 }
@@ -0,0 +1,37 @@
+package com.greenwich.university.appService;
+
+import com.greenwich.university.domain.PrintJob;
+
+/**
+ * How one submission was admitted (or why not), with what the caller needs
+ * to react: the jobs dropped to make room, and when to try again.
+ */
+public class Admission {
+    public enum Outcome { ACCEPTED, ACCEPTED_AFTER_GROWTH, ACCEPTED_AFTER_WAIT, ACCEPTED_BY_SHEDDING, REJECTED }
+
+    private final PrintJob job;
+    private final Outcome outcome;
+    private final PrintJob[] shedJobs;
+    private final long waitedNanos;
+    private final long retryAfterMillis;
+
+    Admission(PrintJob job, Outcome outcome, PrintJob[] shedJobs, long waitedNanos, long retryAfterMillis) {
+        this.job = job;
+        this.outcome = outcome;
+        this.shedJobs = shedJobs;
+        this.waitedNanos = waitedNanos;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public PrintJob getJob() { return job; }
+    public Outcome getOutcome() { return outcome; }
+    public boolean isAccepted() { return outcome != Outcome.REJECTED; }
+
+    // Lower-priority jobs removed from the queue to admit this one; their owners should be told
+    public PrintJob[] getShedJobs() { return shedJobs; }
+
+    public long getWaitedNanos() { return waitedNanos; }
+
+    // Suggested delay before resubmitting a rejected job, from the recent service rate; 0 when accepted
+    public long getRetryAfterMillis() { return retryAfterMillis; }
+}
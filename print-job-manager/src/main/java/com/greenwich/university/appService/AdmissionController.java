@@ -0,0 +1,146 @@
+package com.greenwich.university.appService;
+
+import com.greenwich.university.domain.PrintJob;
+import com.greenwich.university.repository.PrintJobQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Applies an AdmissionPolicy in front of a PrintJobQueue and keeps the
+ * occupancy gauges. A job that fits goes straight in; the policy steps only
+ * run once the queue is full, so the common path costs one enqueue.
+ * A grown queue falls back to its base capacity once it has drained.
+ */
+public class AdmissionController {
+    private static final long MIN_RETRY_MILLIS = 100;
+    private static final long MAX_RETRY_MILLIS = 60_000;
+    private static final long UNKNOWN_RETRY_MILLIS = 5_000;
+
+    private final PrintJobQueue queue;
+    private final AdmissionPolicy policy;
+    private final int baseCapacity;
+    private final int maxCapacity;
+    private final Object shedLock = new Object();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder admittedAfterGrowth = new LongAdder();
+    private final LongAdder admittedAfterWait = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    public AdmissionController(PrintJobQueue queue, AdmissionPolicy policy) {
+        this.queue = queue;
+        this.policy = policy;
+        this.baseCapacity = queue.getCapacity();
+        this.maxCapacity = policy.maxCapacity(baseCapacity);
+    }
+
+    public Admission admit(PrintJob job) throws InterruptedException {
+        shrinkIfDrained();
+        if (queue.enqueue(job)) return accepted(job, Admission.Outcome.ACCEPTED, 0);
+
+        if (grow() && queue.enqueue(job)) {
+            admittedAfterGrowth.increment();
+            return accepted(job, Admission.Outcome.ACCEPTED_AFTER_GROWTH, 0);
+        }
+
+        long waitNanos = policy.getMaxWait().toNanos();
+        if (waitNanos > 0) {
+            long start = System.nanoTime();
+            if (queue.offer(job, waitNanos, TimeUnit.NANOSECONDS)) {
+                admittedAfterWait.increment();
+                return accepted(job, Admission.Outcome.ACCEPTED_AFTER_WAIT, System.nanoTime() - start);
+            }
+        }
+
+        List<PrintJob> dropped = new ArrayList<>();
+        if (policy.isShedLowerPriority() && shedFor(job, dropped)) {
+            admitted.increment();
+            updateHighWaterMark();
+            return new Admission(job, Admission.Outcome.ACCEPTED_BY_SHEDDING, dropped.toArray(new PrintJob[0]), 0, 0);
+        }
+
+        rejected.increment();
+        return new Admission(job, Admission.Outcome.REJECTED, dropped.toArray(new PrintJob[0]), 0, retryAfterMillis());
+    }
+
+    // Jobs the caller enqueued in bulk while there was room count as admitted too
+    void recordAdmitted(int count) {
+        admitted.add(count);
+        updateHighWaterMark();
+    }
+
+    private Admission accepted(PrintJob job, Admission.Outcome outcome, long waitedNanos) {
+        admitted.increment();
+        updateHighWaterMark();
+        return new Admission(job, outcome, new PrintJob[0], waitedNanos, 0);
+    }
+
+    // Doubles the capacity, up to what the memory budget allows; false when already at the limit
+    private synchronized boolean grow() {
+        int current = queue.getCapacity();
+        if (!queue.isFull()) return true;   // someone else grew it, or a printer took a job
+        if (current >= maxCapacity) return false;
+        queue.setCapacity((int) Math.min((long) current * 2, maxCapacity));
+        return true;
+    }
+
+    private void shrinkIfDrained() {
+        if (queue.getCapacity() > baseCapacity && queue.getSize() <= baseCapacity / 2) {
+            synchronized (this) {
+                if (queue.getSize() <= baseCapacity / 2) queue.setCapacity(baseCapacity);
+            }
+        }
+    }
+
+    /**
+     * Drops the newest job of the lowest priority present, as long as that is
+     * lower than the new job's, until the new job fits. Dropped jobs are added
+     * to dropped even if another submitter took the room first.
+     */
+    private boolean shedFor(PrintJob job, List<PrintJob> dropped) {
+        synchronized (shedLock) {
+            try {
+                while (!queue.enqueue(job)) {
+                    PrintJob victim = queue.peekLowest();
+                    if (victim == null || victim.getPriorityLevel() <= job.getPriorityLevel()) return false;
+                    // Null when a printer took it first; then just look again
+                    if (queue.cancel(victim.getJobId()) != null) dropped.add(victim);
+                }
+                return true;
+            } finally {
+                shed.add(dropped.size());
+            }
+        }
+    }
+
+    // Time for one slot to free up at the rate jobs were served over the stats window
+    private long retryAfterMillis() {
+        int served = queue.getStatistics().getWindowServedCount();
+        if (served == 0) return UNKNOWN_RETRY_MILLIS;
+        long millis = queue.getStatistics().getWindowMillis() / served;
+        return Math.max(MIN_RETRY_MILLIS, Math.min(MAX_RETRY_MILLIS, millis));
+    }
+
+    private void updateHighWaterMark() {
+        highWaterMark.accumulateAndGet(queue.getSize(), Math::max);
+    }
+
+    // Gauges
+    public AdmissionPolicy getPolicy() { return policy; }
+    public int getBaseCapacity() { return baseCapacity; }
+    public int getMaxCapacity() { return maxCapacity; }
+    public int getCapacity() { return queue.getCapacity(); }
+    public double getOccupancyPercentage() { return queue.getCapacityPercentage(); }
+    public int getHighWaterMark() { return highWaterMark.get(); }
+    public int getWaitingSubmitters() { return queue.getWaitingSubmitters(); }
+    public long getAdmittedCount() { return admitted.sum(); }
+    public long getAdmittedAfterGrowthCount() { return admittedAfterGrowth.sum(); }
+    public long getAdmittedAfterWaitCount() { return admittedAfterWait.sum(); }
+    public long getShedCount() { return shed.sum(); }
+    public long getRejectedCount() { return rejected.sum(); }
+}
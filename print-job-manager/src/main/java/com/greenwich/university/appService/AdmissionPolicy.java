@@ -0,0 +1,43 @@
+package com.greenwich.university.appService;
+
+import java.time.Duration;
+
+/**
+ * What happens to a job that finds the queue full. The steps run in order
+ * and each one is optional: grow the queue within a memory budget, wait for
+ * a printer to free a slot, then drop a lower-priority job to make room.
+ * A job still not admitted is rejected with a hint of when to retry.
+ */
+public class AdmissionPolicy {
+    // Rough heap cost of one pending job (job, file name, store slot, index entries)
+    public static final int BYTES_PER_PENDING_JOB = 1024;
+
+    // The old behaviour: reject as soon as the queue is full
+    public static final AdmissionPolicy REJECT = new AdmissionPolicy(0, Duration.ZERO, false);
+
+    private final long memoryBudgetBytes;
+    private final Duration maxWait;
+    private final boolean shedLowerPriority;
+
+    /**
+     * @param memoryBudgetBytes heap the queue may grow into beyond its base capacity; 0 never grows
+     * @param maxWait           how long a submitter may block for room; zero never blocks
+     * @param shedLowerPriority drop the newest job of a lower priority when nothing else helped
+     */
+    public AdmissionPolicy(long memoryBudgetBytes, Duration maxWait, boolean shedLowerPriority) {
+        if (memoryBudgetBytes < 0 || maxWait.isNegative()) throw new IllegalArgumentException("Budget and wait must be >= 0");
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.maxWait = maxWait;
+        this.shedLowerPriority = shedLowerPriority;
+    }
+
+    public long getMemoryBudgetBytes() { return memoryBudgetBytes; }
+    public Duration getMaxWait() { return maxWait; }
+    public boolean isShedLowerPriority() { return shedLowerPriority; }
+
+    // Largest capacity the budget allows on top of the base capacity
+    int maxCapacity(int baseCapacity) {
+        long extra = memoryBudgetBytes / BYTES_PER_PENDING_JOB;
+        return (int) Math.min(Integer.MAX_VALUE, baseCapacity + extra);
+    }
+}
@@ -0,0 +1,31 @@
+package com.greenwich.university.appService;
+
+/**
+ * Per-item outcome of a batch submission, kept as two flat arrays instead of
+ * one message string per file.
+ */
+public class BatchResult {
+    public static final byte ACCEPTED = 0;
+    public static final byte REJECTED_FULL = 1;
+    public static final byte REJECTED_INVALID = 2;
+
+    private final byte[] status;
+    private final int[] jobIds;
+    private final int acceptedCount;
+
+    BatchResult(byte[] status, int[] jobIds, int acceptedCount) {
+        this.status = status;
+        this.jobIds = jobIds;
+        this.acceptedCount = acceptedCount;
+    }
+
+    public int size() { return status.length; }
+    public byte getStatus(int index) { return status[index]; }
+    public boolean isAccepted(int index) { return status[index] == ACCEPTED; }
+
+    // Job id of an accepted item, 0 when it was rejected
+    public int getJobId(int index) { return jobIds[index]; }
+
+    public int getAcceptedCount() { return acceptedCount; }
+    public int getRejectedCount() { return status.length - acceptedCount; }
+}
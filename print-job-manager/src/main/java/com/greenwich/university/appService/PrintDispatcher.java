@@ -0,0 +1,243 @@
+package com.greenwich.university.appService;
+
+import com.greenwich.university.domain.PrintJob;
+import com.greenwich.university.domain.Printer;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drains one PrintJobService with a fleet of printers, one worker thread each.
+ * A worker first prints from its own backlog, refills it from the shared queue,
+ * and when the shared queue is empty steals the next job of the busiest printer.
+ * A job's spooled document, if any, is streamed to the printer's output first.
+ * When a printer cannot take a document, the job stays with that printer and
+ * is retried with a growing pause, resuming after the bytes that already got
+ * through; after a few failed attempts it goes to another printer instead.
+ */
+public class PrintDispatcher {
+    public enum State { STOPPED, RUNNING, DRAINING }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long MAX_RETRY_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int ATTEMPTS_BEFORE_HANDOFF = 5;
+
+    private final PrintJobService service;
+    private final Worker[] workers;
+    private final int prefetch;
+    private final double speedFactor;
+    private ExecutorService pool;
+    private volatile State state = State.STOPPED;
+    private long startedAt;
+    private long stoppedAt;
+
+    /**
+     * @param prefetch    jobs a printer moves from the shared queue into its backlog at once
+     * @param speedFactor 1.0 prints in real time, 60.0 prints one minute of work per second
+     */
+    public PrintDispatcher(PrintJobService service, Printer[] printers, int prefetch, double speedFactor) {
+        if (!service.isConcurrent()) throw new IllegalArgumentException("Printers need a service with a concurrent queue");
+        if (printers.length == 0) throw new IllegalArgumentException("At least one printer is required");
+        if (prefetch <= 0) throw new IllegalArgumentException("prefetch must be > 0");
+        if (speedFactor <= 0) throw new IllegalArgumentException("speedFactor must be > 0");
+        this.service = service;
+        this.prefetch = prefetch;
+        this.speedFactor = speedFactor;
+        this.workers = new Worker[printers.length];
+        for (int i = 0; i < printers.length; i++) {
+            workers[i] = new Worker(printers[i]);
+        }
+    }
+
+    public synchronized void start() {
+        if (state != State.STOPPED) return;
+        state = State.RUNNING;
+        startedAt = System.nanoTime();
+        stoppedAt = 0;
+        pool = Executors.newFixedThreadPool(workers.length, r -> {
+            Thread t = new Thread(r, "printer-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        for (Worker w : workers) pool.execute(w);
+    }
+
+    // Stop now: printers take no new job, and backlogs wait for the next start(). A job whose
+    // document a printer already has is left to that printer rather than sent again.
+    public synchronized void stop() throws InterruptedException {
+        if (state == State.STOPPED) return;
+        state = State.STOPPED;
+        pool.shutdownNow();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        stoppedAt = System.nanoTime();
+    }
+
+    // Let the printers finish every queued and backlogged job, then stop
+    public synchronized boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        if (state == State.STOPPED) return getBacklogSize() == 0 && service.isEmpty();
+        state = State.DRAINING;
+        pool.shutdown();
+        boolean finished = pool.awaitTermination(timeout, unit);
+        if (!finished) {
+            pool.shutdownNow();
+            // Workers only stop at a job boundary or a pause, so this is short
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        state = State.STOPPED;
+        stoppedAt = System.nanoTime();
+        return finished;
+    }
+
+    public State getState() { return state; }
+
+    public Printer[] getPrinters() {
+        Printer[] result = new Printer[workers.length];
+        for (int i = 0; i < workers.length; i++) result[i] = workers[i].printer;
+        return result;
+    }
+
+    // Jobs printers have taken and not printed yet, including any a printer is retrying
+    public int getBacklogSize() {
+        int total = 0;
+        for (Worker w : workers) total += w.backlog.size() + (w.retrying != null ? 1 : 0);
+        return total;
+    }
+
+    // Pages per minute actually printed by the whole fleet during the last run
+    public double getFleetPagesPerMinute() {
+        if (startedAt == 0) return 0;
+        long pages = 0;
+        for (Worker w : workers) pages += w.printer.getPagesPrinted();
+        long end = stoppedAt != 0 ? stoppedAt : System.nanoTime();
+        double minutes = (end - startedAt) * speedFactor / 60_000_000_000.0;
+        return minutes > 0 ? pages / minutes : 0;
+    }
+
+    private PrintJob nextJobFor(Worker self) {
+        PrintJob job = self.backlog.pollFirst();
+        if (job != null) return job;
+
+        // Refill own backlog from the shared queue
+        job = service.takeNextJob();
+        if (job != null) {
+            for (int i = 1; i < prefetch; i++) {
+                PrintJob extra = service.takeNextJob();
+                if (extra == null) break;
+                self.backlog.addLast(extra);
+            }
+            return job;
+        }
+
+        // Shared queue is empty: steal from the printer with the longest backlog
+        Worker victim = null;
+        int longest = 0;
+        for (Worker w : workers) {
+            int n = w.backlog.size();
+            if (w != self && n > longest) {
+                victim = w;
+                longest = n;
+            }
+        }
+        if (victim == null) return null;
+        job = victim.backlog.pollFirst();
+        if (job != null) self.printer.recordStolen();
+        return job;
+    }
+
+    private boolean isIdle() {
+        return getBacklogSize() == 0 && service.isEmpty();
+    }
+
+    private class Worker implements Runnable {
+        final Printer printer;
+        final ConcurrentLinkedDeque<PrintJob> backlog = new ConcurrentLinkedDeque<>();
+
+        // A job this printer failed to receive; kept out of the backlog, where
+        // another printer could steal it, since this one may hold part of it
+        private volatile PrintJob retrying;
+        private long received;       // bytes of its document that got through
+        private int attempts;        // failed attempts at it
+        private int failureStreak;   // failed deliveries since this printer last took a job
+
+        Worker(Printer printer) { this.printer = printer; }
+
+        @Override
+        public void run() {
+            while (state != State.STOPPED && !Thread.currentThread().isInterrupted()) {
+                PrintJob job = retrying != null ? retrying : nextJobFor(this);
+                if (job == null) {
+                    if (state == State.DRAINING && isIdle()) return;
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                if (!deliver(job)) continue;
+                long nanos = printer.printTimeNanos(job.getPages());
+                try {
+                    TimeUnit.NANOSECONDS.sleep((long) (nanos / speedFactor));
+                } catch (InterruptedException e) {
+                    // Stopped mid-job. The job was dequeued and counted as served, and the printer has
+                    // its whole document and finishes it by itself; putting it back would print it twice.
+                    // Its service time is unknown, so it stays out of the queue's histograms.
+                    printer.recordPrinted(job, nanos);
+                    return;
+                }
+                printer.recordPrinted(job, nanos);
+                service.recordPrinted(job);
+            }
+        }
+
+        // Sends the job's document (or the rest of it) and frees the spooled copy; false if the printer could not take it
+        private boolean deliver(PrintJob job) {
+            try {
+                service.send(job, received, printer.getOutput(), bytes -> {
+                    received += bytes;
+                    printer.recordSent(bytes);
+                });
+            } catch (IOException e) {
+                deliveryFailed(job, e);
+                return false;
+            }
+            retrying = null;
+            received = 0;
+            attempts = 0;
+            failureStreak = 0;
+            try {
+                service.freeDocument(job);
+            } catch (IOException e) {
+                // The printer has the document, so it is not sent again; the copy is dropped on the next restart
+                System.err.println("⚠️ Job " + job.getJobId() + " went to " + printer.getName()
+                        + ", but its spooled document could not be freed: " + e.getMessage());
+            }
+            return true;
+        }
+
+        private void deliveryFailed(PrintJob job, IOException e) {
+            // One line per outage rather than per attempt
+            if (failureStreak++ == 0) {
+                System.err.println("❌ " + printer.getName() + " could not receive job " + job.getJobId() + ": "
+                        + e.getMessage() + "; retrying with backoff");
+            }
+            retrying = job;
+            if (++attempts >= ATTEMPTS_BEFORE_HANDOFF && handOff(job)) {
+                retrying = null;
+                received = 0;
+                attempts = 0;
+            }
+            LockSupport.parkNanos(Math.min(IDLE_PARK_NANOS << Math.min(failureStreak - 1, 20), MAX_RETRY_PAUSE_NANOS));
+        }
+
+        // Gives the job, to be sent from its first byte, to the other printer with the shortest backlog
+        private boolean handOff(PrintJob job) {
+            Worker target = null;
+            for (Worker w : workers) {
+                if (w != this && (target == null || w.backlog.size() < target.backlog.size())) target = w;
+            }
+            if (target == null) return false;
+            target.backlog.addFirst(job);
+            return true;
+        }
+    }
+}
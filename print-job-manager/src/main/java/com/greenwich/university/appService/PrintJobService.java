@@ -1,38 +1,254 @@
 package com.greenwich.university.appService;
 
+import com.greenwich.university.domain.JobRequest;
 import com.greenwich.university.domain.PrintJob;
+import com.greenwich.university.repository.FileNameIndex;
+import com.greenwich.university.repository.LatencyHistogram;
 import com.greenwich.university.repository.PrintJobQueue;
+import com.greenwich.university.repository.SearchPage;
+import com.greenwich.university.repository.SpoolStore;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.LongConsumer;
 
 public class PrintJobService {
+    // Submitters wait a little for the printers before being told to come back later
+    public static final AdmissionPolicy DEFAULT_ADMISSION = new AdmissionPolicy(0, Duration.ofSeconds(2), false);
+
     private PrintJobQueue queue;
+    private AdmissionController admission;
 
     public PrintJobService() {
-        this.queue = new PrintJobQueue(5);
+        // Concurrent mode: console, printer workers and other submitters share the queue
+        this(new PrintJobQueue(5, true));
+    }
+
+    public PrintJobService(PrintJobQueue queue) {
+        this(queue, DEFAULT_ADMISSION);
+    }
+
+    public PrintJobService(PrintJobQueue queue, AdmissionPolicy admissionPolicy) {
+        this.queue = queue;
+        this.admission = new AdmissionController(queue, admissionPolicy);
+    }
+
+    public boolean isConcurrent() { return queue.isConcurrent(); }
+    public boolean isSpoolEnabled() { return queue.getSpool() != null; }
+    public String getPolicyName() { return queue.getPolicy().getName(); }
+
+    // Flushes the queue journal (if one is attached) before the app exits
+    public void shutdown() throws IOException {
+        queue.closeJournal();
+        SpoolStore spool = queue.getSpool();
+        if (spool != null) spool.close();
     }
 
     public String submitJob(String fileName, int pages, String priority) {
-        if (queue.isFull()) return "❌ Queue is full";
+        return submitJob(fileName, pages, priority, null);
+    }
 
-        PrintJob job = new PrintJob(fileName, pages, priority);
-        return queue.enqueue(job) ? "✅ Job submitted: " + job.toString() : "❌ Failed to submit";
+    // timeToLive: how long the job is worth printing, or null to keep it until printed
+    public String submitJob(String fileName, int pages, String priority, Duration timeToLive) {
+        return submitJob(fileName, pages, priority, PrintJob.DEFAULT_OWNER, timeToLive);
     }
 
-    public String serveNextJob() {
-        if (queue.isEmpty()) return "❌ No jobs to serve";
-        return "✅ Served: " + queue.dequeue().toString();
+    // owner: who the job is printed for; the fair-share policy splits the printer between owners
+    public String submitJob(String fileName, int pages, String priority, String owner, Duration timeToLive) {
+        return submit(newJob(fileName, pages, priority, owner, timeToLive));
     }
 
-    public PrintJob getNextJob() { return queue.peek(); }
-    public PrintJob[] getAllJobs() {
-        PrintJob[] result = new PrintJob[queue.getSize()];
-        // Simple copy without exposing internal array
-        for (int i = 0; i < queue.getSize(); i++) {
-            result[i] = queue.jobs[i]; // Direct access for simplicity
+    /**
+     * Submits a document to be printed: its bytes are spooled before the job
+     * is queued, so a printer never takes a job whose payload is missing.
+     * Needs a spool attached to the queue.
+     */
+    public String submitDocument(Path document, int pages, String priority, String owner, Duration timeToLive) {
+        SpoolStore spool = queue.getSpool();
+        if (spool == null) return "❌ Document printing is not enabled (no spool)";
+        PrintJob job = newJob(document.getFileName().toString(), pages, priority, owner, timeToLive);
+        try {
+            spool.spool(job.getJobId(), document);
+        } catch (IOException e) {
+            return "❌ Could not spool " + document + ": " + e.getMessage();
+        }
+        return submit(job);
+    }
+
+    private PrintJob newJob(String fileName, int pages, String priority, String owner, Duration timeToLive) {
+        LocalDateTime now = LocalDateTime.now(queue.getClock());
+        return new PrintJob(fileName, pages, priority, owner, now, timeToLive == null ? null : now.plus(timeToLive));
+    }
+
+    private String submit(PrintJob job) {
+        Admission result;
+        try {
+            result = admit(job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releasePayload(job);
+            return "❌ Interrupted while waiting for room in the queue";
+        }
+        StringBuilder message = new StringBuilder();
+        switch (result.getOutcome()) {
+            case REJECTED:
+                releasePayload(job);
+                message.append(String.format("❌ Queue is full, please try again in %.1f s",
+                        result.getRetryAfterMillis() / 1000.0));
+                break;
+            case ACCEPTED_AFTER_WAIT:
+                message.append(String.format("✅ Job submitted after waiting %.1f s: %s",
+                        result.getWaitedNanos() / 1e9, result.getJob()));
+                break;
+            case ACCEPTED_AFTER_GROWTH:
+                message.append("✅ Job submitted (queue grown to ").append(queue.getCapacity())
+                        .append("): ").append(result.getJob());
+                break;
+            default:
+                message.append("✅ Job submitted: ").append(result.getJob());
+        }
+        for (PrintJob dropped : result.getShedJobs()) {
+            message.append("\n⚠️ Dropped to make room: ").append(dropped);
+        }
+        return message.toString();
+    }
+
+    /**
+     * Hands a dequeued job's document to its printer and then frees the
+     * spooled copy. The bytes go spool file to printer channel with
+     * transferTo. Returns the bytes sent: 0 when the job has no document,
+     * or when output is null, in which case the payload is just freed.
+     * On failure the payload stays spooled so the job can be retried.
+     */
+    public long deliver(PrintJob job, WritableByteChannel output) throws IOException {
+        long sent = send(job, 0, output, bytes -> { });
+        freeDocument(job);
+        return sent;
+    }
+
+    /**
+     * The sending half of deliver(): streams the job's document from offset
+     * on (what an earlier attempt already got across) and keeps the spooled
+     * copy. progress hears every chunk that got through, even when the
+     * printer fails partway. Returns the bytes sent by this call.
+     */
+    public long send(PrintJob job, long offset, WritableByteChannel output, LongConsumer progress) throws IOException {
+        SpoolStore spool = queue.getSpool();
+        if (spool == null || output == null) return 0;
+        return Math.max(0, spool.transferTo(job.getJobId(), offset, output, progress));
+    }
+
+    // The freeing half of deliver(), once the printer has the whole document
+    public void freeDocument(PrintJob job) throws IOException {
+        SpoolStore spool = queue.getSpool();
+        if (spool != null) spool.remove(job.getJobId());
+    }
+
+    private void releasePayload(PrintJob job) {
+        SpoolStore spool = queue.getSpool();
+        if (spool == null) return;
+        try {
+            spool.remove(job.getJobId());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not free spooled payload of job " + job.getJobId(), e);
         }
-        return result;
     }
+
+    // Submits through the admission policy; may block up to the policy's wait
+    public Admission admit(PrintJob job) throws InterruptedException { return admission.admit(job); }
+
+    public AdmissionController getAdmission() { return admission; }
+
+    /**
+     * Submits many files in one call. Valid requests are enqueued together, in
+     * order, until the queue is full; the rest then go through the admission
+     * policy one by one until the first is turned away. The result says per
+     * item what happened.
+     */
+    public BatchResult submitBatch(JobRequest[] requests) {
+        byte[] status = new byte[requests.length];
+        int[] jobIds = new int[requests.length];
+        PrintJob[] jobs = new PrintJob[requests.length];
+        int[] positions = new int[requests.length];
+        LocalDateTime now = LocalDateTime.now(queue.getClock());
+        int valid = 0;
+        for (int i = 0; i < requests.length; i++) {
+            JobRequest r = requests[i];
+            if (!r.isValid()) {
+                status[i] = BatchResult.REJECTED_INVALID;
+                continue;
+            }
+            jobs[valid] = new PrintJob(r.getFileName(), r.getPages(), r.getPriority(), r.getOwner(), now, null);
+            positions[valid++] = i;
+        }
+
+        int accepted = Math.max(0, queue.enqueueAll(jobs, valid));
+        admission.recordAdmitted(accepted);
+        try {
+            while (accepted < valid && admission.admit(jobs[accepted]).isAccepted()) accepted++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (int k = 0; k < valid; k++) {
+            int i = positions[k];
+            if (k < accepted) {
+                status[i] = BatchResult.ACCEPTED;
+                jobIds[i] = jobs[k].getJobId();
+            } else {
+                status[i] = BatchResult.REJECTED_FULL;
+            }
+        }
+        return new BatchResult(status, jobIds, accepted);
+    }
+
+    public String serveNextJob() {
+        // A printer worker may take the last job between a check and the dequeue
+        PrintJob job = queue.dequeue();
+        if (job == null) return "❌ No jobs to serve";
+        try {
+            deliver(job, null);   // served by hand: no device to stream to, just free the spool
+        } catch (IOException e) {
+            return "⚠️ Served " + job + ", but its spooled document could not be freed: " + e.getMessage();
+        }
+        return "✅ Served: " + job.toString();
+    }
+
+    public PrintJob findJob(int jobId) { return queue.lookup(jobId); }
+
+    public String cancelJob(int jobId) {
+        PrintJob job = queue.cancel(jobId);
+        if (job == null) return "❌ Job " + jobId + " is not in the queue";
+        return "✅ Cancelled: " + job.toString();
+    }
+
+    public String changeJobPriority(int jobId, String priority) {
+        if (!PrintJob.isValidPriority(priority)) return "❌ Invalid priority";
+        PrintJob job = queue.changePriority(jobId, priority);
+        if (job == null) return "❌ Job " + jobId + " is not in the queue";
+        return "✅ Updated: " + job.toString();
+    }
+
+    // Used by printer workers: dequeue without formatting, null when the queue is empty
+    public PrintJob takeNextJob() { return queue.dequeue(); }
+
+    // Used by printer workers once the last page of a job taken with takeNextJob() is out
+    public void recordPrinted(PrintJob job) { queue.recordPrinted(job); }
+
+    // Drops (or demotes) jobs past their deadline; returns how many
+    public int expireOverdueJobs() { return queue.expireOverdue(); }
+
+    public PrintJob getNextJob() { return queue.peek(); }
+    public PrintJob[] getAllJobs() { return queue.toArray(); }
     public PrintJob[] searchByFileName(String fileName) { return queue.searchByFileName(fileName); }
+    // Searches queued and already printed jobs; page is 0-based
+    public SearchPage searchAllByFileName(String term, int page, int pageSize) {
+        return queue.searchByFileName(term, false, FileNameIndex.Scope.ALL, page * pageSize, pageSize);
+    }
     public boolean isEmpty() { return queue.isEmpty(); }
+    public int getQueueSize() { return queue.getSize(); }
 
 
     public String getBasicStats()
@@ -43,8 +259,21 @@ public class PrintJobService {
     { return queue.getPriorityDistribution(); }
     public double getAverageWaitingTime()
     { return queue.getAverageWaitingTime(); }
+    public double getEwmaWaitingTime()
+    { return queue.getEwmaWaitingTime(); }
     public int getTodayServedCount()
     { return queue.getTodayServedCount(); }
+    public long getExpiredCount()
+    { return queue.getStatistics().getExpiredCount(); }
+    public long getExpiredPages()
+    { return queue.getStatistics().getExpiredPages(); }
     public int getHealthScore()
     { return queue.getHealthScore(); }
+    // Over the health window, per level (0 = HIGH, 1 = NORMAL, 2 = LOW)
+    public LatencyHistogram getWaitHistogram(int level)
+    { return queue.getStatistics().getWindowWaitHistogram(level); }
+    public LatencyHistogram getServiceHistogram(int level)
+    { return queue.getStatistics().getWindowServiceHistogram(level); }
+    public long getStatsWindowMinutes()
+    { return queue.getStatistics().getWindowMillis() / 60_000; }
 }
\ No newline at end of file
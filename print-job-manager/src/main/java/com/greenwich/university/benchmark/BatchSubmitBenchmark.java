@@ -0,0 +1,83 @@
+package com.greenwich.university.benchmark;
+
+import com.greenwich.university.appService.BatchResult;
+import com.greenwich.university.appService.PrintJobService;
+import com.greenwich.university.domain.JobRequest;
+import com.greenwich.university.repository.PrintJobQueue;
+import java.util.Arrays;
+
+/**
+ * Compares submitting a folder of handouts one job at a time with submitBatch.
+ * Single and batch runs take turns, each going first in every other round,
+ * and the medians are compared, since single runs vary by tens of percent here.
+ * Usage: BatchSubmitBenchmark [batchSize] [folders] (default 500 jobs, 2,000 folders per run)
+ */
+public class BatchSubmitBenchmark {
+    private static final String[] PRIORITIES = {"HIGH", "NORMAL", "LOW"};
+    private static final int WARMUP_RUNS = 2;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int batchSize = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        JobRequest[] folder = new JobRequest[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            folder[i] = new JobRequest("week" + (i % 12) + "-handout-" + i + ".pdf", 1 + i % 30, PRIORITIES[i % 3]);
+        }
+
+        // Warm up the JIT on both paths before timing anything
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            runSingle(folder, rounds / 4);
+            runBatch(folder, rounds / 4);
+        }
+
+        double[] single = new double[ROUNDS];
+        double[] batch = new double[ROUNDS];
+        for (int r = 0; r < ROUNDS; r++) {
+            if (r % 2 == 0) {
+                single[r] = runSingle(folder, rounds) / 1_000.0 / rounds;
+                batch[r] = runBatch(folder, rounds) / 1_000.0 / rounds;
+            } else {
+                batch[r] = runBatch(folder, rounds) / 1_000.0 / rounds;
+                single[r] = runSingle(folder, rounds) / 1_000.0 / rounds;
+            }
+        }
+        double s = median(single);
+        double b = median(batch);
+        System.out.printf("%d x %d single submits: %,8.1f us per folder (median of %d)%n", rounds, batchSize, s, ROUNDS);
+        System.out.printf("%d x batch of %d      : %,8.1f us per folder (median of %d)%n", rounds, batchSize, b, ROUNDS);
+        System.out.printf("Speed-up: %.1fx%n", s / b);
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long runSingle(JobRequest[] folder, int rounds) {
+        long total = 0;
+        for (int r = 0; r < rounds; r++) {
+            PrintJobService service = new PrintJobService(new PrintJobQueue(folder.length, true));
+            long start = System.nanoTime();
+            for (JobRequest job : folder) {
+                service.submitJob(job.getFileName(), job.getPages(), job.getPriority());
+            }
+            total += System.nanoTime() - start;
+        }
+        return total;
+    }
+
+    private static long runBatch(JobRequest[] folder, int rounds) {
+        long total = 0;
+        for (int r = 0; r < rounds; r++) {
+            PrintJobService service = new PrintJobService(new PrintJobQueue(folder.length, true));
+            long start = System.nanoTime();
+            BatchResult result = service.submitBatch(folder);
+            total += System.nanoTime() - start;
+            if (result.getAcceptedCount() != folder.length) throw new IllegalStateException("Batch was not fully accepted");
+        }
+        return total;
+    }
+}
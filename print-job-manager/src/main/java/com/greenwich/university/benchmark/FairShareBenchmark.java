@@ -0,0 +1,89 @@
+package com.greenwich.university.benchmark;
+
+import com.greenwich.university.domain.PrintJob;
+import com.greenwich.university.repository.FairSharePolicy;
+import com.greenwich.university.repository.PrintJobQueue;
+import com.greenwich.university.repository.PriorityFifoPolicy;
+import com.greenwich.university.repository.SchedulingPolicy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Exam-week load in simulated time: many students print a few pages now and
+ * then while a handful of heavy users submit big jobs non-stop, more than the
+ * printer can keep up with. Reports the wait of the typical students' jobs
+ * under plain priority FIFO and under fair share by owner.
+ * Usage: FairShareBenchmark [minutes] [pagesPerMinute]
+ */
+public class FairShareBenchmark {
+    private static final int STUDENTS = 60;
+    private static final double STUDENT_SUBMIT_CHANCE = 0.3;   // per student per minute, 1-5 pages
+    private static final int HEAVY_JOBS_PER_MINUTE = 2;        // per heavy user, 30 pages each
+    private static final int HEAVY_JOB_PAGES = 30;
+
+    public static void main(String[] args) {
+        int minutes = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+        int pagesPerMinute = args.length > 1 ? Integer.parseInt(args[1]) : 120;
+
+        System.out.printf("%d students, %d minutes of arrivals, printer at %d pages/min%n",
+                STUDENTS, minutes, pagesPerMinute);
+        System.out.printf("%-12s %-8s %14s %14s %14s%n", "heavy users", "policy", "student p50", "student p95", "heavy p95");
+        for (int heavy : new int[]{0, 3, 6}) {
+            run("FIFO", new PriorityFifoPolicy(), heavy, minutes, pagesPerMinute);
+            run("owner", new FairSharePolicy(), heavy, minutes, pagesPerMinute);
+        }
+    }
+
+    private static void run(String label, SchedulingPolicy policy, int heavyUsers, int minutes, int pagesPerMinute) {
+        Random random = new Random(42);
+        PrintJobQueue queue = new PrintJobQueue(1_000_000, false, 1_000, null, policy);
+        Map<Integer, Double> arrivals = new HashMap<>();
+        List<Double> studentWaits = new ArrayList<>();
+        List<Double> heavyWaits = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        double printerFree = 0;   // simulated minute the printer finishes its current job
+
+        for (int minute = 0; minute < minutes || !queue.isEmpty(); minute++) {
+            if (minute < minutes) {
+                for (int h = 0; h < heavyUsers; h++) {
+                    for (int j = 0; j < HEAVY_JOBS_PER_MINUTE; j++) {
+                        submit(queue, arrivals, "heavy" + h, HEAVY_JOB_PAGES, minute, now);
+                    }
+                }
+                for (int s = 0; s < STUDENTS; s++) {
+                    if (random.nextDouble() < STUDENT_SUBMIT_CHANCE) {
+                        submit(queue, arrivals, "student" + s, 1 + random.nextInt(5), minute, now);
+                    }
+                }
+            }
+            printerFree = Math.max(printerFree, minute);
+            while (printerFree < minute + 1 && !queue.isEmpty()) {
+                PrintJob job = queue.dequeue();
+                double wait = printerFree - arrivals.remove(job.getJobId());
+                (job.getOwner().startsWith("heavy") ? heavyWaits : studentWaits).add(wait);
+                printerFree += (double) job.getPages() / pagesPerMinute;
+            }
+        }
+        System.out.printf("%-12d %-8s %10.1f min %10.1f min %10s%n", heavyUsers, label,
+                percentile(studentWaits, 0.50), percentile(studentWaits, 0.95),
+                heavyWaits.isEmpty() ? "-" : String.format("%.1f min", percentile(heavyWaits, 0.95)));
+    }
+
+    private static void submit(PrintJobQueue queue, Map<Integer, Double> arrivals, String owner, int pages,
+                               int minute, LocalDateTime now) {
+        PrintJob job = new PrintJob(owner + "-notes.pdf", pages, "NORMAL", owner, now, null);
+        if (!queue.enqueue(job)) throw new IllegalStateException("Queue full");
+        arrivals.put(job.getJobId(), (double) minute);
+    }
+
+    private static double percentile(List<Double> values, double p) {
+        if (values.isEmpty()) return 0;
+        Collections.sort(values);
+        return values.get((int) Math.min(values.size() - 1, Math.ceil(p * values.size()) - 1));
+    }
+}
@@ -0,0 +1,62 @@
+package com.greenwich.university.benchmark;
+
+import com.greenwich.university.domain.PrintJob;
+import com.greenwich.university.repository.PrintJobQueue;
+import com.greenwich.university.repository.PriorityFifoPolicy;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Heap held by a full history, and GC work to build it, with job objects
+ * versus the compact column layout.
+ * Usage: HistoryMemoryBenchmark [retained jobs] (default 1,000,000)
+ */
+public class HistoryMemoryBenchmark {
+    private static final String[] PRIORITIES = {"HIGH", "NORMAL", "LOW"};
+    private static final int BATCH = 1_000;
+
+    public static void main(String[] args) {
+        int retained = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for (boolean compact : new boolean[]{false, true}) {
+            long before = usedHeap();
+            long gcBefore = gcMillis();
+            long start = System.nanoTime();
+            PrintJobQueue queue = fill(retained, compact);
+            long nanos = System.nanoTime() - start;
+            long bytes = usedHeap() - before;
+            System.out.printf("%-8s: %,6d MB for %,d jobs (%d bytes/job), filled in %d ms, %d ms in GC%n",
+                    compact ? "Compact" : "Objects", bytes >> 20, retained, bytes / retained,
+                    nanos / 1_000_000, gcMillis() - gcBefore);
+            // Keep the queue reachable until after the measurement
+            if (queue.getHistory().size() != retained) throw new IllegalStateException("History not full");
+        }
+    }
+
+    // Serves twice as many jobs as the history keeps, so eviction is part of the run
+    private static PrintJobQueue fill(int retained, boolean compact) {
+        PrintJobQueue queue = new PrintJobQueue(BATCH, false, retained, null, new PriorityFifoPolicy(), compact);
+        int n = 0;
+        while (n < retained * 2) {
+            for (int i = 0; i < BATCH; i++, n++) {
+                // A few hundred distinct documents, as on a campus where handouts get reprinted
+                queue.enqueue(new PrintJob("course-" + (n % 400) + "-handout.pdf", 1 + n % 40, PRIORITIES[n % 3]));
+            }
+            while (queue.dequeue() != null) { }
+        }
+        return queue;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(gc.getCollectionTime(), 0);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,149 @@
+package com.greenwich.university.benchmark;
+
+import com.greenwich.university.domain.PrintJob;
+import com.greenwich.university.repository.PrintJobQueue;
+import com.greenwich.university.repository.QueueJournal;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures what the write-ahead journal costs and how fast it recovers.
+ * The cost is measured twice: one thread alternating batches of submissions
+ * and dequeues, and a pool of threads each submitting and dequeuing against
+ * the shared concurrent queue. In-memory and journaled runs take turns and
+ * the medians are compared, since single runs vary by tens of percent here.
+ * Usage: JournalBenchmark [operations] [threads] (default 1,000,000 logged operations, 8 threads)
+ */
+public class JournalBenchmark {
+    private static final String[] PRIORITIES = {"HIGH", "NORMAL", "LOW"};
+    private static final int BATCH = 1_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        // Warm up the JIT on both paths before timing anything
+        for (int i = 0; i < 3; i++) {
+            runInMemory(operations / 4, 1);
+            runJournaled(operations / 4, 1, 256);
+            runInMemory(operations / 4, threads);
+            runJournaled(operations / 4, threads, 256);
+        }
+
+        for (int t : new int[]{1, threads}) {
+            System.out.printf("%d thread(s)%n", t);
+            for (int syncEvery : new int[]{64, 256, 1024}) {
+                double[] base = new double[ROUNDS];
+                double[] journaled = new double[ROUNDS];
+                // Alternated, so anything else the machine is doing hits both sides alike
+                for (int r = 0; r < ROUNDS; r++) {
+                    base[r] = runInMemory(operations, t);
+                    journaled[r] = runJournaled(operations, t, syncEvery);
+                }
+                double b = median(base);
+                double j = median(journaled);
+                System.out.printf("  Journal, sync/%-4d: %,10.0f ops/s against %,10.0f in memory (%.1f%% %s, median of %d)%n",
+                        syncEvery, j, b, Math.abs(b - j) * 100 / b, j <= b ? "slower" : "faster", ROUNDS);
+            }
+        }
+
+        Path dir = Files.createTempDirectory("journal-recovery");
+        try {
+            writeLog(dir, operations);
+            long start = System.nanoTime();
+            PrintJobQueue recovered = new PrintJobQueue(BATCH, true);
+            QueueJournal journal = new QueueJournal(dir, 256, Integer.MAX_VALUE);
+            recovered.enableJournal(journal);
+            long nanos = System.nanoTime() - start;
+            journal.close();
+            System.out.printf("Recovery of %,d logged ops: %d ms (%d pending, %,d bytes of log)%n",
+                    operations, nanos / 1_000_000, recovered.getSize(), Files.size(dir.resolve("queue.log")));
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double runInMemory(int operations, int threads) throws InterruptedException {
+        PrintJobQueue queue = new PrintJobQueue(BATCH, true);
+        long start = System.nanoTime();
+        drive(queue, operations, threads);
+        return operations * 1e9 / (System.nanoTime() - start);
+    }
+
+    private static double runJournaled(int operations, int threads, int syncEvery) throws Exception {
+        Path dir = Files.createTempDirectory("journal-bench");
+        try {
+            PrintJobQueue queue = new PrintJobQueue(BATCH, true);
+            try (QueueJournal journal = new QueueJournal(dir, syncEvery, Integer.MAX_VALUE)) {
+                queue.enableJournal(journal);
+                long start = System.nanoTime();
+                drive(queue, operations, threads);
+                journal.sync();
+                return operations * 1e9 / (System.nanoTime() - start);
+            }
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    // Leaves a log of the given size and no snapshot, the worst case for recovery
+    private static void writeLog(Path dir, int operations) throws IOException {
+        PrintJobQueue queue = new PrintJobQueue(BATCH, true);
+        try (QueueJournal journal = new QueueJournal(dir, 1024, Integer.MAX_VALUE)) {
+            queue.enableJournal(journal);
+            drive(queue, operations);
+        }
+    }
+
+    private static void drive(PrintJobQueue queue, int operations, int threads) throws InterruptedException {
+        if (threads == 1) {
+            drive(queue, operations);
+            return;
+        }
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t * (operations / threads);
+            int ops = operations / threads;
+            workers[t] = new Thread(() -> {
+                // Each worker submits a job and takes one back, so the queue stays short
+                for (int n = first; n < first + ops; n += 2) {
+                    queue.enqueue(new PrintJob("handout-" + n + ".pdf", 1 + n % 40, PRIORITIES[n % 3]));
+                    queue.dequeue();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) w.join();
+    }
+
+    // Alternates a batch of submissions with a batch of dequeues (half the batch stays queued)
+    private static void drive(PrintJobQueue queue, int operations) {
+        int done = 0;
+        int n = 0;
+        while (done < operations) {
+            for (int i = 0; i < BATCH && done < operations && !queue.isFull(); i++, done++) {
+                queue.enqueue(new PrintJob("handout-" + (n++) + ".pdf", 1 + n % 40, PRIORITIES[n % 3]));
+            }
+            for (int i = 0; i < BATCH / 2 && done < operations; i++, done++) {
+                queue.dequeue();
+            }
+        }
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.greenwich.university.benchmark;
+
+import com.greenwich.university.domain.PrintJob;
+import com.greenwich.university.repository.PrintJobQueue;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Stress check for the concurrent PrintJobQueue: many submitters start at
+ * the same instant against a small queue and submit (one at a time, with a
+ * short blocking offer, or in batches), cancel and reprioritize their own
+ * jobs while a few printers drain it. A watcher thread checks the queue never
+ * holds more than its capacity. Afterwards every job must be accounted for
+ * exactly once: each accepted job was printed or cancelled, never both and
+ * never twice, and no rejected job ever came out of the queue.
+ * Usage: QueueStress [submitters] [jobsPerSubmitter] [rounds]
+ */
+public class QueueStress {
+    private static final int CAPACITY = 256;
+    private static final int PRINTERS = 8;
+    private static final int BATCH = 8;
+    private static final String[] PRIORITIES = {"HIGH", "NORMAL", "LOW"};
+
+    public static void main(String[] args) throws InterruptedException {
+        int submitters = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int jobsPerSubmitter = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        for (int round = 1; round <= rounds; round++) {
+            long millis = runRound(round, submitters, jobsPerSubmitter);
+            System.out.printf("Round %d: %d submitters x %d jobs, %d printers in %d ms, all checks passed%n",
+                    round, submitters, jobsPerSubmitter, PRINTERS, millis);
+        }
+    }
+
+    private static long runRound(int seed, int submitters, int jobsPerSubmitter) throws InterruptedException {
+        PrintJobQueue queue = new PrintJobQueue(CAPACITY, true);
+        // Jobs get consecutive ids from here on, so an id minus firstId indexes the outcome arrays
+        int firstId = PrintJob.peekNextId();
+        int jobs = submitters * jobsPerSubmitter;
+        AtomicIntegerArray accepted = new AtomicIntegerArray(jobs);
+        AtomicIntegerArray printed = new AtomicIntegerArray(jobs);
+        AtomicIntegerArray cancelled = new AtomicIntegerArray(jobs);
+        AtomicInteger maxSize = new AtomicInteger();
+        AtomicBoolean submitting = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread watcher = new Thread(() -> {
+            while (submitting.get() || !queue.isEmpty()) {
+                int size = queue.getSize();
+                if (size > CAPACITY || size < 0) throw new IllegalStateException("Queue holds " + size + " jobs");
+                maxSize.accumulateAndGet(size, Math::max);
+                Thread.yield();
+            }
+        });
+
+        Thread[] printers = new Thread[PRINTERS];
+        for (int p = 0; p < PRINTERS; p++) {
+            printers[p] = new Thread(() -> {
+                // Keep printing until the submitters are done and nothing is left
+                while (submitting.get() || !queue.isEmpty()) {
+                    PrintJob job = queue.dequeue();
+                    if (job == null) {
+                        Thread.yield();
+                        continue;
+                    }
+                    printed.incrementAndGet(job.getJobId() - firstId);
+                }
+            });
+        }
+
+        Thread[] workers = new Thread[submitters];
+        for (int t = 0; t < submitters; t++) {
+            long workerSeed = seed * 1_000L + t;
+            workers[t] = new Thread(() -> {
+                Random random = new Random(workerSeed);
+                int[] mine = new int[jobsPerSubmitter];
+                int submitted = 0;
+                try {
+                    start.await();
+                    while (submitted < jobsPerSubmitter) {
+                        double kind = random.nextDouble();
+                        if (kind < 0.1 && submitted + BATCH <= jobsPerSubmitter) {
+                            PrintJob[] batch = new PrintJob[BATCH];
+                            for (int i = 0; i < BATCH; i++) batch[i] = newJob(random, submitted + i);
+                            int count = queue.enqueueAll(batch, BATCH);
+                            for (int i = 0; i < count; i++) accepted.incrementAndGet(batch[i].getJobId() - firstId);
+                            for (int i = 0; i < BATCH; i++) mine[submitted++] = batch[i].getJobId();
+                        } else {
+                            PrintJob job = newJob(random, submitted);
+                            boolean added = kind < 0.3 ? queue.offer(job, 1, TimeUnit.MILLISECONDS) : queue.enqueue(job);
+                            if (added) accepted.incrementAndGet(job.getJobId() - firstId);
+                            mine[submitted++] = job.getJobId();
+                        }
+                        // Now and then touch one of our own jobs that may still be waiting
+                        int target = mine[random.nextInt(submitted)];
+                        double touch = random.nextDouble();
+                        if (touch < 0.05) {
+                            PrintJob gone = queue.cancel(target);
+                            if (gone != null) cancelled.incrementAndGet(gone.getJobId() - firstId);
+                        } else if (touch < 0.1) {
+                            PrintJob moved = queue.changePriority(target, PRIORITIES[random.nextInt(PRIORITIES.length)]);
+                            if (moved != null && moved.getJobId() != target) {
+                                throw new IllegalStateException("Reprioritized job " + target + " came back as " + moved.getJobId());
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        for (Thread w : workers) w.start();
+        for (Thread p : printers) p.start();
+        watcher.start();
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread w : workers) w.join();
+        submitting.set(false);
+        for (Thread p : printers) p.join();
+        watcher.join();
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+
+        if (PrintJob.peekNextId() != firstId + jobs) throw new IllegalStateException("Unexpected job ids handed out");
+        int acceptedCount = 0;
+        int printedCount = 0;
+        int cancelledCount = 0;
+        for (int i = 0; i < jobs; i++) {
+            int a = accepted.get(i);
+            int out = printed.get(i) + cancelled.get(i);
+            if (a > 1) throw new IllegalStateException("Job " + (firstId + i) + " accepted " + a + " times");
+            if (out != a) {
+                throw new IllegalStateException("Job " + (firstId + i) + (a == 0 ? " was rejected" : " was accepted")
+                        + " but printed " + printed.get(i) + " and cancelled " + cancelled.get(i) + " times");
+            }
+            acceptedCount += a;
+            printedCount += printed.get(i);
+            cancelledCount += cancelled.get(i);
+        }
+        if (!queue.isEmpty()) throw new IllegalStateException(queue.getSize() + " jobs left after draining");
+        if (queue.getTodayServedCount() != printedCount) {
+            throw new IllegalStateException("Stats count " + queue.getTodayServedCount() + " served, printers got " + printedCount);
+        }
+        System.out.printf("  %,d accepted (%,d rejected), %,d printed, %,d cancelled, at most %d of %d queued%n",
+                acceptedCount, jobs - acceptedCount, printedCount, cancelledCount, maxSize.get(), CAPACITY);
+        return millis;
+    }
+
+    private static PrintJob newJob(Random random, int n) {
+        return new PrintJob("stress-" + n + ".pdf", 1 + random.nextInt(20), PRIORITIES[random.nextInt(PRIORITIES.length)]);
+    }
+}
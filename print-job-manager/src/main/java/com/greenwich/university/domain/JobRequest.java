@@ -0,0 +1,33 @@
+package com.greenwich.university.domain;
+
+/**
+ * One file in a batch submission: what to print, before it becomes a PrintJob.
+ */
+public class JobRequest {
+    private final String fileName;
+    private final int pages;
+    private final String priority;
+    private final String owner;
+
+    public JobRequest(String fileName, int pages, String priority) {
+        this(fileName, pages, priority, PrintJob.DEFAULT_OWNER);
+    }
+
+    public JobRequest(String fileName, int pages, String priority, String owner) {
+        this.fileName = fileName;
+        this.pages = pages;
+        this.priority = priority;
+        this.owner = owner;
+    }
+
+    public String getFileName() { return fileName; }
+    public int getPages() { return pages; }
+    public String getPriority() { return priority; }
+    public String getOwner() { return owner; }
+
+    public boolean isValid() {
+        return fileName != null && !fileName.isEmpty() && pages > 0
+                && priority != null && PrintJob.isValidPriority(priority)
+                && owner != null && !owner.isEmpty();
+    }
+}
@@ -1,42 +1,164 @@
 package com.greenwich.university.domain;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PrintJob {
-    private static int nextId = 1;
+    // Shared by every submitting thread, so ids must be handed out atomically
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final String[] LEVEL_NAMES = {"HIGH", "NORMAL", "LOW"};
+    private static final long NOT_DEQUEUED = Long.MIN_VALUE;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    // Owner of jobs submitted without one (and of jobs journaled before owners existed)
+    public static final String DEFAULT_OWNER = "guest";
     private final int jobId;
     private final String fileName;
     private final int pages;
-    private final String priority;
-    private final LocalDateTime submissionTime;
-    private LocalDateTime dequeueTime;
+    private final String owner;   // who submitted it; fair-share scheduling divides the printer by owner
+    // Priority as its lane index and times as epoch nanos (local clock, read as UTC):
+    // no String or LocalDateTime objects are kept per job, they are made on request
+    private final byte priorityLevel;
+    private final long submittedNanos;
+    private final long deadlineNanos;
+    private long dequeuedNanos;
+    private boolean expired;   // left the queue because its deadline passed, not printed
+    // Monotonic stamps (System.nanoTime, or the queue's clock) set by the queue
+    // for latency measurement; never stored, unlike the epoch times above
+    private long queuedTicks;
+    private long dequeuedTicks;
 
     public PrintJob(String fileName, int pages, String priority) {
-        this.jobId = nextId++;
+        this(fileName, pages, priority, LocalDateTime.now()); // Tự động lấy thời gian hiện tại
+    }
+
+    // For batches: every file submitted together shares one timestamp
+    public PrintJob(String fileName, int pages, String priority, LocalDateTime submissionTime) {
+        this(fileName, pages, priority, submissionTime, null);
+    }
+
+    // deadline: when the job is no longer worth printing, or null for never
+    public PrintJob(String fileName, int pages, String priority, LocalDateTime submissionTime, LocalDateTime deadline) {
+        this(fileName, pages, priority, DEFAULT_OWNER, submissionTime, deadline);
+    }
+
+    public PrintJob(String fileName, int pages, String priority, String owner,
+                    LocalDateTime submissionTime, LocalDateTime deadline) {
+        this(nextId.getAndIncrement(), fileName, pages, owner, toPriorityLevel(priority.toUpperCase()),
+                toEpochNanos(submissionTime), deadline == null ? NO_DEADLINE : toEpochNanos(deadline), NOT_DEQUEUED);
+    }
+
+    private PrintJob(int jobId, String fileName, int pages, String owner, int priorityLevel,
+                     long submittedNanos, long deadlineNanos, long dequeuedNanos) {
+        this.jobId = jobId;
         this.fileName = fileName;
         this.pages = pages;
-        this.priority = priority.toUpperCase();
-        this.submissionTime = LocalDateTime.now(); // Tự động lấy thời gian hiện tại
-        this.dequeueTime = null;
+        this.owner = owner;
+        this.priorityLevel = (byte) priorityLevel;
+        this.submittedNanos = submittedNanos;
+        this.deadlineNanos = deadlineNanos;
+        this.dequeuedNanos = dequeuedNanos;
+    }
+
+    // Rebuilds a job read back from storage, keeping its id and timestamps
+    public static PrintJob restore(int jobId, String fileName, int pages, int priorityLevel,
+                                   LocalDateTime submissionTime, LocalDateTime dequeueTime) {
+        return restore(jobId, fileName, pages, priorityLevel, toEpochNanos(submissionTime),
+                dequeueTime == null ? NOT_DEQUEUED : toEpochNanos(dequeueTime));
+    }
+
+    // Same, from epoch nanos; dequeuedNanos is ignored unless served is true
+    public static PrintJob restore(int jobId, String fileName, int pages, int priorityLevel,
+                                   long submittedNanos, long dequeuedNanos, boolean served) {
+        return restore(jobId, fileName, pages, priorityLevel, submittedNanos, served ? dequeuedNanos : NOT_DEQUEUED);
+    }
+
+    private static PrintJob restore(int jobId, String fileName, int pages, int priorityLevel,
+                                    long submittedNanos, long dequeuedNanos) {
+        advanceNextId(jobId + 1);
+        return new PrintJob(jobId, fileName, pages, DEFAULT_OWNER, priorityLevel, submittedNanos, NO_DEADLINE, dequeuedNanos);
+    }
+
+    // Same job with a deadline, for storage formats that keep it apart from the job
+    public PrintJob withDeadline(long deadlineEpochNanos) {
+        PrintJob copy = new PrintJob(jobId, fileName, pages, owner, priorityLevel, submittedNanos, deadlineEpochNanos, dequeuedNanos);
+        return copyStateTo(copy);
+    }
+
+    // Same job with an owner, likewise
+    public PrintJob withOwner(String newOwner) {
+        PrintJob copy = new PrintJob(jobId, fileName, pages, newOwner, priorityLevel, submittedNanos, deadlineNanos, dequeuedNanos);
+        return copyStateTo(copy);
     }
 
+    private PrintJob copyStateTo(PrintJob copy) {
+        copy.expired = expired;
+        copy.queuedTicks = queuedTicks;
+        copy.dequeuedTicks = dequeuedTicks;
+        return copy;
+    }
+
+    // Makes sure new jobs never reuse an id handed out before a restart
+    public static void advanceNextId(int atLeast) {
+        nextId.accumulateAndGet(atLeast, Math::max);
+    }
+
+    public static int peekNextId() { return nextId.get(); }
+
+    // Same job (id, file, submit time) at another priority; used when a queued job is reprioritized
+    public PrintJob withPriority(String newPriority) {
+        // Keeps its place in time: the wait still counts from the original enqueue
+        return copyStateTo(new PrintJob(jobId, fileName, pages, owner, toPriorityLevel(newPriority.toUpperCase()),
+                submittedNanos, deadlineNanos, dequeuedNanos));
+    }
+
+    public int getJobId() { return jobId; }
+    public String getFileName() { return fileName; }
+    public int getPages() { return pages; }
+    public String getOwner() { return owner; }
 
     public String getPriority() {
-        return priority;
+        return LEVEL_NAMES[priorityLevel];
     }
 
     public LocalDateTime getSubmissionTime() {
-        return submissionTime;
+        return fromEpochNanos(submittedNanos);
+    }
+    public LocalDateTime getDequeueTime() { return isDequeued() ? fromEpochNanos(dequeuedNanos) : null; }
+    public void setDequeueTime(LocalDateTime time) {this.dequeuedNanos = toEpochNanos(time);}
+
+    // Takes the job out of the queue unprinted: it ends up in the history as expired
+    public void markExpired(LocalDateTime time) {
+        this.dequeuedNanos = toEpochNanos(time);
+        this.expired = true;
     }
-    public LocalDateTime getDequeueTime() { return dequeueTime; }
-    public void setDequeueTime(LocalDateTime time) {this.dequeueTime = time;}
-    public int getPriorityValue() {
+    public boolean isExpired() { return expired; }
+
+    public void stampQueued(long ticks) { this.queuedTicks = ticks; }
+    public void stampDequeued(long ticks) { this.dequeuedTicks = ticks; }
+    public long getQueuedTicks() { return queuedTicks; }
+    public long getDequeuedTicks() { return dequeuedTicks; }
+
+    public boolean hasDeadline() { return deadlineNanos != NO_DEADLINE; }
+    public LocalDateTime getDeadline() { return hasDeadline() ? fromEpochNanos(deadlineNanos) : null; }
+    public long getDeadlineEpochNanos() { return deadlineNanos; }
+    public int getPriorityValue() { return 3 - priorityLevel; }
+
+    // Lane index used by the queue: 0 = HIGH, 1 = NORMAL, 2 = LOW
+    public int getPriorityLevel() { return priorityLevel; }
+
+    // The raw timestamps, for storage and arithmetic without LocalDateTime objects
+    public long getSubmissionEpochNanos() { return submittedNanos; }
+    public long getDequeueEpochNanos() { return dequeuedNanos; }
+    public boolean isDequeued() { return dequeuedNanos != NOT_DEQUEUED; }
+
+    private static int toPriorityLevel(String priority) {
         switch (priority) {
-            case "HIGH": return 3;
-            case "NORMAL": return 2;
-            case "LOW": return 1;
-            default: return 2;
+            case "HIGH": return 0;
+            case "NORMAL": return 1;
+            case "LOW": return 2;
+            default: return 1;
         }
     }
 
@@ -45,14 +167,25 @@ public class PrintJob {
         return p.equals("HIGH") || p.equals("NORMAL") || p.equals("LOW");
     }
 
+    public static long toEpochNanos(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    public static LocalDateTime fromEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
     @Override
     public String toString() {
-        return String.format("JobID %d: fileName:%s - Pages: (%d pages) - priority:%s [%s]",
-                jobId, fileName, pages, priority,
-                submissionTime.format(DateTimeFormatter.ofPattern("HH:mm:ss")));
+        DateTimeFormatter clock = DateTimeFormatter.ofPattern("HH:mm:ss");
+        String text = String.format("JobID %d: fileName:%s - Pages: (%d pages) - priority:%s [%s]",
+                jobId, fileName, pages, getPriority(), getSubmissionTime().format(clock));
+        if (!owner.equals(DEFAULT_OWNER)) text += " by " + owner;
+        return hasDeadline() ? text + " (due " + getDeadline().format(clock) + ")" : text;
     }
 
     public boolean matchesFileName(String searchTerm) {
         return fileName.toLowerCase().contains(searchTerm.toLowerCase());
     }
-}
\ No newline at end of file
+}
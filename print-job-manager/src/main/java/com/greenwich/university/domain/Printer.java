@@ -0,0 +1,62 @@
+package com.greenwich.university.domain;
+
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A physical printer behind the shared queue.
+ * Holds its rated speed and the throughput counters updated by its worker thread.
+ */
+public class Printer {
+    private final String name;
+    private final int pagesPerMinute;
+    private final WritableByteChannel output;   // where document bytes go; null when jobs carry none
+    private final AtomicLong jobsPrinted = new AtomicLong();
+    private final AtomicLong pagesPrinted = new AtomicLong();
+    private final AtomicLong jobsStolen = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    public Printer(String name, int pagesPerMinute) {
+        this(name, pagesPerMinute, null);
+    }
+
+    // output: the device (a socket, or a local file standing in for one) spooled documents are streamed to
+    public Printer(String name, int pagesPerMinute, WritableByteChannel output) {
+        if (pagesPerMinute <= 0) throw new IllegalArgumentException("pagesPerMinute must be > 0");
+        this.name = name;
+        this.pagesPerMinute = pagesPerMinute;
+        this.output = output;
+    }
+
+    public String getName() { return name; }
+    public int getPagesPerMinute() { return pagesPerMinute; }
+    public long getJobsPrinted() { return jobsPrinted.get(); }
+    public long getPagesPrinted() { return pagesPrinted.get(); }
+    public long getJobsStolen() { return jobsStolen.get(); }
+    public long getBusyNanos() { return busyNanos.get(); }
+    public long getBytesSent() { return bytesSent.get(); }
+    public WritableByteChannel getOutput() { return output; }
+
+    // Time this printer needs for a job at its rated speed
+    public long printTimeNanos(int pages) {
+        return pages * 60_000_000_000L / pagesPerMinute;
+    }
+
+    public void recordPrinted(PrintJob job, long nanos) {
+        jobsPrinted.incrementAndGet();
+        pagesPrinted.addAndGet(job.getPages());
+        busyNanos.addAndGet(nanos);
+    }
+
+    public void recordStolen() { jobsStolen.incrementAndGet(); }
+
+    public void recordSent(long bytes) { bytesSent.addAndGet(bytes); }
+
+    @Override
+    public String toString() {
+        String text = String.format("%s (%d ppm) - jobs:%d pages:%d stolen:%d",
+                name, pagesPerMinute, getJobsPrinted(), getPagesPrinted(), getJobsStolen());
+        return output == null ? text : text + String.format(" sent:%d KB", getBytesSent() / 1024);
+    }
+}
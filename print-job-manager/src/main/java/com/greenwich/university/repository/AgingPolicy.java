@@ -0,0 +1,30 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+import java.time.Duration;
+
+/**
+ * Priority with aging: every agingStep a job waits counts as one priority
+ * level, so a LOW job that has waited two steps ranks with a HIGH job
+ * submitted just now and cannot starve.
+ * Because all waiting jobs age at the same rate, comparing effective
+ * priorities at any moment gives the same answer as comparing
+ * submissionTime + level * agingStep. That fixed rank is computed once per
+ * job, so the heap never needs re-ordering as time passes.
+ */
+public class AgingPolicy implements SchedulingPolicy {
+    private final long stepNanos;
+
+    public AgingPolicy(Duration agingStep) {
+        if (agingStep.isNegative() || agingStep.isZero()) throw new IllegalArgumentException("agingStep must be > 0");
+        this.stepNanos = agingStep.toNanos();
+    }
+
+    @Override
+    public String getName() { return "Priority with aging"; }
+
+    @Override
+    public long rank(PrintJob job) {
+        return job.getSubmissionEpochNanos() + job.getPriorityLevel() * stepNanos;
+    }
+}
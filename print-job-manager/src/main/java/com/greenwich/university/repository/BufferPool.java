@@ -0,0 +1,36 @@
+package com.greenwich.university.repository;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of direct buffers of one size. Copies that cannot be done
+ * channel to channel borrow a buffer here instead of allocating one per job;
+ * direct buffers are expensive to create and are only freed by the GC.
+ * When the pool is empty a new buffer is made, and returned buffers beyond
+ * the pool size are dropped, so callers never wait.
+ */
+class BufferPool {
+    private final int bufferBytes;
+    private final ArrayBlockingQueue<ByteBuffer> free;
+
+    BufferPool(int bufferBytes, int maxPooled) {
+        if (bufferBytes <= 0 || maxPooled <= 0) throw new IllegalArgumentException("Buffer size and pool size must be > 0");
+        this.bufferBytes = bufferBytes;
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    // A cleared buffer; give it back with release() when done
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferBytes);
+    }
+
+    void release(ByteBuffer buffer) {
+        buffer.clear();
+        free.offer(buffer);
+    }
+
+    int getBufferBytes() { return bufferBytes; }
+    int getPooledCount() { return free.size(); }
+}
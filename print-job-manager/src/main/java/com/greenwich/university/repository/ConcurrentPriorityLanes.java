@@ -0,0 +1,181 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe version of PriorityLanes for many submitters and many printers.
+ * Each lane is a lock-free ConcurrentLinkedQueue; the capacity bound is kept by
+ * reserving a slot with a CAS on the size counter before the job is linked in,
+ * so producers never wait on a shared lock.
+ * A concurrent map from job id to the live job backs lookup, cancel and
+ * reprioritize: whoever removes the job from the map (a poll or a cancel)
+ * owns it, and nodes left behind in a lane are skipped as dead.
+ */
+class ConcurrentPriorityLanes implements PendingJobs {
+    private final ConcurrentLinkedQueue<PrintJob>[] lanes;
+    private final AtomicInteger[] counts = new AtomicInteger[PriorityLanes.LEVELS];
+    private final AtomicInteger size = new AtomicInteger();
+    private final ConcurrentHashMap<Integer, PrintJob> live = new ConcurrentHashMap<>();
+    private final AtomicInteger dead = new AtomicInteger(); // approximate, only decides when to purge
+    private volatile int capacity;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    ConcurrentPriorityLanes(int capacity) {
+        this.capacity = capacity;
+        this.lanes = new ConcurrentLinkedQueue[PriorityLanes.LEVELS];
+        for (int level = 0; level < PriorityLanes.LEVELS; level++) {
+            lanes[level] = new ConcurrentLinkedQueue<>();
+            counts[level] = new AtomicInteger();
+        }
+    }
+
+    @Override
+    public boolean add(PrintJob job) {
+        while (true) {
+            int current = size.get();
+            if (current >= capacity) return false;
+            if (size.compareAndSet(current, current + 1)) break;
+        }
+        // Count before linking so a consumer never drives the counter negative
+        link(job);
+        return true;
+    }
+
+    // One CAS reserves room for the whole batch
+    @Override
+    public int addAll(PrintJob[] jobs, int from, int count) {
+        int accepted;
+        while (true) {
+            int current = size.get();
+            accepted = Math.min(count, capacity - current);
+            if (accepted <= 0) return 0;
+            if (size.compareAndSet(current, current + accepted)) break;
+        }
+        // Published a lane at a time: one count update, then the lane's jobs spliced in with one CAS
+        List<PrintJob>[] byLevel = splitByLevel(jobs, from, accepted);
+        for (int level = 0; level < PriorityLanes.LEVELS; level++) {
+            List<PrintJob> batch = byLevel[level];
+            if (batch.isEmpty()) continue;
+            counts[level].addAndGet(batch.size());
+            for (PrintJob job : batch) live.put(job.getJobId(), job);
+            lanes[level].addAll(batch);
+        }
+        return accepted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<PrintJob>[] splitByLevel(PrintJob[] jobs, int from, int count) {
+        List<PrintJob>[] byLevel = new List[PriorityLanes.LEVELS];
+        for (int level = 0; level < PriorityLanes.LEVELS; level++) byLevel[level] = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) byLevel[jobs[i].getPriorityLevel()].add(jobs[i]);
+        return byLevel;
+    }
+
+    // Live before linked, so a poller never takes the node for a dead one
+    private void link(PrintJob job) {
+        int level = job.getPriorityLevel();
+        counts[level].incrementAndGet();
+        live.put(job.getJobId(), job);
+        lanes[level].offer(job);
+    }
+
+    @Override
+    public PrintJob poll() {
+        for (int level = 0; level < PriorityLanes.LEVELS; level++) {
+            PrintJob job;
+            while ((job = lanes[level].poll()) != null) {
+                if (live.remove(job.getJobId(), job)) {
+                    counts[level].decrementAndGet();
+                    size.decrementAndGet();
+                    return job;
+                }
+                dead.decrementAndGet();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public PrintJob peek() {
+        for (int level = 0; level < PriorityLanes.LEVELS; level++) {
+            for (PrintJob job : lanes[level]) {
+                if (isLive(job)) return job;
+            }
+        }
+        return null;
+    }
+
+    // A lane has no tail access, so this walks the lowest non-empty lane
+    @Override
+    public PrintJob peekLowest() {
+        for (int level = PriorityLanes.LEVELS - 1; level >= 0; level--) {
+            PrintJob last = null;
+            for (PrintJob job : lanes[level]) {
+                if (isLive(job)) last = job;
+            }
+            if (last != null) return last;
+        }
+        return null;
+    }
+
+    @Override
+    public PrintJob find(int jobId) { return live.get(jobId); }
+
+    @Override
+    public PrintJob remove(int jobId) {
+        PrintJob job = live.remove(jobId);
+        if (job == null) return null;
+        counts[job.getPriorityLevel()].decrementAndGet();
+        size.decrementAndGet();
+        buried();
+        return job;
+    }
+
+    // Swaps the map entry first, so a racing poll or cancel gets either the old job or the copy
+    @Override
+    public boolean replace(PrintJob current, PrintJob updated) {
+        if (!live.replace(current.getJobId(), current, updated)) return false;
+        counts[updated.getPriorityLevel()].incrementAndGet();
+        counts[current.getPriorityLevel()].decrementAndGet();
+        lanes[updated.getPriorityLevel()].offer(updated);
+        buried();
+        return true;
+    }
+
+    @Override
+    public int size() { return size.get(); }
+
+    @Override
+    public void setCapacity(int capacity) { this.capacity = capacity; }
+
+    @Override
+    public int count(int level) { return counts[level].get(); }
+
+    // Weakly consistent snapshot: jobs added or served during the walk may be missed
+    @Override
+    public PrintJob[] toArray() {
+        List<PrintJob> result = new ArrayList<>(size.get());
+        for (ConcurrentLinkedQueue<PrintJob> lane : lanes) {
+            for (PrintJob job : lane) {
+                if (isLive(job)) result.add(job);
+            }
+        }
+        return result.toArray(new PrintJob[0]);
+    }
+
+    private boolean isLive(PrintJob job) { return live.get(job.getJobId()) == job; }
+
+    // Dead nodes normally leave with a poll; if nobody is printing, purge them once they outnumber the queue
+    private void buried() {
+        if (dead.incrementAndGet() <= capacity) return;
+        dead.set(0);
+        for (ConcurrentLinkedQueue<PrintJob> lane : lanes) {
+            lane.removeIf(job -> !isLive(job));
+        }
+    }
+}
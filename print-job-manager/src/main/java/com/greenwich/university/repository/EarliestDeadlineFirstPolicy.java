@@ -0,0 +1,19 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+
+/**
+ * Earliest deadline first: the job that goes stale soonest prints first,
+ * whatever its priority. Jobs without a deadline come after all jobs that
+ * have one, by priority level and then in arrival order.
+ */
+public class EarliestDeadlineFirstPolicy implements SchedulingPolicy {
+    @Override
+    public String getName() { return "Earliest deadline first"; }
+
+    @Override
+    public long rank(PrintJob job) {
+        if (job.hasDeadline()) return job.getDeadlineEpochNanos();
+        return Long.MAX_VALUE - PriorityLanes.LEVELS + job.getPriorityLevel();
+    }
+}
@@ -0,0 +1,55 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fair share of the printer between job owners: deficit round robin, in pages.
+ * Owners with queued jobs take turns; each turn adds the owner's quantum to
+ * its deficit, and the owner prints jobs for as long as the next one fits in
+ * the deficit. Every busy owner so gets about a quantum of pages per round,
+ * however much it has queued, so a few heavy users flooding the queue do not
+ * hold up everyone else. Within one owner jobs go by priority, then arrival.
+ * A quota scales an owner's quantum: quota 2 is twice the share.
+ *
+ * The order depends on which owners are waiting, not on a per-job rank, so
+ * this policy only holds the settings: the queue serves it from its own
+ * store (OwnerRoundRobin) and rank() is not used there.
+ */
+public class FairSharePolicy implements SchedulingPolicy {
+    public static final int DEFAULT_QUANTUM_PAGES = 20;
+
+    private final int quantumPages;
+    private final Map<String, Integer> quotas = new ConcurrentHashMap<>();
+
+    public FairSharePolicy() {
+        this(DEFAULT_QUANTUM_PAGES);
+    }
+
+    // quantumPages: pages an owner with quota 1 may print per round
+    public FairSharePolicy(int quantumPages) {
+        if (quantumPages <= 0) throw new IllegalArgumentException("Quantum must be > 0 pages");
+        this.quantumPages = quantumPages;
+    }
+
+    @Override
+    public String getName() { return "Fair share by owner (" + quantumPages + " pages per turn)"; }
+
+    // Takes effect from the owner's next turn
+    public void setQuota(String owner, int shares) {
+        if (shares <= 0) throw new IllegalArgumentException("Quota must be > 0");
+        if (shares == 1) quotas.remove(owner);
+        else quotas.put(owner, shares);
+    }
+
+    public int getQuota(String owner) { return quotas.getOrDefault(owner, 1); }
+
+    public int getQuantumPages() { return quantumPages; }
+
+    long quantumFor(String owner) { return (long) quantumPages * getQuota(owner); }
+
+    // Only used if another store is given this policy: priority order
+    @Override
+    public long rank(PrintJob job) { return job.getPriorityLevel(); }
+}
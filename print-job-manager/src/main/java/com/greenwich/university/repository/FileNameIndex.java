@@ -0,0 +1,171 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trigram index over file names of queued and retained jobs.
+ * Every lowercased name is indexed by its trigrams, with a start marker in
+ * front so prefixes are just substrings that begin at the marker (the marker
+ * plus first letter is indexed too, for one-letter prefixes).
+ * A lookup starts from the smallest posting set among the query's grams,
+ * checks the other sets, and only then confirms with a string match.
+ * One- and two-letter substring queries have no trigram and scan every job.
+ * Backed by concurrent maps, so it is safe in the queue's concurrent mode.
+ * A job must be added before anyone else can reach it to remove it: an add
+ * that lands after its remove would leave the job in the index for good.
+ */
+public class FileNameIndex {
+    public enum Scope { QUEUED, HISTORY, ALL }
+
+    private static final char START = '\u0002';
+    private static final int MAX_GRAM = 3;
+
+    private final Map<Long, Set<PrintJob>> postings = new ConcurrentHashMap<>();
+    private final Set<PrintJob> all = ConcurrentHashMap.newKeySet();
+
+    public void add(PrintJob job) {
+        all.add(job);
+        for (long gram : gramsOf(key(job.getFileName()))) {
+            // Inside compute() so a concurrent remove() cannot drop the set we add to
+            postings.compute(gram, (g, jobs) -> {
+                if (jobs == null) jobs = ConcurrentHashMap.newKeySet();
+                jobs.add(job);
+                return jobs;
+            });
+        }
+    }
+
+    /**
+     * Adds a batch in one pass over the postings: the grams of every name are
+     * grouped first, then each posting set is looked up and filled once for
+     * the whole batch, and a set that did not exist yet starts at its final
+     * size instead of growing job by job.
+     */
+    public void addAll(PrintJob[] jobs, int count) {
+        Map<Long, List<PrintJob>> byGram = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            PrintJob job = jobs[i];
+            all.add(job);
+            for (long gram : gramsOf(key(job.getFileName()))) {
+                byGram.computeIfAbsent(gram, g -> new ArrayList<>()).add(job);
+            }
+        }
+        for (Map.Entry<Long, List<PrintJob>> entry : byGram.entrySet()) {
+            List<PrintJob> batch = entry.getValue();
+            // Inside compute() for the same reason as add()
+            postings.compute(entry.getKey(), (g, set) -> {
+                if (set == null) set = ConcurrentHashMap.newKeySet(batch.size());
+                set.addAll(batch);
+                return set;
+            });
+        }
+    }
+
+    public void remove(PrintJob job) {
+        all.remove(job);
+        for (long gram : gramsOf(key(job.getFileName()))) {
+            postings.computeIfPresent(gram, (g, jobs) -> {
+                jobs.remove(job);
+                return jobs.isEmpty() ? null : jobs;
+            });
+        }
+    }
+
+    /**
+     * @param prefix true to match names starting with term, false for names containing it
+     * @param offset matches to skip (matches are ordered by job id)
+     * @param limit  page size
+     */
+    public SearchPage search(String term, boolean prefix, Scope scope, int offset, int limit) {
+        if (term.isEmpty()) return new SearchPage(new PrintJob[0], offset, 0);
+        String query = prefix ? START + term.toLowerCase() : term.toLowerCase();
+
+        long[] grams = queryGrams(query);
+        Set<PrintJob> smallest = grams.length == 0 ? all : null;
+        for (long gram : grams) {
+            Set<PrintJob> jobs = postings.get(gram);
+            if (jobs == null) return new SearchPage(new PrintJob[0], offset, 0);
+            if (smallest == null || jobs.size() < smallest.size()) smallest = jobs;
+        }
+
+        List<PrintJob> matches = new ArrayList<>();
+        for (PrintJob job : smallest) {
+            if (inScope(job, scope) && inAllPostings(job, grams) && key(job.getFileName()).contains(query)) {
+                matches.add(job);
+            }
+        }
+        matches.sort(Comparator.comparingInt(PrintJob::getJobId));
+
+        int from = Math.min(Math.max(offset, 0), matches.size());
+        int to = Math.min(from + limit, matches.size());
+        return new SearchPage(matches.subList(from, to).toArray(new PrintJob[0]), from, matches.size());
+    }
+
+    private boolean inAllPostings(PrintJob job, long[] grams) {
+        for (long gram : grams) {
+            Set<PrintJob> jobs = postings.get(gram);
+            if (jobs == null || !jobs.contains(job)) return false;
+        }
+        return true;
+    }
+
+    private static boolean inScope(PrintJob job, Scope scope) {
+        switch (scope) {
+            case QUEUED: return !job.isDequeued();
+            case HISTORY: return job.isDequeued();
+            default: return true;
+        }
+    }
+
+    private static String key(String fileName) {
+        return START + fileName.toLowerCase();
+    }
+
+    // No grams means the query is too short for the index and every job is a candidate
+    private static long[] queryGrams(String query) {
+        if (query.length() < MAX_GRAM) {
+            boolean leadingBigram = query.length() == 2 && query.charAt(0) == START;
+            return leadingBigram ? new long[]{encode(query, 0, 2)} : new long[0];
+        }
+        long[] grams = new long[query.length() - MAX_GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = encode(query, i, MAX_GRAM);
+        }
+        return grams;
+    }
+
+    // Distinct trigrams of the key, plus its leading bigram
+    private static long[] gramsOf(String key) {
+        int trigrams = Math.max(key.length() - MAX_GRAM + 1, 0);
+        long[] grams = new long[trigrams + 1];
+        grams[0] = encode(key, 0, Math.min(2, key.length()));
+        for (int i = 0; i < trigrams; i++) {
+            grams[i + 1] = encode(key, i, MAX_GRAM);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) grams[distinct++] = grams[i];
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    // Packs up to three chars and the gram length into one long key. Packed as is, the key's
+    // hash comes out as little more than the chars xor-ed together, so most grams would share
+    // a handful of buckets; an odd multiplier scatters the bits and still keeps keys distinct
+    private static long encode(String s, int from, int length) {
+        long code = length;
+        for (int i = 0; i < length; i++) {
+            code = (code << 16) | s.charAt(from + i);
+        }
+        return code * 0x9E3779B97F4A7C15L;
+    }
+}
@@ -0,0 +1,217 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Served jobs kept for statistics, in a fixed-size ring buffer.
+ * Appending is O(1): when full, the oldest entry is overwritten instead of
+ * shifting the array. Entries can also be retired by age (a time window).
+ * A running sum of waiting times is kept in step, so the average is O(1).
+ * Jobs that expired unprinted are kept too, but left out of the average.
+ * All methods lock on the history itself; submitters never touch it.
+ *
+ * In compact mode the ring holds no PrintJob objects: each field is a column
+ * of primitives (priority as a byte, times as epoch nanos) and file names
+ * and owners sit once in shared string tables. A slot then costs about 40 bytes, and
+ * PrintJob views are only built for entries that are read.
+ */
+public class JobHistory {
+    private static final Consumer<PrintJob> NO_LISTENER = job -> { };
+
+    private final int maxEntries;
+    private final PrintJob[] ring;   // object mode only
+    private final long[] waitNanos;  // cached per entry so eviction can subtract it
+    private final boolean[] expired;
+    private final Duration maxAge;
+    private final Clock clock;
+    private int head;   // oldest entry
+    private int size;
+    private int expiredCount;
+    private long totalWaitNanos;
+    private Consumer<PrintJob> evictionListener = NO_LISTENER;
+
+    // Compact mode only
+    private final boolean compact;
+    private final int[] jobIds;
+    private final int[] pages;
+    private final byte[] levels;
+    private final long[] submitted;
+    private final long[] dequeued;
+    private final int[] nameIds;
+    private final StringTable names;
+    private final int[] ownerIds;
+    private final StringTable owners;
+
+    public JobHistory(int maxEntries, Duration maxAge) {
+        this(maxEntries, maxAge, false);
+    }
+
+    /**
+     * @param maxEntries how many served jobs to keep at most
+     * @param maxAge     drop jobs served longer ago than this, or null to keep by count only
+     * @param compact    store entries as primitive columns instead of PrintJob objects
+     */
+    public JobHistory(int maxEntries, Duration maxAge, boolean compact) {
+        this(maxEntries, maxAge, compact, Clock.systemDefaultZone());
+    }
+
+    // clock: what "now" is when entries are aged out of the window
+    public JobHistory(int maxEntries, Duration maxAge, boolean compact, Clock clock) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be > 0");
+        this.maxEntries = maxEntries;
+        this.waitNanos = new long[maxEntries];
+        this.expired = new boolean[maxEntries];
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.compact = compact;
+        this.ring = compact ? null : new PrintJob[maxEntries];
+        this.jobIds = compact ? new int[maxEntries] : null;
+        this.pages = compact ? new int[maxEntries] : null;
+        this.levels = compact ? new byte[maxEntries] : null;
+        this.submitted = compact ? new long[maxEntries] : null;
+        this.dequeued = compact ? new long[maxEntries] : null;
+        this.nameIds = compact ? new int[maxEntries] : null;
+        this.names = compact ? new StringTable() : null;
+        this.ownerIds = compact ? new int[maxEntries] : null;
+        this.owners = compact ? new StringTable() : null;
+    }
+
+    public synchronized void add(PrintJob job, long jobWaitNanos) {
+        if (size == maxEntries) {
+            removeOldest();
+        }
+        int slot = (head + size) % maxEntries;
+        if (compact) {
+            jobIds[slot] = job.getJobId();
+            pages[slot] = job.getPages();
+            levels[slot] = (byte) job.getPriorityLevel();
+            submitted[slot] = job.getSubmissionEpochNanos();
+            dequeued[slot] = job.getDequeueEpochNanos();
+            nameIds[slot] = names.acquire(job.getFileName());
+            ownerIds[slot] = owners.acquire(job.getOwner());
+        } else {
+            ring[slot] = job;
+        }
+        waitNanos[slot] = jobWaitNanos;
+        expired[slot] = job.isExpired();
+        if (job.isExpired()) expiredCount++;
+        else totalWaitNanos += jobWaitNanos;
+        size++;
+        if (job.isDequeued()) expire(job.getDequeueEpochNanos());
+    }
+
+    public synchronized int size() {
+        expire(now());
+        return size;
+    }
+
+    // Mean wait of the retained printed jobs, in seconds
+    public synchronized double getAverageWaitSeconds() {
+        expire(now());
+        int printed = size - expiredCount;
+        return printed == 0 ? 0 : totalWaitNanos / 1e9 / printed;
+    }
+
+    // Retained jobs that left the queue unprinted because their deadline passed
+    public synchronized int getExpiredCount() {
+        expire(now());
+        return expiredCount;
+    }
+
+    // Called (under the history lock) for every job that leaves the history
+    public synchronized void setEvictionListener(Consumer<PrintJob> listener) {
+        this.evictionListener = listener;
+    }
+
+    public int getMaxEntries() { return maxEntries; }
+    public Duration getMaxAge() { return maxAge; }
+    public boolean isCompact() { return compact; }
+
+    // Visits retained jobs from oldest to newest without copying; runs under the history lock
+    public synchronized void forEach(Consumer<PrintJob> action) {
+        expire(now());
+        for (int i = 0; i < size; i++) {
+            action.accept(jobAt((head + i) % maxEntries));
+        }
+    }
+
+    /**
+     * Retained jobs whose file name contains (or starts with) term, ignoring
+     * case, oldest first. In compact mode each distinct name is tested once
+     * and the entries are then matched by name id.
+     */
+    public synchronized List<PrintJob> findByFileName(String term, boolean prefix) {
+        expire(now());
+        String query = term.toLowerCase();
+        List<PrintJob> matches = new ArrayList<>();
+        if (!compact) {
+            for (int i = 0; i < size; i++) {
+                PrintJob job = ring[(head + i) % maxEntries];
+                if (nameMatches(job.getFileName(), query, prefix)) matches.add(job);
+            }
+            return matches;
+        }
+        boolean[] hit = new boolean[names.idLimit()];
+        boolean any = false;
+        for (int id = 0; id < hit.length; id++) {
+            String name = names.get(id);
+            hit[id] = name != null && nameMatches(name, query, prefix);
+            any |= hit[id];
+        }
+        if (!any) return matches;
+        for (int i = 0; i < size; i++) {
+            int slot = (head + i) % maxEntries;
+            if (hit[nameIds[slot]]) matches.add(jobAt(slot));
+        }
+        return matches;
+    }
+
+    private static boolean nameMatches(String fileName, String query, boolean prefix) {
+        String name = fileName.toLowerCase();
+        return prefix ? name.startsWith(query) : name.contains(query);
+    }
+
+    private PrintJob jobAt(int slot) {
+        if (!compact) return ring[slot];
+        PrintJob view = PrintJob.restore(jobIds[slot], names.get(nameIds[slot]), pages[slot], levels[slot],
+                submitted[slot], dequeued[slot], true);
+        if (expired[slot]) view.markExpired(view.getDequeueTime());
+        String owner = owners.get(ownerIds[slot]);
+        return owner.equals(PrintJob.DEFAULT_OWNER) ? view : view.withOwner(owner);
+    }
+
+    private long dequeuedAt(int slot) {
+        return compact ? dequeued[slot] : ring[slot].getDequeueEpochNanos();
+    }
+
+    private long now() { return PrintJob.toEpochNanos(LocalDateTime.now(clock)); }
+
+    // Retire entries that fell out of the time window
+    private void expire(long nowNanos) {
+        if (maxAge == null) return;
+        long cutoff = nowNanos - maxAge.toNanos();
+        while (size > 0 && dequeuedAt(head) < cutoff) {
+            removeOldest();
+        }
+    }
+
+    private void removeOldest() {
+        if (evictionListener != NO_LISTENER) evictionListener.accept(jobAt(head));
+        if (expired[head]) expiredCount--;
+        else totalWaitNanos -= waitNanos[head];
+        if (compact) {
+            names.release(nameIds[head]);
+            owners.release(ownerIds[head]);
+        } else {
+            ring[head] = null;
+        }
+        head = (head + 1) % maxEntries;
+        size--;
+    }
+}
@@ -0,0 +1,145 @@
+package com.greenwich.university.repository;
+
+import java.util.Arrays;
+
+/**
+ * Counts of recorded latencies (in nanoseconds) in log-linear buckets, the
+ * layout HdrHistogram uses: each power of two is split into the same number
+ * of linear sub-buckets, so every value is kept to a fixed number of
+ * significant digits whatever its size. Memory is fixed when the histogram
+ * is made; recording is one index computation and an increment.
+ * Values above the highest trackable one are counted as that value.
+ * Not thread-safe; QueueStats guards its histograms with its own lock.
+ */
+public class LatencyHistogram {
+    private final long lowestNanos;
+    private final long highestNanos;
+    private final int significantDigits;
+    private final int unitMagnitude;          // log2 of the smallest bucket width
+    private final int subHalfMagnitude;       // log2 of half the sub-buckets per power of two
+    private final int subHalfCount;
+    private final long subMask;
+    private final int leadingZeroBase;
+    private final int[] counts;
+    private long totalCount;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * @param lowestNanos       smallest value told apart from 0, e.g. 1000 for microseconds
+     * @param highestNanos      largest value tracked exactly; larger ones are clamped to it
+     * @param significantDigits precision kept at every magnitude, 1 to 5
+     */
+    public LatencyHistogram(long lowestNanos, long highestNanos, int significantDigits) {
+        if (lowestNanos < 1 || highestNanos < 2 * lowestNanos) {
+            throw new IllegalArgumentException("Need lowest >= 1 and highest >= 2 * lowest");
+        }
+        if (significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException("Significant digits must be between 1 and 5");
+        }
+        this.lowestNanos = lowestNanos;
+        this.highestNanos = highestNanos;
+        this.significantDigits = significantDigits;
+        this.unitMagnitude = 63 - Long.numberOfLeadingZeros(lowestNanos);
+        // Enough sub-buckets that one bucket width is below 1 in 10^digits of its values
+        long largestExact = 2 * (long) Math.pow(10, significantDigits);
+        int subCountMagnitude = 64 - Long.numberOfLeadingZeros(largestExact - 1);
+        this.subHalfMagnitude = subCountMagnitude - 1;
+        this.subHalfCount = 1 << subHalfMagnitude;
+        this.subMask = ((1L << subCountMagnitude) - 1) << unitMagnitude;
+        this.leadingZeroBase = 64 - unitMagnitude - subHalfMagnitude - 1;
+
+        long smallestUntrackable = 1L << (subCountMagnitude + unitMagnitude);
+        int buckets = 1;
+        while (smallestUntrackable <= highestNanos) {
+            if (smallestUntrackable > Long.MAX_VALUE / 2) {
+                buckets++;
+                break;
+            }
+            smallestUntrackable <<= 1;
+            buckets++;
+        }
+        this.counts = new int[(buckets + 1) * subHalfCount];
+    }
+
+    // An empty histogram with the same range and precision
+    public LatencyHistogram emptyCopy() {
+        return new LatencyHistogram(lowestNanos, highestNanos, significantDigits);
+    }
+
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = emptyCopy();
+        copy.add(this);
+        return copy;
+    }
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), highestNanos);
+        counts[indexOf(value)]++;
+        totalCount++;
+        totalNanos += value;
+        if (value > maxNanos) maxNanos = value;
+    }
+
+    // Adds other's counts to this one; both must have the same range and precision
+    public void add(LatencyHistogram other) {
+        if (other.counts.length != counts.length || other.unitMagnitude != unitMagnitude
+                || other.subHalfCount != subHalfCount) {
+            throw new IllegalArgumentException("Histograms have different layouts");
+        }
+        if (other.totalCount == 0) return;
+        for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        totalCount += other.totalCount;
+        totalNanos += other.totalNanos;
+        maxNanos = Math.max(maxNanos, other.maxNanos);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+    }
+
+    public long getTotalCount() { return totalCount; }
+    public long getMaxNanos() { return maxNanos; }
+    public double getMeanNanos() { return totalCount == 0 ? 0 : (double) totalNanos / totalCount; }
+
+    /**
+     * The value below or at which percentile % of the recorded values fall,
+     * e.g. 99.9 for p999; accurate to the histogram's precision, and never
+     * above the largest value recorded. 0 when nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be in [0, 100]");
+        if (totalCount == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(highestEquivalent(i), maxNanos);
+        }
+        return maxNanos;
+    }
+
+    // Bytes taken by the counts, the only part that grows with range and precision
+    public int getFootprintBytes() { return counts.length * Integer.BYTES; }
+
+    private int indexOf(long value) {
+        int bucket = leadingZeroBase - Long.numberOfLeadingZeros(value | subMask);
+        int sub = (int) (value >>> (bucket + unitMagnitude));
+        return ((bucket + 1) << subHalfMagnitude) + (sub - subHalfCount);
+    }
+
+    // Largest value that lands in the same slot as index
+    private long highestEquivalent(int index) {
+        int bucket = (index >> subHalfMagnitude) - 1;
+        int sub = (index & (subHalfCount - 1)) + subHalfCount;
+        if (bucket < 0) {
+            sub -= subHalfCount;
+            bucket = 0;
+        }
+        long lowest = (long) sub << (bucket + unitMagnitude);
+        return lowest + (1L << (bucket + unitMagnitude)) - 1;
+    }
+}
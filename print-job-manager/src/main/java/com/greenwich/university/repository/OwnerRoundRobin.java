@@ -0,0 +1,297 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Pending jobs for a FairSharePolicy: one FIFO lane per priority level for
+ * each owner, and a rotation of the owners that have jobs waiting.
+ * Adding a job is O(1). Serving is O(1) while the owner in turn still has
+ * deficit for its next job; a turn change walks the rotation to the next
+ * owner whose job fits. When nobody's fits yet, the rounds it would take are
+ * credited in one step instead of going round and round, so one poll never
+ * costs more than a pass over the waiting owners.
+ * Cancelled and moved jobs are left in their lane and skipped (the id map
+ * says which entry is live); an owner's lanes are compacted once they hold
+ * more dead entries than live ones.
+ * Methods are synchronized, as in RankedJobHeap.
+ */
+class OwnerRoundRobin implements PendingJobs {
+    private static final int COMPACT_SLACK = 16;
+
+    private static final class Owner {
+        final String name;
+        final ArrayDeque<PrintJob>[] lanes;
+        int live;          // pending jobs
+        int slots;         // lane entries, dead ones included
+        long deficit;      // pages the owner may still print
+        boolean inTurn;    // this round's quantum has already been added
+        boolean active;    // in the rotation
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Owner(String name) {
+            this.name = name;
+            this.lanes = new ArrayDeque[PriorityLanes.LEVELS];
+            for (int i = 0; i < lanes.length; i++) lanes[i] = new ArrayDeque<>();
+        }
+    }
+
+    private final FairSharePolicy policy;
+    private int capacity;
+    private final Map<String, Owner> owners = new HashMap<>();
+    private final ArrayDeque<Owner> rotation = new ArrayDeque<>();
+    private final Map<Integer, PrintJob> live = new HashMap<>();
+    private final int[] counts = new int[PriorityLanes.LEVELS];
+
+    OwnerRoundRobin(FairSharePolicy policy, int capacity) {
+        this.policy = policy;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized boolean add(PrintJob job) {
+        if (live.size() >= capacity) return false;
+        push(job);
+        return true;
+    }
+
+    @Override
+    public synchronized int addAll(PrintJob[] batch, int from, int count) {
+        int accepted = Math.min(count, capacity - live.size());
+        for (int i = from; i < from + accepted; i++) {
+            push(batch[i]);
+        }
+        return Math.max(accepted, 0);
+    }
+
+    @Override
+    public synchronized PrintJob poll() {
+        Owner owner = select(rotation, true);
+        if (owner == null) return null;
+        PrintJob job = take(owner);
+        live.remove(job.getJobId());
+        counts[job.getPriorityLevel()]--;
+        if (owner.live == 0) {
+            rotation.pollFirst();   // the winner is always at the front
+            retire(owner);
+        }
+        return job;
+    }
+
+    @Override
+    public synchronized PrintJob peek() {
+        Owner owner = select(rotation, false);
+        return owner == null ? null : head(owner);
+    }
+
+    // Newest by job id among the owners' newest jobs at the lowest level present; scans the owners
+    @Override
+    public synchronized PrintJob peekLowest() {
+        for (int level = PriorityLanes.LEVELS - 1; level >= 0; level--) {
+            if (counts[level] == 0) continue;
+            PrintJob newest = null;
+            for (Owner owner : owners.values()) {
+                Iterator<PrintJob> it = owner.lanes[level].descendingIterator();
+                while (it.hasNext()) {
+                    PrintJob job = it.next();
+                    if (!isLive(job)) continue;
+                    if (newest == null || job.getJobId() > newest.getJobId()) newest = job;
+                    break;
+                }
+            }
+            return newest;
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized PrintJob find(int jobId) { return live.get(jobId); }
+
+    @Override
+    public synchronized PrintJob remove(int jobId) {
+        PrintJob job = live.remove(jobId);
+        if (job == null) return null;
+        counts[job.getPriorityLevel()]--;
+        Owner owner = owners.get(job.getOwner());
+        owner.live--;
+        released(owner);
+        return job;
+    }
+
+    // The copy joins the back of its new level within the same owner
+    @Override
+    public synchronized boolean replace(PrintJob current, PrintJob updated) {
+        if (live.get(current.getJobId()) != current) return false;
+        live.put(updated.getJobId(), updated);
+        counts[current.getPriorityLevel()]--;
+        counts[updated.getPriorityLevel()]++;
+        Owner owner = owners.get(current.getOwner());
+        owner.lanes[updated.getPriorityLevel()].addLast(updated);
+        owner.slots++;
+        released(owner);
+        return true;
+    }
+
+    @Override
+    public synchronized int size() { return live.size(); }
+
+    @Override
+    public synchronized void setCapacity(int capacity) { this.capacity = capacity; }
+
+    @Override
+    public synchronized int count(int level) { return counts[level]; }
+
+    // Runs the rotation on copies of the owners, so the order is exactly what poll() would give
+    @Override
+    public synchronized PrintJob[] toArray() {
+        ArrayDeque<Owner> copies = new ArrayDeque<>();
+        for (Owner owner : rotation) {
+            if (owner.live > 0) copies.addLast(copyOf(owner));
+        }
+        PrintJob[] result = new PrintJob[live.size()];
+        for (int i = 0; i < result.length; i++) {
+            Owner owner = select(copies, true);
+            result[i] = take(owner);
+            if (owner.live == 0) copies.pollFirst();
+        }
+        return result;
+    }
+
+    private void push(PrintJob job) {
+        Owner owner = owners.computeIfAbsent(job.getOwner(), Owner::new);
+        owner.lanes[job.getPriorityLevel()].addLast(job);
+        owner.slots++;
+        owner.live++;
+        if (!owner.active) {
+            owner.active = true;
+            rotation.addLast(owner);
+        }
+        live.put(job.getJobId(), job);
+        counts[job.getPriorityLevel()]++;
+    }
+
+    /**
+     * Finds the owner served next. The first owner in rotation order whose
+     * next job fits in its deficit (plus this round's quantum, if its turn
+     * has not started) wins; failing that, the one needing the fewest extra
+     * rounds. With commit, the rotation is then charged as if those rounds
+     * had been played out: owners passed over end their turn and go to the
+     * back, and the winner is left at the front, in turn, with its credit.
+     */
+    private Owner select(ArrayDeque<Owner> rotation, boolean commit) {
+        Owner winner = null;
+        long rounds = 0;
+        for (Owner owner : rotation) {
+            if (owner.live > 0 && head(owner).getPages() <= credit(owner, 0)) {
+                winner = owner;
+                break;
+            }
+        }
+        if (winner == null) {
+            rounds = Long.MAX_VALUE;
+            for (Owner owner : rotation) {
+                if (owner.live == 0) continue;
+                long quantum = policy.quantumFor(owner.name);
+                long needed = (head(owner).getPages() - credit(owner, 0) + quantum - 1) / quantum;
+                if (needed < rounds) {
+                    rounds = needed;
+                    winner = owner;
+                }
+            }
+        }
+        if (winner == null || !commit) return winner;
+
+        int passed = 0;
+        while (rotation.peekFirst() != winner) {
+            Owner owner = rotation.pollFirst();
+            if (owner.live == 0) {
+                retire(owner);
+                continue;
+            }
+            owner.deficit = credit(owner, rounds);
+            owner.inTurn = false;
+            rotation.addLast(owner);
+            passed++;
+        }
+        winner.deficit = credit(winner, rounds);
+        winner.inTurn = true;
+        if (rounds > 0) {
+            // Owners behind the winner had a turn in each of the skipped rounds
+            Iterator<Owner> it = rotation.iterator();
+            it.next();
+            for (int i = rotation.size() - 1 - passed; i > 0; i--) {
+                Owner owner = it.next();
+                if (owner.live > 0) owner.deficit += rounds * policy.quantumFor(owner.name);
+            }
+        }
+        return winner;
+    }
+
+    // Deficit the owner would have after this round and extra more
+    private long credit(Owner owner, long extraRounds) {
+        long quantum = policy.quantumFor(owner.name);
+        return owner.deficit + (owner.inTurn ? 0 : quantum) + extraRounds * quantum;
+    }
+
+    // Highest-priority live job of the owner, dropping dead entries on the way; owner.live must be > 0
+    private PrintJob head(Owner owner) {
+        for (ArrayDeque<PrintJob> lane : owner.lanes) {
+            while (!lane.isEmpty()) {
+                if (isLive(lane.peekFirst())) return lane.peekFirst();
+                lane.pollFirst();
+                owner.slots--;
+            }
+        }
+        throw new IllegalStateException("Owner " + owner.name + " has no live job");
+    }
+
+    private PrintJob take(Owner owner) {
+        PrintJob job = head(owner);
+        owner.lanes[job.getPriorityLevel()].pollFirst();
+        owner.slots--;
+        owner.live--;
+        owner.deficit -= job.getPages();
+        return job;
+    }
+
+    private boolean isLive(PrintJob job) { return live.get(job.getJobId()) == job; }
+
+    // After a job left an owner other than by poll: reset an idle owner, compact a sparse one
+    private void released(Owner owner) {
+        if (owner.live == 0) {
+            for (ArrayDeque<PrintJob> lane : owner.lanes) lane.clear();
+            owner.slots = 0;
+            owner.deficit = 0;
+            owner.inTurn = false;
+        } else if (owner.slots > 2 * owner.live + COMPACT_SLACK) {
+            for (ArrayDeque<PrintJob> lane : owner.lanes) lane.removeIf(job -> !isLive(job));
+            owner.slots = owner.live;
+        }
+    }
+
+    // An owner leaving the rotation starts from zero next time (deficit is not banked while idle)
+    private void retire(Owner owner) {
+        owner.active = false;
+        owner.deficit = 0;
+        owner.inTurn = false;
+        if (owners.get(owner.name) == owner) owners.remove(owner.name);
+    }
+
+    private Owner copyOf(Owner owner) {
+        Owner copy = new Owner(owner.name);
+        for (int level = 0; level < owner.lanes.length; level++) {
+            for (PrintJob job : owner.lanes[level]) {
+                if (isLive(job)) copy.lanes[level].addLast(job);
+            }
+        }
+        copy.live = owner.live;
+        copy.slots = owner.live;
+        copy.deficit = owner.deficit;
+        copy.inTurn = owner.inTurn;
+        copy.active = true;
+        return copy;
+    }
+}
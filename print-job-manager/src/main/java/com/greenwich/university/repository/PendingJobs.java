@@ -0,0 +1,44 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+
+/**
+ * Storage for jobs waiting to be printed, in serving order.
+ * Implementations decide whether they can be shared between threads.
+ */
+interface PendingJobs {
+    // Adds the job unless the store already holds capacity jobs
+    boolean add(PrintJob job);
+
+    // Adds jobs[from..from+count) in order until the store is full; returns how many were added
+    int addAll(PrintJob[] jobs, int from, int count);
+
+    // Removes and returns the next job to serve, or null when empty
+    PrintJob poll();
+
+    PrintJob peek();
+
+    // Newest job of the lowest priority level present, or null when empty; may scan
+    PrintJob peekLowest();
+
+    // The pending job with this id, or null
+    PrintJob find(int jobId);
+
+    // Takes the job out of the store; returns it, or null if it is no longer pending
+    PrintJob remove(int jobId);
+
+    // Swaps a pending job for its copy at another priority, moving it to its new
+    // place in the serving order; false if current is no longer the pending job
+    boolean replace(PrintJob current, PrintJob updated);
+
+    int size();
+
+    // Changes the bound; going below the current size only stops new adds until jobs leave
+    void setCapacity(int capacity);
+
+    // Number of pending jobs at a priority level (0 = HIGH, 1 = NORMAL, 2 = LOW)
+    int count(int level);
+
+    // Pending jobs in serving order, as a copy
+    PrintJob[] toArray();
+}
@@ -1,86 +1,586 @@
 package com.greenwich.university.repository;
 
 import com.greenwich.university.domain.PrintJob;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Pending print jobs plus the served-job history used for statistics.
+ * The serving order comes from a SchedulingPolicy (priority FIFO by default).
+ * In concurrent mode the queue can be shared by every submitter and printer;
+ * with the default policy enqueue/dequeue are then lock-free. Otherwise the
+ * queue must stay on one thread.
+ * Pending jobs can be looked up, cancelled or reprioritized by job id without
+ * scanning the queue. Jobs with a deadline are tracked on a timer wheel and
+ * expire (or are demoted) once it passes; the wheel is advanced by dequeues
+ * and by expireOverdue(), so no extra thread is needed.
+ * With a journal attached, every change is also logged without serializing
+ * the queue: a job is logged before it can be served, so its dequeue always
+ * follows it in the log, and other changes are logged once they happened.
+ * Jobs submitted at the same moment may be logged in a different order from
+ * the one they were queued in. Snapshots briefly hold off every change.
+ */
 public class PrintJobQueue {
-    public PrintJob[] jobs;
-    private int size;
-    private final int capacity;
-    private int servedToday = 0;
-    private PrintJob[] historyJobs;
-    private int historySize = 0;
+    // What happens to a pending job whose deadline has passed
+    public enum OverdueAction { EXPIRE, DEMOTE }
+
+    private static final long DEADLINE_TICK_NANOS = 1_000_000_000L;
+    private static final int DEADLINE_SLOTS = 512;   // one turn of the wheel is about 8.5 minutes
+
+    private final PendingJobs pending;
+    private volatile int capacity;
+    private final boolean concurrent;
+    private final SchedulingPolicy policy;
+    private final JobHistory history;
+    private final Clock clock;
+    private final boolean systemTime;   // clock is the real time, so System.nanoTime can time waits
+    private final QueueStats stats;
+    private final FileNameIndex fileNameIndex = new FileNameIndex();
+    private volatile QueueJournal journal;
+    // Logged changes share the read side and run side by side; a snapshot takes the write side
+    private final ReentrantReadWriteLock journalLock = new ReentrantReadWriteLock();
+    // Priority changes of one job must reach the log in the order they happened
+    private final Object priorityChangeLock = new Object();
+    private volatile SpoolStore spool;
+    // Submitters blocked in offer(); the lock is only taken when someone is waiting
+    private final ReentrantLock spaceLock = new ReentrantLock();
+    private final Condition spaceFreed = spaceLock.newCondition();
+    private final AtomicInteger waitingSubmitters = new AtomicInteger();
+    private final TimerWheel deadlines;
+    private volatile OverdueAction overdueAction = OverdueAction.EXPIRE;
 
     public PrintJobQueue(int capacity) {
+        this(capacity, false);
+    }
+
+    public PrintJobQueue(int capacity, boolean concurrent) {
+        this(capacity, concurrent, new PriorityFifoPolicy());
+    }
+
+    public PrintJobQueue(int capacity, boolean concurrent, SchedulingPolicy policy) {
+        this(capacity, concurrent, capacity * 10, null, policy);
+    }
+
+    public PrintJobQueue(int capacity, boolean concurrent, int historyLimit, Duration historyWindow) {
+        this(capacity, concurrent, historyLimit, historyWindow, new PriorityFifoPolicy());
+    }
+
+    /**
+     * @param historyLimit  served jobs kept for statistics
+     * @param historyWindow also forget jobs served longer ago than this; null keeps by count only
+     * @param policy        serving order; anything but PriorityFifoPolicy or FairSharePolicy uses a locked heap
+     */
+    public PrintJobQueue(int capacity, boolean concurrent, int historyLimit, Duration historyWindow,
+                         SchedulingPolicy policy) {
+        this(capacity, concurrent, historyLimit, historyWindow, policy, false);
+    }
+
+    /**
+     * @param compactHistory keep served jobs as primitive columns (see JobHistory) rather
+     *                       than objects; meant for long retention windows. History
+     *                       is then searched by scanning it instead of through the index.
+     */
+    public PrintJobQueue(int capacity, boolean concurrent, int historyLimit, Duration historyWindow,
+                         SchedulingPolicy policy, boolean compactHistory) {
+        this(capacity, concurrent, historyLimit, historyWindow, policy, compactHistory, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock where dequeue times, deadlines, history age and stats windows are read
+     *              from; a simulation passes its own clock to run the queue faster than real time
+     */
+    public PrintJobQueue(int capacity, boolean concurrent, int historyLimit, Duration historyWindow,
+                         SchedulingPolicy policy, boolean compactHistory, Clock clock) {
         this.capacity = capacity;
-        this.jobs = new PrintJob[capacity];
-        this.size = 0;
-        this.historyJobs = new PrintJob[capacity * 10];
-        this.historySize = 0;
+        this.concurrent = concurrent;
+        this.policy = policy;
+        this.clock = clock;
+        this.systemTime = clock.equals(Clock.system(clock.getZone()));
+        this.pending = createStore(capacity, concurrent, policy);
+        this.history = new JobHistory(historyLimit, historyWindow, compactHistory, clock);
+        this.stats = new QueueStats(15, 15, clock);  // health looks at the last 15 minutes
+        this.deadlines = new TimerWheel(DEADLINE_TICK_NANOS, DEADLINE_SLOTS, nowNanos());
+        // Jobs stay searchable until they fall out of the history
+        if (!compactHistory) this.history.setEvictionListener(fileNameIndex::remove);
+    }
+
+    private static PendingJobs createStore(int capacity, boolean concurrent, SchedulingPolicy policy) {
+        // The default order needs no comparisons, so it keeps the O(1) lanes
+        if (policy instanceof PriorityFifoPolicy) {
+            return concurrent ? new ConcurrentPriorityLanes(capacity) : new PriorityLanes(capacity);
+        }
+        // Fair share depends on which owners are waiting, so it cannot be a per-job rank
+        if (policy instanceof FairSharePolicy) return new OwnerRoundRobin((FairSharePolicy) policy, capacity);
+        return new RankedJobHeap(policy, capacity);
+    }
+
+    public SchedulingPolicy getPolicy() { return policy; }
+
+    public Clock getClock() { return clock; }
+
+    public boolean isConcurrent() { return concurrent; }
+
+    /**
+     * Turns on journaling: replays whatever the journal holds into this queue,
+     * which must still be empty, then logs every later enqueue and dequeue.
+     */
+    public void enableJournal(QueueJournal journal) throws IOException {
+        if (!isEmpty() || history.size() > 0) throw new IllegalStateException("Journal must be attached to an empty queue");
+        long now = nowNanos();
+        long ticks = ticks();
+        journal.recover(job -> {
+            // Waited since it was submitted, including while we were down
+            job.stampQueued(ticks - Math.max(0, now - job.getSubmissionEpochNanos()));
+            if (!addPending(job)) throw new IllegalStateException("Queue capacity too small to recover job " + job.getJobId());
+        }, this::restoreServed, history.getMaxEntries());
+        this.journal = journal;
+    }
+
+    /**
+     * Keeps job payloads in spool: from now on a job that leaves without
+     * being printed (cancelled, shed or expired) has its payload freed here.
+     * A served job's payload is freed by whoever delivers it to the printer.
+     * Payloads of jobs that are not pending (say, served before a restart)
+     * are dropped straight away, so attach after enableJournal().
+     */
+    public void attachSpool(SpoolStore spool) throws IOException {
+        spool.retainOnly(jobId -> pending.find(jobId) != null);
+        this.spool = spool;
+    }
+
+    public SpoolStore getSpool() { return spool; }
+
+    // Flushes and closes the journal, if any; the queue keeps working in memory only
+    public void closeJournal() throws IOException {
+        journalLock.writeLock().lock();
+        try {
+            QueueJournal current = journal;
+            if (current == null) return;
+            journal = null;
+            current.close();
+        } finally {
+            journalLock.writeLock().unlock();
+        }
     }
 
     // Core operations
     public boolean enqueue(PrintJob job) {
-        if (size >= capacity) return false;
-        jobs[size++] = job;
-        bubbleUp(size - 1);
-        return true;
+        job.stampQueued(ticks());
+        QueueJournal j = beginLogged();
+        if (j == null) return addPending(job);
+        try {
+            if (isFull()) return false;
+            // Logged before a printer can take it, so its dequeue is logged after it
+            j.logEnqueue(job);
+            if (addPending(job)) return true;
+            j.logCancel(job);   // another submitter took the last slot; replay drops the job again
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal job " + job.getJobId(), e);
+        } finally {
+            endLogged(j);
+        }
+    }
+
+    /**
+     * Bulk enqueue: jobs are added in order until the queue is full, with one
+     * capacity reservation for the whole batch. Returns how many were accepted;
+     * every job from that index on was rejected because the queue was full.
+     */
+    public int enqueueAll(PrintJob[] jobs, int count) {
+        long ticks = ticks();
+        for (int i = 0; i < count; i++) jobs[i].stampQueued(ticks);
+        QueueJournal j = beginLogged();
+        if (j == null) return addPendingAll(jobs, count);
+        try {
+            // Only jobs logged up front may be added; room freed meanwhile is left for the next batch
+            int logged = Math.max(0, Math.min(count, capacity - getSize()));
+            for (int i = 0; i < logged; i++) j.logEnqueue(jobs[i]);
+            int accepted = addPendingAll(jobs, logged);
+            for (int i = accepted; i < logged; i++) j.logCancel(jobs[i]);
+            return accepted;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal batch", e);
+        } finally {
+            endLogged(j);
+        }
+    }
+
+    /**
+     * Enqueue that waits up to timeout for room instead of failing at once.
+     * Only useful in concurrent mode; otherwise nobody can free a slot while
+     * the caller waits, so this behaves like enqueue.
+     */
+    public boolean offer(PrintJob job, long timeout, TimeUnit unit) throws InterruptedException {
+        if (enqueue(job)) return true;
+        if (!concurrent || timeout <= 0) return false;
+        long nanos = unit.toNanos(timeout);
+        spaceLock.lockInterruptibly();
+        // Announce before retrying: a dequeue either sees the count and signals, or ran before our retry
+        waitingSubmitters.incrementAndGet();
+        boolean added = false;
+        try {
+            while (!(added = enqueue(job)) && nanos > 0) {
+                nanos = spaceFreed.awaitNanos(nanos);
+            }
+            return added;
+        } finally {
+            waitingSubmitters.decrementAndGet();
+            // Pass on room that is still free (a swallowed wakeup, or several slots freed at once)
+            if (!isFull() && waitingSubmitters.get() > 0) spaceFreed.signal();
+            spaceLock.unlock();
+        }
+    }
+
+    public int getWaitingSubmitters() { return waitingSubmitters.get(); }
+
+    private void signalSpace() {
+        if (waitingSubmitters.get() == 0) return;
+        spaceLock.lock();
+        try {
+            spaceFreed.signal();
+        } finally {
+            spaceLock.unlock();
+        }
     }
 
     public PrintJob dequeue() {
-        if (isEmpty()) return null;
-        PrintJob result = jobs[0];
-        servedToday++;
-        jobs[0] = jobs[--size];
-        if (size > 0) bubbleDown(0);
+        PrintJob result = dequeueLogged();
+        // Also covers slots freed by jobs that expired on the way
+        signalSpace();
+        return result;
+    }
 
-        // Set dequeue time
-        result.setDequeueTime(LocalDateTime.now());
+    public void setOverdueAction(OverdueAction action) { this.overdueAction = action; }
+    public OverdueAction getOverdueAction() { return overdueAction; }
 
-        // Add to history for statistics - THIS WAS MISSING!
-        if (historySize < historyJobs.length) {
-            historyJobs[historySize++] = result;
-        } else {
-            // Shift array left to make room (simple implementation)
-            System.arraycopy(historyJobs, 1, historyJobs, 0, historyJobs.length - 1);
-            historyJobs[historyJobs.length - 1] = result;
+    /**
+     * Expires (or demotes) every pending job whose deadline has passed and
+     * returns how many were affected. Dequeue does this on its own; call it
+     * when no printer is pulling jobs so the queue still sheds stale work.
+     */
+    public int expireOverdue() {
+        long now = nowNanos();
+        if (!deadlines.isDue(now)) return 0;
+        QueueJournal j = beginLogged();
+        int handled;
+        try {
+            handled = handleOverdue(now);
+        } finally {
+            if (j != null) endLogged(j);
+        }
+        if (handled > 0) signalSpace();
+        return handled;
+    }
+
+    // Caller holds the journal's read lock if there is one; the wheel lock is released before jobs are touched
+    private int handleOverdue(long now) {
+        int handled = 0;
+        for (int jobId : deadlines.advance(now)) {
+            if (overdueAction == OverdueAction.DEMOTE) {
+                PrintJob current = pending.find(jobId);
+                if (current == null || current.getPriorityLevel() == PriorityLanes.LEVELS - 1) continue;
+                synchronized (priorityChangeLock) {
+                    PrintJob demoted = reprioritizePending(jobId, "LOW");
+                    if (demoted == null) continue;
+                    logUnchecked(j -> j.logReprioritize(demoted));
+                }
+            } else {
+                // Null when it was served or cancelled before its deadline
+                PrintJob job = pending.remove(jobId);
+                if (job == null) continue;
+                retireExpired(job);
+            }
+            handled++;
+        }
+        return handled;
+    }
+
+    // An expired job leaves like a served one, but is recorded as expired and not in the wait stats
+    private void retireExpired(PrintJob job) {
+        job.markExpired(LocalDateTime.now(clock));
+        if (history.isCompact()) fileNameIndex.remove(job);
+        history.add(job, job.getDequeueEpochNanos() - job.getSubmissionEpochNanos());
+        stats.recordExpired(job.getPages());
+        logUnchecked(j -> j.logExpire(job));
+        releasePayload(job);
+    }
+
+    private void releasePayload(PrintJob job) {
+        SpoolStore s = spool;
+        if (s == null) return;
+        try {
+            s.remove(job.getJobId());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not free spooled payload of job " + job.getJobId(), e);
+        }
+    }
+
+    private interface JournalWrite {
+        void write(QueueJournal journal) throws IOException;
+    }
+
+    private void logUnchecked(JournalWrite write) {
+        QueueJournal j = journal;
+        if (j == null) return;
+        try {
+            write.write(j);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal deadline handling", e);
+        }
+    }
+
+    // The attached journal with its read lock held, or null (and nothing held) when there is none
+    private QueueJournal beginLogged() {
+        if (journal == null) return null;
+        journalLock.readLock().lock();
+        QueueJournal j = journal;
+        if (j == null) journalLock.readLock().unlock();
+        return j;
+    }
+
+    private void endLogged(QueueJournal j) {
+        journalLock.readLock().unlock();
+        if (j.isSnapshotDue()) compact(j);
+    }
+
+    private void compact(QueueJournal j) {
+        journalLock.writeLock().lock();
+        try {
+            // Another change may have compacted first, or the journal been closed meanwhile
+            if (journal == j && j.isSnapshotDue()) j.writeSnapshot(pending.toArray(), history);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write queue snapshot", e);
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    private long nowNanos() { return PrintJob.toEpochNanos(LocalDateTime.now(clock)); }
+
+    // Timestamps for measuring latency: System.nanoTime never jumps when the wall clock is reset
+    private long ticks() { return systemTime ? System.nanoTime() : nowNanos(); }
+
+    private PrintJob dequeueLogged() {
+        QueueJournal j = beginLogged();
+        if (j == null) return serveNext();
+        PrintJob result = null;
+        try {
+            result = serveNext();
+            if (result != null) j.logDequeue(result);
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal job " + result.getJobId(), e);
+        } finally {
+            endLogged(j);
+        }
+    }
+
+    /**
+     * Records that a printer finished job, which must have come from dequeue():
+     * the time since then goes into the service-time histograms.
+     */
+    public void recordPrinted(PrintJob job) {
+        stats.recordPrinted(job.getPriorityLevel(), ticks() - job.getDequeuedTicks());
+    }
+
+    // The pending job with this id, or null once it has been served or cancelled
+    public PrintJob lookup(int jobId) { return pending.find(jobId); }
+
+    // Removes a pending job; returns it, or null if it is not (or no longer) pending
+    public PrintJob cancel(int jobId) {
+        PrintJob cancelled = cancelLogged(jobId);
+        if (cancelled != null) {
+            signalSpace();
+            releasePayload(cancelled);
+        }
+        return cancelled;
+    }
+
+    private PrintJob cancelLogged(int jobId) {
+        QueueJournal j = beginLogged();
+        if (j == null) return cancelPending(jobId);
+        try {
+            PrintJob cancelled = cancelPending(jobId);
+            if (cancelled != null) j.logCancel(cancelled);
+            return cancelled;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal cancel of job " + jobId, e);
+        } finally {
+            endLogged(j);
+        }
+    }
+
+    /**
+     * Moves a pending job to another priority. The job keeps its id and submit
+     * time; with the default policy it joins the back of its new priority level.
+     * Returns the job as it is now queued, or null if it is no longer pending.
+     */
+    public PrintJob changePriority(int jobId, String priority) {
+        if (!PrintJob.isValidPriority(priority)) throw new IllegalArgumentException("Invalid priority: " + priority);
+        QueueJournal j = beginLogged();
+        if (j == null) return reprioritizePending(jobId, priority);
+        try {
+            synchronized (priorityChangeLock) {
+                PrintJob updated = reprioritizePending(jobId, priority);
+                if (updated != null) j.logReprioritize(updated);
+                return updated;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not journal priority change of job " + jobId, e);
+        } finally {
+            endLogged(j);
+        }
+    }
+
+    private PrintJob cancelPending(int jobId) {
+        PrintJob cancelled = pending.remove(jobId);
+        if (cancelled != null) fileNameIndex.remove(cancelled);
+        return cancelled;
+    }
+
+    private PrintJob reprioritizePending(int jobId, String priority) {
+        while (true) {
+            PrintJob current = pending.find(jobId);
+            if (current == null) return null;
+            PrintJob updated = current.withPriority(priority);
+            if (updated.getPriorityLevel() == current.getPriorityLevel()) return current;
+            // Indexed before it is published, so a printer that takes it at once can unindex it
+            fileNameIndex.add(updated);
+            // Fails only if another thread served, cancelled or moved the job first
+            if (pending.replace(current, updated)) {
+                fileNameIndex.remove(current);
+                return updated;
+            }
+            fileNameIndex.remove(updated);
+        }
+    }
+
+    // Jobs are indexed before they are published, so a removal can never come before the add
+    private boolean addPending(PrintJob job) {
+        fileNameIndex.add(job);
+        if (!pending.add(job)) {
+            fileNameIndex.remove(job);
+            return false;
         }
+        if (job.hasDeadline()) deadlines.schedule(job.getJobId(), job.getDeadlineEpochNanos());
+        return true;
+    }
+
+    private int addPendingAll(PrintJob[] jobs, int count) {
+        fileNameIndex.addAll(jobs, count);
+        int accepted = pending.addAll(jobs, 0, count);
+        for (int i = accepted; i < count; i++) fileNameIndex.remove(jobs[i]);
+        for (int i = 0; i < accepted; i++) {
+            if (jobs[i].hasDeadline()) deadlines.schedule(jobs[i].getJobId(), jobs[i].getDeadlineEpochNanos());
+        }
+        return accepted;
+    }
+
+    private PrintJob serveNext() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        long nowNanos = PrintJob.toEpochNanos(now);
+        if (deadlines.isDue(nowNanos)) handleOverdue(nowNanos);
+        PrintJob result = pending.poll();
+        // The wheel ticks once a second; never print a job whose deadline passed since the last tick
+        while (result != null && overdueAction == OverdueAction.EXPIRE && result.getDeadlineEpochNanos() <= nowNanos) {
+            retireExpired(result);
+            result = pending.poll();
+        }
+        if (result == null) return null;
+        // Set dequeue time
+        result.setDequeueTime(now);
+        long ticks = ticks();
+        result.stampDequeued(ticks);
+
+        // History keeps the stored wait (submit to dequeue); stats time the stay in the
+        // queue on the monotonic stamps. Only these two lock, and only printers reach them.
+        // A compact history keeps no job objects for the index to point at
+        if (history.isCompact()) fileNameIndex.remove(result);
+        history.add(result, result.getDequeueEpochNanos() - result.getSubmissionEpochNanos());
+        stats.recordServed(result.getPriorityLevel(), ticks - result.getQueuedTicks());
 
         return result;
     }
 
-    public PrintJob peek() { return isEmpty() ? null : jobs[0]; }
-    public boolean isEmpty() { return size == 0; }
-    public boolean isFull() { return size >= capacity; }
-    public int getSize() { return size; }
+    // A served job read back from the journal goes to history and the index, not to live stats
+    private void restoreServed(PrintJob job) {
+        // Index first: if the job is already outside the history window, eviction unindexes it again
+        if (!history.isCompact()) fileNameIndex.add(job);
+        history.add(job, job.getDequeueEpochNanos() - job.getSubmissionEpochNanos());
+    }
+
+    // Candidate for load shedding: the newest job at the lowest priority level present
+    public PrintJob peekLowest() { return pending.peekLowest(); }
+
+    /**
+     * Changes how many jobs the queue may hold. Storage grows as needed and is
+     * kept when shrinking; a bound below the current size only blocks new jobs.
+     */
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        pending.setCapacity(capacity);
+        this.capacity = capacity;
+        signalSpace();
+    }
+
+    public int getCapacity() { return capacity; }
+
+    public PrintJob peek() { return pending.peek(); }
+    public boolean isEmpty() { return pending.size() == 0; }
+    public boolean isFull() { return pending.size() >= capacity; }
+    public int getSize() { return pending.size(); }
+
+    // Pending jobs in serving order (a copy, the store stays private)
+    public PrintJob[] toArray() { return pending.toArray(); }
 
     // Search functionality
     public PrintJob[] searchByFileName(String fileName) {
-        PrintJob[] temp = new PrintJob[size];
-        int count = 0;
-        for (int i = 0; i < size; i++) {
-            if (jobs[i].matchesFileName(fileName)) {
-                temp[count++] = jobs[i];
-            }
+        return searchByFileName(fileName, false, FileNameIndex.Scope.QUEUED, 0, Integer.MAX_VALUE).getJobs();
+    }
+
+    // Indexed substring or prefix search over queued and/or retained jobs, one page at a time
+    public SearchPage searchByFileName(String term, boolean prefix, FileNameIndex.Scope scope, int offset, int limit) {
+        if (!history.isCompact() || scope == FileNameIndex.Scope.QUEUED || term.isEmpty()) {
+            return fileNameIndex.search(term, prefix, scope, offset, limit);
         }
-        PrintJob[] result = new PrintJob[count];
-        System.arraycopy(temp, 0, result, 0, count);
-        return result;
+        // Compact history: queued matches from the index, served ones from a history scan
+        List<PrintJob> matches = new ArrayList<>(history.findByFileName(term, prefix));
+        if (scope == FileNameIndex.Scope.ALL) {
+            Collections.addAll(matches, fileNameIndex.search(term, prefix, FileNameIndex.Scope.QUEUED,
+                    0, Integer.MAX_VALUE).getJobs());
+        }
+        matches.sort(Comparator.comparingInt(PrintJob::getJobId));
+        int from = Math.min(Math.max(offset, 0), matches.size());
+        int to = (int) Math.min((long) from + limit, matches.size());
+        return new SearchPage(matches.subList(from, to).toArray(new PrintJob[0]), from, matches.size());
     }
 
 
     public String getStats() {
         int[] counts = getPriorityCounts();
         return String.format("Jobs: %d/%d | HIGH:%d NORMAL:%d LOW:%d",
-                size, capacity, counts[0], counts[1], counts[2]);
+                pending.size(), capacity, counts[0], counts[1], counts[2]);
     }
 
     public double getCapacityPercentage() {
-        return (double) size / capacity * 100;
+        return (double) pending.size() / capacity * 100;
     }
 
     public double[] getPriorityDistribution() {
+        int size = pending.size();
         if (size == 0) return new double[]{0, 0, 0};
         int[] counts = getPriorityCounts();
         return new double[]{
@@ -90,24 +590,20 @@ public class PrintJobQueue {
         };
     }
 
-    public double getAverageWaitingTime() {
-        if (historySize == 0) return 0;
-        double totalMinutes = 0;
-        for (int i = 0; i < historySize; i++) {
-            PrintJob job = historyJobs[i];
-            if (job.getSubmissionTime() != null && job.getDequeueTime() != null) {
-                long seconds = Duration.between(job.getSubmissionTime(), job.getDequeueTime()).toSeconds();
-                totalMinutes += seconds;
-            }
-        }
-        return totalMinutes / historySize;
-    }
+    // Mean wait in seconds over the retained history
+    public double getAverageWaitingTime() { return history.getAverageWaitSeconds(); }
 
-    public int getTodayServedCount() { return servedToday; }
+    // Recent-weighted wait in seconds; reacts faster than the history mean
+    public double getEwmaWaitingTime() { return stats.getEwmaWaitSeconds(); }
 
+    public JobHistory getHistory() { return history; }
+    public QueueStats getStatistics() { return stats; }
+
+    public int getTodayServedCount() { return (int) stats.getServedCount(); }
+
+    // Based on jobs served in the sliding window, not on everything since startup
     public int getHealthScore() {
-        int score = 100;
-        double waitTime = getAverageWaitingTime();
+        double waitTime = stats.getWindowAverageWaitSeconds();
 
         if (waitTime < 10) {
             return 100; // Excellent (80-100 range)
@@ -118,49 +614,7 @@ public class PrintJobQueue {
         }
     }
     private int[] getPriorityCounts() {
-        int[] counts = {0, 0, 0}; // HIGH, NORMAL, LOW
-        for (int i = 0; i < size; i++) {
-            switch (jobs[i].getPriority()) {
-                case "HIGH": counts[0]++; break;
-                case "NORMAL": counts[1]++; break;
-                case "LOW": counts[2]++; break;
-            }
-        }
-        return counts;
-    }
-
-    private void bubbleUp(int index) {
-        while (index > 0) {
-            int parent = (index - 1) / 2;
-            if (compareJobs(jobs[index], jobs[parent]) <= 0) break;
-            swap(index, parent);
-            index = parent;
-        }
-    }
-
-    private void bubbleDown(int index) {
-        while (true) {
-            int left = 2 * index + 1;
-            int right = 2 * index + 2;
-            int largest = index;
-
-            if (left < size && compareJobs(jobs[left], jobs[largest]) > 0) largest = left;
-            if (right < size && compareJobs(jobs[right], jobs[largest]) > 0) largest = right;
-            if (largest == index) break;
-
-            swap(index, largest);
-            index = largest;
-        }
-    }
-
-    private int compareJobs(PrintJob j1, PrintJob j2) {
-        int diff = j1.getPriorityValue() - j2.getPriorityValue();
-        return diff != 0 ? diff : j2.getSubmissionTime().compareTo(j1.getSubmissionTime());
-    }
-
-    private void swap(int i, int j) {
-        PrintJob temp = jobs[i];
-        jobs[i] = jobs[j];
-        jobs[j] = temp;
+        // HIGH, NORMAL, LOW - each lane already knows its length
+        return new int[]{pending.count(0), pending.count(1), pending.count(2)};
     }
 }
\ No newline at end of file
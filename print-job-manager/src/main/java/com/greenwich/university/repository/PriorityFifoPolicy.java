@@ -0,0 +1,16 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+
+/**
+ * The default order: higher priority first, then oldest submission.
+ * PrintJobQueue recognises this policy and serves it from per-priority lanes
+ * instead of a heap, so it costs O(1) per job and supports concurrent mode.
+ */
+public class PriorityFifoPolicy implements SchedulingPolicy {
+    @Override
+    public String getName() { return "Priority (FIFO)"; }
+
+    @Override
+    public long rank(PrintJob job) { return job.getPriorityLevel(); }
+}
@@ -0,0 +1,188 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One FIFO lane per priority level (HIGH, NORMAL, LOW).
+ * Each lane is a ring buffer, so add and poll are O(1) and never compare jobs.
+ * Serving the head of the highest non-empty lane gives the same order as the
+ * old heap: higher priority first, then oldest submission.
+ * A map from job id to the live job makes lookup O(1). Cancelled or moved
+ * jobs are not cut out of their ring; they stay behind as dead slots that
+ * poll skips, and a lane is compacted once its ring fills up.
+ * Not thread-safe; see ConcurrentPriorityLanes for the shared version.
+ */
+class PriorityLanes implements PendingJobs {
+    static final int LEVELS = 3;
+
+    private final PrintJob[][] lanes;
+    private int capacity;
+    private final int[] heads = new int[LEVELS];
+    private final int[] used = new int[LEVELS];   // ring slots in use, dead ones included
+    private final int[] counts = new int[LEVELS]; // live jobs only
+    private final Map<Integer, PrintJob> live = new HashMap<>();
+    private int size;
+
+    PriorityLanes(int capacity) {
+        // A single lane may hold the whole queue; twice that leaves room for dead
+        // slots, so a compaction always frees at least capacity slots
+        this.capacity = capacity;
+        this.lanes = new PrintJob[LEVELS][capacity * 2];
+    }
+
+    @Override
+    public boolean add(PrintJob job) {
+        if (size >= capacity) return false;
+        append(job);
+        size++;
+        return true;
+    }
+
+    @Override
+    public int addAll(PrintJob[] jobs, int from, int count) {
+        int accepted = Math.max(0, Math.min(count, capacity - size));   // capacity may have shrunk below size
+        for (int i = from; i < from + accepted; i++) {
+            append(jobs[i]);
+        }
+        size += accepted;
+        return accepted;
+    }
+
+    private void append(PrintJob job) {
+        int level = job.getPriorityLevel();
+        PrintJob[] lane = lanes[level];
+        if (used[level] == lane.length) compact(level);
+        lane[(heads[level] + used[level]) % lane.length] = job;
+        used[level]++;
+        counts[level]++;
+        live.put(job.getJobId(), job);
+    }
+
+    @Override
+    public PrintJob poll() {
+        for (int level = 0; level < LEVELS; level++) {
+            skipDead(level);
+            if (counts[level] == 0) continue;
+            PrintJob job = takeHead(level);
+            live.remove(job.getJobId());
+            counts[level]--;
+            size--;
+            return job;
+        }
+        return null;
+    }
+
+    @Override
+    public PrintJob peek() {
+        for (int level = 0; level < LEVELS; level++) {
+            skipDead(level);
+            if (counts[level] > 0) return lanes[level][heads[level]];
+        }
+        return null;
+    }
+
+    // Walks back from the tail of the lowest non-empty lane past dead slots
+    @Override
+    public PrintJob peekLowest() {
+        for (int level = LEVELS - 1; level >= 0; level--) {
+            if (counts[level] == 0) continue;
+            PrintJob[] lane = lanes[level];
+            for (int i = used[level] - 1; i >= 0; i--) {
+                PrintJob job = lane[(heads[level] + i) % lane.length];
+                if (isLive(job)) return job;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public PrintJob find(int jobId) { return live.get(jobId); }
+
+    @Override
+    public PrintJob remove(int jobId) {
+        PrintJob job = live.remove(jobId);
+        if (job == null) return null;
+        counts[job.getPriorityLevel()]--;
+        size--;
+        return job;
+    }
+
+    // The old slot goes dead and the copy joins the back of its new lane
+    @Override
+    public boolean replace(PrintJob current, PrintJob updated) {
+        if (!isLive(current)) return false;
+        counts[current.getPriorityLevel()]--;
+        append(updated);
+        return true;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    // Rings grow with the bound but never shrink
+    @Override
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+        for (int level = 0; level < LEVELS; level++) {
+            if (lanes[level].length < capacity * 2) {
+                PrintJob[] grown = new PrintJob[capacity * 2];
+                lanes[level] = copyLive(level, grown);
+            }
+        }
+    }
+
+    @Override
+    public int count(int level) { return counts[level]; }
+
+    @Override
+    public PrintJob[] toArray() {
+        PrintJob[] result = new PrintJob[size];
+        int n = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            PrintJob[] lane = lanes[level];
+            for (int i = 0; i < used[level]; i++) {
+                PrintJob job = lane[(heads[level] + i) % lane.length];
+                if (isLive(job)) result[n++] = job;
+            }
+        }
+        return result;
+    }
+
+    private boolean isLive(PrintJob job) { return live.get(job.getJobId()) == job; }
+
+    private void skipDead(int level) {
+        while (used[level] > 0 && !isLive(lanes[level][heads[level]])) {
+            takeHead(level);
+        }
+    }
+
+    private PrintJob takeHead(int level) {
+        PrintJob[] lane = lanes[level];
+        PrintJob job = lane[heads[level]];
+        lane[heads[level]] = null;
+        heads[level] = (heads[level] + 1) % lane.length;
+        used[level]--;
+        return job;
+    }
+
+    // Slides the live jobs of a full ring to the front, in order
+    private void compact(int level) {
+        PrintJob[] lane = lanes[level];
+        System.arraycopy(copyLive(level, new PrintJob[lane.length]), 0, lane, 0, lane.length);
+    }
+
+    // Copies the live jobs of a lane to the front of target and resets the lane's ring indexes
+    private PrintJob[] copyLive(int level, PrintJob[] target) {
+        PrintJob[] lane = lanes[level];
+        int n = 0;
+        for (int i = 0; i < used[level]; i++) {
+            PrintJob job = lane[(heads[level] + i) % lane.length];
+            if (isLive(job)) target[n++] = job;
+        }
+        heads[level] = 0;
+        used[level] = n;
+        return target;
+    }
+}
@@ -0,0 +1,528 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Write-ahead journal for a PrintJobQueue.
+ * Every enqueue, dequeue, cancel and priority change is appended to queue.log as a small binary record.
+ * Logging a change does not encode or write anything: the caller drops the
+ * job and the record type into a bounded ring that any number of threads
+ * append to without locking. One writer thread drains the ring into a direct
+ * buffer: it finds the whole run of filled slots, encodes it in one pass,
+ * then hands the slots back with release stores. It fsyncs once per
+ * syncEvery records, or as soon as the ring stays quiet for a moment (group
+ * commit). A crash therefore loses the last millisecond or so of changes,
+ * and never more than syncEvery written records plus what was still in the
+ * ring. With syncEvery 1 every change waits until
+ * its record is on disk, and whichever caller gets to the file first fsyncs
+ * for everyone queued behind it. Every snapshotEvery records the live queue
+ * and history are written to snapshot.bin and the log is truncated. Recovery
+ * loads the snapshot and replays the log on top of it.
+ *
+ * Record layout (snapshot uses the same records after a small header):
+ *   ENQUEUE: type, jobId, level, pages, submitted (epoch nanos), name length, UTF-8 name
+ *   DEQUEUE: type, jobId, dequeued (epoch nanos)
+ *   CANCEL: type, jobId
+ *   REPRIORITIZE: type, jobId, new level
+ *   DEADLINE: type, jobId, deadline (epoch nanos); follows the ENQUEUE of a job that has one
+ *   EXPIRE: type, jobId, expired (epoch nanos); like DEQUEUE, for a job dropped unprinted
+ *   OWNER: type, jobId, owner length, UTF-8 owner; follows the ENQUEUE of a job not owned by the default owner
+ */
+public class QueueJournal implements Closeable {
+    private static final byte ENQUEUE = 1;
+    private static final byte DEQUEUE = 2;
+    private static final byte CANCEL = 3;
+    private static final byte REPRIORITIZE = 4;
+    private static final byte DEADLINE = 5;
+    private static final byte EXPIRE = 6;
+    private static final byte OWNER = 7;
+    private static final int SNAPSHOT_MAGIC = 0x504A5131; // "PJQ1"
+    private static final int DEQUEUE_SIZE = 1 + 4 + 8;
+    private static final int REPRIORITIZE_SIZE = 1 + 4 + 1;
+    private static final int DEADLINE_SIZE = 1 + 4 + 8;
+    private static final int BUFFER_SIZE = 1 << 17; // room for the longest record a name can produce
+    private static final int RING_SIZE = 1 << 14;   // power of two
+    private static final int RING_MASK = RING_SIZE - 1;
+    private static final long FLUSH_INTERVAL_NANOS = 1_000_000L;
+
+    private final Path logFile;
+    private final Path snapshotFile;
+    private final FileChannel log;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final int syncEvery;
+    private final int snapshotEvery;
+
+    // Records waiting for the writer. A slot's sequence equals the ticket that may claim it
+    // next, and ticket + 1 once that ticket's record is in it.
+    private final byte[] ringTypes = new byte[RING_SIZE];
+    private final PrintJob[] ringJobs = new PrintJob[RING_SIZE];
+    private final AtomicLongArray ringSequence = new AtomicLongArray(RING_SIZE);
+    private final AtomicLong ringTail = new AtomicLong();
+
+    // Whoever holds writeLock drains the ring and owns the buffer and the file
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private long ringHead;
+    private int unsynced;
+    private long sinceSnapshot;
+    private volatile long durable;          // tickets below this are on disk
+    private volatile boolean snapshotDue;
+    private volatile IOException failure;   // the writer thread gave up; every later change fails
+
+    private final Thread writer;
+    private volatile boolean writerIdle;
+    private volatile boolean closed;
+
+    /**
+     * @param syncEvery     records per fsync; 1 makes every operation durable before it returns
+     * @param snapshotEvery records between compacting snapshots
+     */
+    public QueueJournal(Path directory, int syncEvery, int snapshotEvery) throws IOException {
+        if (syncEvery <= 0 || snapshotEvery <= 0) throw new IllegalArgumentException("syncEvery and snapshotEvery must be > 0");
+        Files.createDirectories(directory);
+        this.logFile = directory.resolve("queue.log");
+        this.snapshotFile = directory.resolve("snapshot.bin");
+        this.log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.syncEvery = syncEvery;
+        this.snapshotEvery = snapshotEvery;
+        for (int i = 0; i < RING_SIZE; i++) ringSequence.set(i, i);
+        this.writer = new Thread(this::runWriter, "queue-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    void logEnqueue(PrintJob job) throws IOException {
+        checkLoggable(job);   // reject what cannot be logged here, not in the writer
+        append(ENQUEUE, job);
+    }
+
+    void logDequeue(PrintJob job) throws IOException {
+        append(DEQUEUE, job);
+    }
+
+    void logExpire(PrintJob job) throws IOException {
+        append(DEQUEUE, job);   // putDequeue writes EXPIRE for an expired job
+    }
+
+    void logCancel(PrintJob job) throws IOException {
+        append(CANCEL, job);
+    }
+
+    void logReprioritize(PrintJob job) throws IOException {
+        append(REPRIORITIZE, job);
+    }
+
+    boolean isSnapshotDue() { return snapshotDue; }
+
+    // Writes everything logged so far and fsyncs the log
+    public void sync() throws IOException {
+        writeLock.lock();
+        try {
+            checkHealthy();
+            drain();
+            syncLocked();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the given state and empties the log.
+     * The caller must hold off queue operations while this runs.
+     */
+    void writeSnapshot(PrintJob[] queued, JobHistory history) throws IOException {
+        writeLock.lock();
+        try {
+            checkHealthy();
+            drain();
+            syncLocked();
+            writeSnapshotFile(queued, history);
+            log.truncate(0);
+            log.position(0);
+            log.force(true);
+            sinceSnapshot = 0;
+            snapshotDue = false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void writeSnapshotFile(PrintJob[] queued, JobHistory history) throws IOException {
+        Path tmp = snapshotFile.resolveSibling("snapshot.tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buf.putInt(SNAPSHOT_MAGIC).putInt(PrintJob.peekNextId());
+            IOException[] historyFailure = new IOException[1];
+            // History first (as enqueue + dequeue pairs), then the live queue in serving order
+            history.forEach(job -> {
+                try {
+                    byte[] name = job.getFileName().getBytes(StandardCharsets.UTF_8);
+                    drainIfFull(out, buf, enqueueSize(job, name) + DEQUEUE_SIZE);
+                    putEnqueue(buf, job, name);
+                    putDequeue(buf, job);
+                } catch (IOException e) {
+                    historyFailure[0] = e;
+                }
+            });
+            if (historyFailure[0] != null) throw historyFailure[0];
+            for (PrintJob job : queued) {
+                byte[] name = job.getFileName().getBytes(StandardCharsets.UTF_8);
+                drainIfFull(out, buf, enqueueSize(job, name));
+                putEnqueue(buf, job, name);
+            }
+            writeFully(out, buf);
+            out.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rebuilds state from the snapshot and the log. Queued jobs are passed to
+     * queued in their original order, and the newest maxServed served jobs to
+     * served, oldest first. A torn record at the end of the log (crash
+     * mid-write) is cut off.
+     */
+    void recover(Consumer<PrintJob> queued, Consumer<PrintJob> served, int maxServed) throws IOException {
+        writeLock.lock();
+        try {
+            recoverLocked(queued, served, maxServed);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void recoverLocked(Consumer<PrintJob> queued, Consumer<PrintJob> served, int maxServed) throws IOException {
+        Map<Integer, PrintJob> pending = new LinkedHashMap<>();
+        ArrayDeque<PrintJob> done = new ArrayDeque<>();
+        Set<Integer> doneIds = new HashSet<>();
+
+        if (Files.exists(snapshotFile)) {
+            try (FileChannel in = FileChannel.open(snapshotFile, StandardOpenOption.READ)) {
+                ByteBuffer snap = readAll(in);
+                if (snap.getInt() != SNAPSHOT_MAGIC) throw new IOException("Not a print queue snapshot: " + snapshotFile);
+                PrintJob.advanceNextId(snap.getInt());
+                replay(snap, pending, done, doneIds, maxServed);
+            }
+        }
+
+        long good = 0;
+        if (log.size() > 0) {
+            good = replay(readAll(log), pending, done, doneIds, maxServed);
+        }
+        log.truncate(good);
+        log.position(good);
+
+        for (PrintJob job : done) served.accept(job);
+        for (PrintJob job : pending.values()) queued.accept(job);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            if (!log.isOpen()) return;
+            if (failure == null) {
+                drain();
+                syncLocked();
+            }
+            log.close();
+        } finally {
+            writeLock.unlock();
+        }
+        checkHealthy();
+    }
+
+    // Claims the next ring slot and fills it; only waits when the ring is full or syncEvery is 1
+    private void append(byte type, PrintJob job) throws IOException {
+        checkHealthy();
+        long ticket;
+        while (true) {
+            ticket = ringTail.get();
+            int slot = (int) ticket & RING_MASK;
+            long sequence = ringSequence.get(slot);
+            if (sequence == ticket) {
+                if (ringTail.compareAndSet(ticket, ticket + 1)) {
+                    ringTypes[slot] = type;
+                    ringJobs[slot] = job;
+                    // A full store: the writerIdle read below must not move ahead of it
+                    ringSequence.set(slot, ticket + 1);
+                    break;
+                }
+            } else if (sequence < ticket) {
+                helpDrain();   // a lap ahead of the writer: do its work rather than spin
+            }
+        }
+        if (syncEvery == 1) {
+            awaitDurable(ticket + 1);
+        } else if (writerIdle) {
+            writerIdle = false;
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void helpDrain() throws IOException {
+        writeLock.lock();
+        try {
+            checkHealthy();
+            if (drain() > 0) return;
+        } finally {
+            writeLock.unlock();
+        }
+        Thread.yield();   // the oldest slot is claimed but not filled yet
+    }
+
+    private void awaitDurable(long ticket) throws IOException {
+        while (durable < ticket) {
+            writeLock.lock();
+            try {
+                checkHealthy();
+                // Someone else's fsync may already have covered this record
+                if (durable >= ticket) return;
+                drain();
+                syncLocked();
+            } finally {
+                writeLock.unlock();
+            }
+            if (durable < ticket) Thread.yield();   // an older slot was claimed but not filled yet
+        }
+    }
+
+    /**
+     * Moves every filled slot, oldest first, into the buffer; stops at the
+     * first slot not filled yet. Each pass takes the run of filled slots up to
+     * the next fsync, encodes it, then frees it, so the per-record work is
+     * the encoding itself.
+     */
+    private int drain() throws IOException {
+        int drained = 0;
+        while (true) {
+            long end = ringHead;
+            long limit = ringHead + Math.min(RING_SIZE, syncEvery - unsynced);
+            while (end < limit && ringSequence.get((int) end & RING_MASK) == end + 1) end++;
+            int count = (int) (end - ringHead);
+            if (count == 0) return drained;
+            for (long t = ringHead; t < end; t++) {
+                int slot = (int) t & RING_MASK;
+                encode(ringTypes[slot], ringJobs[slot]);
+            }
+            for (long t = ringHead; t < end; t++) {
+                int slot = (int) t & RING_MASK;
+                ringJobs[slot] = null;
+                ringSequence.lazySet(slot, t + RING_SIZE);   // free for the ticket one lap on
+            }
+            ringHead = end;
+            drained += count;
+            sinceSnapshot += count;
+            if (sinceSnapshot >= snapshotEvery) snapshotDue = true;
+            unsynced += count;
+            if (unsynced >= syncEvery) syncLocked();
+        }
+    }
+
+    private void encode(byte type, PrintJob job) throws IOException {
+        if (type == ENQUEUE) {
+            byte[] name = job.getFileName().getBytes(StandardCharsets.UTF_8);
+            ensureRoom(enqueueSize(job, name));
+            putEnqueue(buffer, job, name);
+        } else if (type == DEQUEUE) {
+            ensureRoom(DEQUEUE_SIZE);
+            putDequeue(buffer, job);
+        } else if (type == CANCEL) {
+            ensureRoom(REPRIORITIZE_SIZE);
+            buffer.put(CANCEL).putInt(job.getJobId());
+        } else {
+            ensureRoom(REPRIORITIZE_SIZE);
+            buffer.put(REPRIORITIZE).putInt(job.getJobId()).put((byte) job.getPriorityLevel());
+        }
+    }
+
+    private void syncLocked() throws IOException {
+        writeBuffer();
+        log.force(false);
+        unsynced = 0;
+        durable = ringHead;
+    }
+
+    // Drains the ring as records arrive, and fsyncs the tail once nothing new came for a moment
+    private void runWriter() {
+        while (!closed) {
+            int drained;
+            writeLock.lock();
+            try {
+                drained = drain();
+                if (drained == 0 && unsynced > 0) syncLocked();
+            } catch (IOException e) {
+                failure = e;
+                return;
+            } finally {
+                writeLock.unlock();
+            }
+            if (drained > 0) {
+                LockSupport.parkNanos(FLUSH_INTERVAL_NANOS);   // let the next batch gather
+            } else if (unsynced == 0) {
+                // Announce before the last look, so an append (or close) either sees the flag or is seen here
+                writerIdle = true;
+                if (!hasWaitingRecord() && !closed) LockSupport.park(this);
+                writerIdle = false;
+            }
+        }
+    }
+
+    private boolean hasWaitingRecord() {
+        long head = ringHead;
+        return ringSequence.get((int) head & RING_MASK) == head + 1;
+    }
+
+    private void checkHealthy() throws IOException {
+        IOException e = failure;
+        if (e != null) throw new IOException("Journal writer failed: " + e.getMessage(), e);
+    }
+
+    // Applies records until the buffer ends or a record is incomplete; returns bytes consumed
+    private static long replay(ByteBuffer in, Map<Integer, PrintJob> pending,
+                               ArrayDeque<PrintJob> done, Set<Integer> doneIds, int maxServed) {
+        int good = in.position();
+        try {
+            while (in.hasRemaining()) {
+                byte type = in.get();
+                int jobId = in.getInt();
+                if (type == ENQUEUE) {
+                    int level = in.get();
+                    int pages = in.getInt();
+                    long submitted = in.getLong();
+                    byte[] name = new byte[Short.toUnsignedInt(in.getShort())];
+                    in.get(name);
+                    // Records written around a snapshot may appear twice; ids make replay idempotent
+                    if (!doneIds.contains(jobId) && !pending.containsKey(jobId)) {
+                        pending.put(jobId, PrintJob.restore(jobId, new String(name, StandardCharsets.UTF_8),
+                                pages, level, submitted, 0, false));
+                    }
+                } else if (type == DEQUEUE || type == EXPIRE) {
+                    long dequeued = in.getLong();
+                    PrintJob job = pending.remove(jobId);
+                    if (job != null) {
+                        if (type == EXPIRE) job.markExpired(PrintJob.fromEpochNanos(dequeued));
+                        else job.setDequeueTime(PrintJob.fromEpochNanos(dequeued));
+                        done.addLast(job);
+                        doneIds.add(jobId);
+                        // Older served jobs would fall out of the history anyway
+                        if (done.size() > maxServed) done.removeFirst();
+                    }
+                } else if (type == CANCEL) {
+                    pending.remove(jobId);
+                } else if (type == REPRIORITIZE) {
+                    int level = in.get();
+                    // Re-inserted at the end: a moved job queues behind those already at its new level
+                    PrintJob job = pending.remove(jobId);
+                    if (job != null) {
+                        pending.put(jobId, PrintJob.restore(jobId, job.getFileName(), job.getPages(), level,
+                                job.getSubmissionEpochNanos(), 0, false)
+                                .withDeadline(job.getDeadlineEpochNanos()).withOwner(job.getOwner()));
+                    }
+                } else if (type == DEADLINE) {
+                    long deadline = in.getLong();
+                    PrintJob job = pending.get(jobId);
+                    if (job != null && !job.hasDeadline()) pending.put(jobId, job.withDeadline(deadline));
+                } else if (type == OWNER) {
+                    byte[] owner = new byte[Short.toUnsignedInt(in.getShort())];
+                    in.get(owner);
+                    PrintJob job = pending.get(jobId);
+                    if (job != null) pending.put(jobId, job.withOwner(new String(owner, StandardCharsets.UTF_8)));
+                } else {
+                    break; // garbage after a torn write
+                }
+                good = in.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // Last record was only partly written
+        }
+        return good;
+    }
+
+    // A UTF-16 unit never takes more than 3 bytes of UTF-8, so most names are checked without encoding them
+    private static void checkLoggable(PrintJob job) {
+        String name = job.getFileName();
+        if (name.length() > 0xFFFF / 3) enqueueSize(job, name.getBytes(StandardCharsets.UTF_8));
+        else ownerSize(job);
+    }
+
+    private static int enqueueSize(PrintJob job, byte[] name) {
+        if (name.length > 0xFFFF) throw new IllegalArgumentException("File name too long to journal");
+        return 1 + 4 + 1 + 4 + 8 + 2 + name.length + (job.hasDeadline() ? DEADLINE_SIZE : 0) + ownerSize(job);
+    }
+
+    // Owner names are short; the bound keeps every record within the buffer
+    private static int ownerSize(PrintJob job) {
+        if (job.getOwner().equals(PrintJob.DEFAULT_OWNER)) return 0;
+        int length = job.getOwner().getBytes(StandardCharsets.UTF_8).length;
+        if (length > 0xFF) throw new IllegalArgumentException("Owner name too long to journal");
+        return 1 + 4 + 2 + length;
+    }
+
+    private static void putEnqueue(ByteBuffer buf, PrintJob job, byte[] name) {
+        buf.put(ENQUEUE).putInt(job.getJobId()).put((byte) job.getPriorityLevel()).putInt(job.getPages())
+                .putLong(job.getSubmissionEpochNanos()).putShort((short) name.length).put(name);
+        if (job.hasDeadline()) buf.put(DEADLINE).putInt(job.getJobId()).putLong(job.getDeadlineEpochNanos());
+        if (!job.getOwner().equals(PrintJob.DEFAULT_OWNER)) {
+            byte[] owner = job.getOwner().getBytes(StandardCharsets.UTF_8);
+            buf.put(OWNER).putInt(job.getJobId()).putShort((short) owner.length).put(owner);
+        }
+    }
+
+    private static void putDequeue(ByteBuffer buf, PrintJob job) {
+        buf.put(job.isExpired() ? EXPIRE : DEQUEUE).putInt(job.getJobId()).putLong(job.getDequeueEpochNanos());
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) writeBuffer();
+    }
+
+    private void writeBuffer() throws IOException {
+        writeFully(log, buffer);
+    }
+
+    private static void drainIfFull(FileChannel out, ByteBuffer buf, int needed) throws IOException {
+        if (buf.remaining() < needed) writeFully(out, buf);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) out.write(buf);
+        buf.clear();
+    }
+
+    // Plain reads rather than a mapping, so the files can be truncated or replaced afterwards
+    private static ByteBuffer readAll(FileChannel in) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate((int) in.size());
+        in.position(0);
+        while (data.hasRemaining() && in.read(data) >= 0) { }
+        return data.flip();
+    }
+}
@@ -0,0 +1,148 @@
+package com.greenwich.university.repository;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Served-job statistics updated once per dequeue, so every getter is O(1).
+ * Keeps lifetime totals, an exponentially weighted moving average (EWMA) of
+ * the wait, and a sliding time window of recent waits built from fixed
+ * buckets: each bucket covers one slice of the window and is reset when
+ * its slice comes round again. Waits (enqueue to dequeue) and service
+ * times (dequeue to printed) also go into a LatencyHistogram per priority,
+ * over the same window and since startup, so tail percentiles such as the
+ * p99 wait of HIGH jobs can be read as well as the means.
+ */
+public class QueueStats {
+    private static final double EWMA_ALPHA = 0.2;
+    // Microseconds up to a day at 2 significant digits: 16 KB per histogram
+    private static final long LOWEST_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long HIGHEST_NANOS = TimeUnit.DAYS.toNanos(1);
+    private static final int HISTOGRAM_SLICES = 5;
+
+    private final long bucketNanos;
+    private final Clock clock;
+    private final long[] bucketIds;
+    private final long[] bucketWaitNanos;
+    private final int[] bucketCounts;
+    private final long[] servedByLevel = new long[PriorityLanes.LEVELS];
+    private long served;
+    private long expired;
+    private long expiredPages;
+    private long totalWaitNanos;
+    private double ewmaWaitNanos;
+    private final LatencyHistogram[] lifetimeWait = new LatencyHistogram[PriorityLanes.LEVELS];
+    private final LatencyHistogram[] lifetimeService = new LatencyHistogram[PriorityLanes.LEVELS];
+    private final WindowedHistogram[] windowWait = new WindowedHistogram[PriorityLanes.LEVELS];
+    private final WindowedHistogram[] windowService = new WindowedHistogram[PriorityLanes.LEVELS];
+
+    /**
+     * @param windowMinutes length of the sliding window used for health
+     * @param buckets       how many slices the window is split into
+     */
+    public QueueStats(int windowMinutes, int buckets) {
+        this(windowMinutes, buckets, Clock.systemDefaultZone());
+    }
+
+    // clock: decides which bucket a served job falls in
+    public QueueStats(int windowMinutes, int buckets, Clock clock) {
+        if (windowMinutes <= 0 || buckets <= 0) throw new IllegalArgumentException("window and buckets must be > 0");
+        this.clock = clock;
+        this.bucketNanos = TimeUnit.MINUTES.toNanos(windowMinutes) / buckets;
+        this.bucketIds = new long[buckets];
+        this.bucketWaitNanos = new long[buckets];
+        this.bucketCounts = new int[buckets];
+        Arrays.fill(bucketIds, Long.MIN_VALUE);
+
+        LatencyHistogram template = new LatencyHistogram(LOWEST_NANOS, HIGHEST_NANOS, 2);
+        long windowMillis = TimeUnit.MINUTES.toMillis(windowMinutes);
+        int slices = Math.min(HISTOGRAM_SLICES, buckets);
+        for (int level = 0; level < PriorityLanes.LEVELS; level++) {
+            lifetimeWait[level] = template.emptyCopy();
+            lifetimeService[level] = template.emptyCopy();
+            windowWait[level] = new WindowedHistogram(template, windowMillis, slices);
+            windowService[level] = new WindowedHistogram(template, windowMillis, slices);
+        }
+    }
+
+    public synchronized void recordServed(int level, long waitNanos) {
+        served++;
+        servedByLevel[level]++;
+        totalWaitNanos += waitNanos;
+        ewmaWaitNanos = served == 1 ? waitNanos : ewmaWaitNanos + EWMA_ALPHA * (waitNanos - ewmaWaitNanos);
+
+        long id = currentBucket();
+        int slot = (int) Math.floorMod(id, (long) bucketIds.length);
+        if (bucketIds[slot] != id) {
+            bucketIds[slot] = id;
+            bucketWaitNanos[slot] = 0;
+            bucketCounts[slot] = 0;
+        }
+        bucketWaitNanos[slot] += waitNanos;
+        bucketCounts[slot]++;
+
+        lifetimeWait[level].record(waitNanos);
+        windowWait[level].record(clock.millis(), waitNanos);
+    }
+
+    // A printer finished the job serviceNanos after it was dequeued
+    public synchronized void recordPrinted(int level, long serviceNanos) {
+        lifetimeService[level].record(serviceNanos);
+        windowService[level].record(clock.millis(), serviceNanos);
+    }
+
+    // Jobs dropped unprinted because their deadline passed; they do not count as served
+    public synchronized void recordExpired(int pages) {
+        expired++;
+        expiredPages += pages;
+    }
+
+    public synchronized long getExpiredCount() { return expired; }
+    public synchronized long getExpiredPages() { return expiredPages; }
+
+    public synchronized long getServedCount() { return served; }
+
+    public synchronized long getServedCount(int level) { return servedByLevel[level]; }
+
+    public synchronized double getLifetimeAverageWaitSeconds() {
+        return served == 0 ? 0 : totalWaitNanos / 1e9 / served;
+    }
+
+    public synchronized double getEwmaWaitSeconds() { return ewmaWaitNanos / 1e9; }
+
+    // Mean wait of jobs served inside the sliding window; 0 when none were
+    public synchronized double getWindowAverageWaitSeconds() {
+        long oldest = currentBucket() - bucketIds.length + 1;
+        long sum = 0;
+        int count = 0;
+        for (int i = 0; i < bucketIds.length; i++) {
+            if (bucketIds[i] >= oldest) {
+                sum += bucketWaitNanos[i];
+                count += bucketCounts[i];
+            }
+        }
+        return count == 0 ? 0 : sum / 1e9 / count;
+    }
+
+    // Copies, safe to read without the lock
+    public synchronized LatencyHistogram getWindowWaitHistogram(int level) { return windowWait[level].snapshot(clock.millis()); }
+    public synchronized LatencyHistogram getWindowServiceHistogram(int level) { return windowService[level].snapshot(clock.millis()); }
+    public synchronized LatencyHistogram getLifetimeWaitHistogram(int level) { return lifetimeWait[level].copy(); }
+    public synchronized LatencyHistogram getLifetimeServiceHistogram(int level) { return lifetimeService[level].copy(); }
+
+    public long getWindowMillis() { return bucketIds.length * bucketNanos / 1_000_000; }
+
+    public synchronized int getWindowServedCount() {
+        long oldest = currentBucket() - bucketIds.length + 1;
+        int count = 0;
+        for (int i = 0; i < bucketIds.length; i++) {
+            if (bucketIds[i] >= oldest) count += bucketCounts[i];
+        }
+        return count;
+    }
+
+    private long currentBucket() {
+        return TimeUnit.MILLISECONDS.toNanos(clock.millis()) / bucketNanos;
+    }
+}
@@ -0,0 +1,195 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary min-heap of pending jobs ordered by the rank a SchedulingPolicy gave
+ * them, then by arrival. Ranks and arrival numbers sit in parallel primitive
+ * arrays, so comparisons never touch the PrintJob objects. A map from job id
+ * to heap slot, kept up to date on every move, lets lookup, cancel and
+ * reprioritize reach a job directly: O(1) lookup, O(log n) for the others.
+ * Methods are synchronized: with a ranked policy, concurrent mode shares
+ * this one lock instead of the lock-free lanes.
+ */
+class RankedJobHeap implements PendingJobs {
+    private final SchedulingPolicy policy;
+    private int capacity;
+    private PrintJob[] jobs;
+    private long[] ranks;
+    private long[] arrivals;
+    private final int[] counts = new int[PriorityLanes.LEVELS];
+    private final Map<Integer, Integer> slots = new HashMap<>();
+    private long nextArrival;
+    private int size;
+
+    RankedJobHeap(SchedulingPolicy policy, int capacity) {
+        this.policy = policy;
+        this.capacity = capacity;
+        this.jobs = new PrintJob[capacity];
+        this.ranks = new long[capacity];
+        this.arrivals = new long[capacity];
+    }
+
+    @Override
+    public synchronized boolean add(PrintJob job) {
+        if (size >= capacity) return false;
+        push(job);
+        return true;
+    }
+
+    @Override
+    public synchronized int addAll(PrintJob[] batch, int from, int count) {
+        int accepted = Math.max(0, Math.min(count, capacity - size));   // capacity may have shrunk below size
+        for (int i = from; i < from + accepted; i++) {
+            push(batch[i]);
+        }
+        return accepted;
+    }
+
+    @Override
+    public synchronized PrintJob poll() {
+        if (size == 0) return null;
+        policy.served(jobs[0], ranks[0]);
+        return removeAt(0);
+    }
+
+    @Override
+    public synchronized PrintJob peek() { return size == 0 ? null : jobs[0]; }
+
+    // Heap order says nothing about priority level here, so this scans every slot
+    @Override
+    public synchronized PrintJob peekLowest() {
+        int lowest = -1;
+        for (int i = 0; i < size; i++) {
+            if (lowest < 0 || jobs[i].getPriorityLevel() > jobs[lowest].getPriorityLevel()
+                    || (jobs[i].getPriorityLevel() == jobs[lowest].getPriorityLevel() && arrivals[i] > arrivals[lowest])) {
+                lowest = i;
+            }
+        }
+        return lowest < 0 ? null : jobs[lowest];
+    }
+
+    @Override
+    public synchronized PrintJob find(int jobId) {
+        Integer slot = slots.get(jobId);
+        return slot == null ? null : jobs[slot];
+    }
+
+    @Override
+    public synchronized PrintJob remove(int jobId) {
+        Integer slot = slots.get(jobId);
+        return slot == null ? null : removeAt(slot);
+    }
+
+    // The copy is re-ranked by the policy but keeps its arrival number
+    @Override
+    public synchronized boolean replace(PrintJob current, PrintJob updated) {
+        Integer slot = slots.get(current.getJobId());
+        if (slot == null || jobs[slot] != current) return false;
+        counts[current.getPriorityLevel()]--;
+        counts[updated.getPriorityLevel()]++;
+        jobs[slot] = updated;
+        ranks[slot] = policy.rerank(current, ranks[slot], updated);
+        siftDown(siftUp(slot));
+        return true;
+    }
+
+    @Override
+    public synchronized int size() { return size; }
+
+    // Arrays grow with the bound but never shrink
+    @Override
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        if (jobs.length < capacity) {
+            jobs = Arrays.copyOf(jobs, capacity);
+            ranks = Arrays.copyOf(ranks, capacity);
+            arrivals = Arrays.copyOf(arrivals, capacity);
+        }
+    }
+
+    @Override
+    public synchronized int count(int level) { return counts[level]; }
+
+    // Sorted copy; the heap itself is only partially ordered
+    @Override
+    public synchronized PrintJob[] toArray() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> compare(a, b));
+        PrintJob[] result = new PrintJob[size];
+        for (int i = 0; i < size; i++) result[i] = jobs[order[i]];
+        return result;
+    }
+
+    private void push(PrintJob job) {
+        int i = size++;
+        jobs[i] = job;
+        ranks[i] = policy.rank(job);
+        arrivals[i] = nextArrival++;
+        counts[job.getPriorityLevel()]++;
+        slots.put(job.getJobId(), i);
+        siftUp(i);
+    }
+
+    // Fills the hole with the last job and restores heap order around it
+    private PrintJob removeAt(int i) {
+        PrintJob job = jobs[i];
+        slots.remove(job.getJobId());
+        counts[job.getPriorityLevel()]--;
+        size--;
+        if (i < size) {
+            move(size, i);
+            siftDown(siftUp(i));
+        }
+        jobs[size] = null;
+        return job;
+    }
+
+    private int compare(int a, int b) {
+        int byRank = Long.compare(ranks[a], ranks[b]);
+        return byRank != 0 ? byRank : Long.compare(arrivals[a], arrivals[b]);
+    }
+
+    // Returns the slot the job ended up in
+    private int siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (compare(i, parent) >= 0) break;
+            swap(i, parent);
+            i = parent;
+        }
+        return i;
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            int right = left + 1;
+            int smallest = i;
+            if (left < size && compare(left, smallest) < 0) smallest = left;
+            if (right < size && compare(right, smallest) < 0) smallest = right;
+            if (smallest == i) return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void move(int from, int to) {
+        jobs[to] = jobs[from];
+        ranks[to] = ranks[from];
+        arrivals[to] = arrivals[from];
+        slots.put(jobs[to].getJobId(), to);
+    }
+
+    private void swap(int a, int b) {
+        PrintJob job = jobs[a]; jobs[a] = jobs[b]; jobs[b] = job;
+        long rank = ranks[a]; ranks[a] = ranks[b]; ranks[b] = rank;
+        long arrival = arrivals[a]; arrivals[a] = arrivals[b]; arrivals[b] = arrival;
+        slots.put(jobs[a].getJobId(), a);
+        slots.put(jobs[b].getJobId(), b);
+    }
+}
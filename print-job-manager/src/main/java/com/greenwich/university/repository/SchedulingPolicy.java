@@ -0,0 +1,22 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+
+/**
+ * Decides the order in which a PrintJobQueue serves its jobs.
+ * A policy gives each job a rank when it is enqueued, and again only if its
+ * priority changes while it waits; the queue serves the lowest rank first and breaks ties by arrival order. Ranks are called
+ * from inside the queue's lock, so a policy may keep state between calls.
+ */
+public interface SchedulingPolicy {
+    String getName();
+
+    long rank(PrintJob job);
+
+    // Called when a waiting job's priority changes; policies that charge a job when
+    // ranking it should take back what ranking current cost before ranking updated
+    default long rerank(PrintJob current, long currentRank, PrintJob updated) { return rank(updated); }
+
+    // Called when a job leaves the queue, for policies that track progress
+    default void served(PrintJob job, long rank) { }
+}
@@ -0,0 +1,23 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+
+/**
+ * One page of search results, ordered by job id, plus the total number of matches.
+ */
+public class SearchPage {
+    private final PrintJob[] jobs;
+    private final int offset;
+    private final int total;
+
+    public SearchPage(PrintJob[] jobs, int offset, int total) {
+        this.jobs = jobs;
+        this.offset = offset;
+        this.total = total;
+    }
+
+    public PrintJob[] getJobs() { return jobs; }
+    public int getOffset() { return offset; }
+    public int getTotal() { return total; }
+    public boolean hasMore() { return offset + jobs.length < total; }
+}
@@ -0,0 +1,17 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+
+/**
+ * Within each priority level, fewer pages print first, so a 2-page handout
+ * no longer waits behind a 900-page thesis of the same priority.
+ */
+public class ShortestJobFirstPolicy implements SchedulingPolicy {
+    @Override
+    public String getName() { return "Shortest job first"; }
+
+    @Override
+    public long rank(PrintJob job) {
+        return ((long) job.getPriorityLevel() << 32) | job.getPages();
+    }
+}
@@ -0,0 +1,362 @@
+package com.greenwich.university.repository;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+import java.util.function.LongConsumer;
+
+/**
+ * Document bytes of queued jobs, kept on disk next to the PrintJobQueue.
+ * Payloads are appended to segment files (spool-N.seg), each behind a small
+ * header (job id, length); a new segment starts once the current one is
+ * full, and a segment file is deleted as soon as none of its payloads is
+ * needed any more. Nothing passes through the Java heap on the way:
+ * a document file is copied in with FileChannel.transferFrom, and a payload
+ * goes out to the printer (a file, a socket, any writable channel) with
+ * FileChannel.transferTo, which the OS can do without a user-space copy.
+ * Other sources are copied through pooled direct buffers.
+ *
+ * Appends are serialized on their own lock, so a large PDF being spooled
+ * does not hold up lookups, removals or deliveries. Payloads are not
+ * fsynced; on restart the segments are scanned, a torn tail is cut off,
+ * and the queue drops every payload whose job is no longer pending.
+ */
+public class SpoolStore implements Closeable {
+    private static final int HEADER_BYTES = 4 + 8;
+    private static final String PREFIX = "spool-";
+    private static final String SUFFIX = ".seg";
+
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        long size;     // bytes written, header and payload; only grows while active
+        int live;      // payloads still needed
+
+        Segment(int id, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+    }
+
+    private static final class Entry {
+        final Segment segment;
+        final long offset;   // first payload byte
+        final long length;
+
+        Entry(Segment segment, long offset, long length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final BufferPool buffers;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ByteBuffer header = ByteBuffer.allocateDirect(HEADER_BYTES);   // appenders only
+    // Guarded by this
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private long spooledBytes;
+
+    /**
+     * Opens (or creates) the spool in directory and reads back what it holds.
+     * @param segmentBytes  size at which a new segment file is started
+     * @param bufferBytes   size of the pooled buffers used for non-file sources
+     * @param pooledBuffers buffers kept for reuse
+     */
+    public SpoolStore(Path directory, long segmentBytes, int bufferBytes, int pooledBuffers) throws IOException {
+        if (segmentBytes <= HEADER_BYTES) throw new IllegalArgumentException("Segments must be larger than a header");
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.buffers = new BufferPool(bufferBytes, pooledBuffers);
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Spools a document file for the job, copied file to file in the kernel.
+     * Returns the payload length.
+     */
+    public long spool(int jobId, Path document) throws IOException {
+        try (FileChannel in = FileChannel.open(document, StandardOpenOption.READ)) {
+            return spool(jobId, in, in.size());
+        }
+    }
+
+    /**
+     * Spools exactly length bytes read from source. A FileChannel source is
+     * transferred directly; anything else goes through a pooled buffer.
+     * Spooling the same job again replaces its payload.
+     */
+    public long spool(int jobId, ReadableByteChannel source, long length) throws IOException {
+        if (length < 0) throw new IllegalArgumentException("Length must be >= 0");
+        Entry replaced;
+        appendLock.lock();
+        try {
+            Segment segment = segmentFor(length);
+            long start = segment.size;
+            try {
+                header.clear();
+                header.putInt(jobId).putLong(length).flip();
+                writeFully(segment.channel, header, start);
+                copy(source, segment.channel, start + HEADER_BYTES, length);
+            } catch (IOException e) {
+                segment.channel.truncate(start);   // leave no half-written entry behind
+                throw e;
+            }
+            // Published before the append lock is let go, so an empty segment is never reset under it
+            synchronized (this) {
+                segment.size = start + HEADER_BYTES + length;
+                replaced = entries.put(jobId, new Entry(segment, start + HEADER_BYTES, length));
+                segment.live++;
+                spooledBytes += length;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        if (replaced != null) release(replaced);
+        return length;
+    }
+
+    /**
+     * Streams the job's payload to sink (a blocking channel) without copying it through the heap.
+     * Returns the bytes sent, or -1 if nothing is spooled for the job. The
+     * payload stays spooled until remove(); the caller removes it once the
+     * printer has it.
+     */
+    public long transferTo(int jobId, WritableByteChannel sink) throws IOException {
+        return transferTo(jobId, 0, sink, bytes -> { });
+    }
+
+    /**
+     * Same, from offset bytes into the payload, to resume a transfer the sink
+     * cut off. progress hears every chunk that got through, so the caller
+     * knows where to resume even when this throws. Returns the bytes sent by
+     * this call, or -1 if nothing is spooled for the job.
+     */
+    public long transferTo(int jobId, long offset, WritableByteChannel sink, LongConsumer progress) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(jobId);
+        }
+        if (entry == null) return -1;
+        long sent = 0;
+        while (offset + sent < entry.length) {
+            long n = entry.segment.channel.transferTo(entry.offset + offset + sent, entry.length - offset - sent, sink);
+            if (n <= 0) throw new EOFException("Spooled payload of job " + jobId + " is truncated");
+            sent += n;
+            progress.accept(n);
+        }
+        return sent;
+    }
+
+    // Frees the job's payload; false if none was spooled
+    public boolean remove(int jobId) throws IOException {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.remove(jobId);
+        }
+        if (entry == null) return false;
+        release(entry);
+        return true;
+    }
+
+    // Frees every payload whose job fails the test, e.g. jobs no longer pending after a restart
+    public void retainOnly(IntPredicate keep) throws IOException {
+        List<Integer> dropped = new ArrayList<>();
+        synchronized (this) {
+            for (int jobId : entries.keySet()) {
+                if (!keep.test(jobId)) dropped.add(jobId);
+            }
+        }
+        for (int jobId : dropped) remove(jobId);
+    }
+
+    public synchronized boolean contains(int jobId) { return entries.containsKey(jobId); }
+
+    // Payload length, or -1 if nothing is spooled for the job
+    public synchronized long sizeOf(int jobId) {
+        Entry entry = entries.get(jobId);
+        return entry == null ? -1 : entry.length;
+    }
+
+    public synchronized int getEntryCount() { return entries.size(); }
+    public synchronized long getSpooledBytes() { return spooledBytes; }
+    public synchronized int getSegmentCount() { return segments.size(); }
+
+    // Bytes the segment files take on disk, including payloads not yet reclaimed
+    public synchronized long getDiskBytes() {
+        long total = 0;
+        for (Segment segment : segments.values()) total += segment.size;
+        return total;
+    }
+
+    public Path getDirectory() { return directory; }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            synchronized (this) {
+                for (Segment segment : segments.values()) segment.channel.close();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Caller holds appendLock. A payload never straddles segments; a large one gets a segment to itself
+    private Segment segmentFor(long length) throws IOException {
+        Segment current = active;
+        if (current.size == 0 || current.size + HEADER_BYTES + length <= segmentBytes) return current;
+        Segment next = openSegment(current.id + 1);
+        synchronized (this) {
+            segments.put(next.id, next);
+            active = next;
+            if (current.live == 0) deleteSegment(current);
+        }
+        return next;
+    }
+
+    private void release(Entry entry) throws IOException {
+        Segment segment = entry.segment;
+        boolean reuseActive = false;
+        synchronized (this) {
+            spooledBytes -= entry.length;
+            if (--segment.live > 0) return;
+            if (segment != active) deleteSegment(segment);
+            else reuseActive = true;
+        }
+        // An empty active segment can start over, unless an append is running right now
+        if (reuseActive && appendLock.tryLock()) {
+            try {
+                synchronized (this) {
+                    if (segment == active && segment.live == 0) {
+                        segment.channel.truncate(0);
+                        segment.size = 0;
+                    }
+                }
+            } finally {
+                appendLock.unlock();
+            }
+        }
+    }
+
+    // Caller holds the store lock
+    private void deleteSegment(Segment segment) throws IOException {
+        segments.remove(segment.id);
+        segment.channel.close();
+        Files.deleteIfExists(segment.path);
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = directory.resolve(PREFIX + id + SUFFIX);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel, channel.size());
+    }
+
+    // Rebuilds the index from the segment files, oldest first; later copies of a job win
+    private void recover() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    ids.add(Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        ids.sort(null);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES);
+        for (int id : ids) {
+            Segment segment = openSegment(id);
+            segments.put(id, segment);
+            long position = 0;
+            while (position + HEADER_BYTES <= segment.size) {
+                buf.clear();
+                while (buf.hasRemaining() && segment.channel.read(buf, position + buf.position()) >= 0) { }
+                buf.flip();
+                int jobId = buf.getInt();
+                long length = buf.getLong();
+                if (length < 0 || position + HEADER_BYTES + length > segment.size) break;   // torn write
+                Entry previous = entries.put(jobId, new Entry(segment, position + HEADER_BYTES, length));
+                if (previous != null) {
+                    previous.segment.live--;
+                    spooledBytes -= previous.length;
+                }
+                segment.live++;
+                spooledBytes += length;
+                position += HEADER_BYTES + length;
+            }
+            if (position < segment.size) {
+                segment.channel.truncate(position);
+                segment.size = position;
+            }
+        }
+        int nextId = ids.isEmpty() ? 1 : ids.get(ids.size() - 1);
+        active = segments.containsKey(nextId) ? segments.get(nextId) : openSegment(nextId);
+        segments.put(active.id, active);
+        if (active.live == 0 && active.size > 0) {
+            active.channel.truncate(0);
+            active.size = 0;
+        }
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment != active && segment.live == 0) deleteSegment(segment);
+        }
+    }
+
+    private void copy(ReadableByteChannel source, FileChannel target, long position, long length) throws IOException {
+        long copied = 0;
+        if (source instanceof FileChannel) {
+            while (copied < length) {
+                long n = target.transferFrom(source, position + copied, length - copied);
+                if (n <= 0) throw new EOFException("Document ended after " + copied + " of " + length + " bytes");
+                copied += n;
+            }
+            return;
+        }
+        ByteBuffer buffer = buffers.acquire();
+        try {
+            while (copied < length) {
+                buffer.clear();
+                if (length - copied < buffer.capacity()) buffer.limit((int) (length - copied));
+                if (source.read(buffer) < 0) throw new EOFException("Document ended after " + copied + " of " + length + " bytes");
+                buffer.flip();
+                int n = buffer.remaining();
+                writeFully(target, buffer, position + copied);
+                copied += n;
+            }
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+    }
+}
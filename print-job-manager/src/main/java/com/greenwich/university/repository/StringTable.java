@@ -0,0 +1,52 @@
+package com.greenwich.university.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reference-counted table of distinct strings, so many records can share one
+ * copy of a name and store it as an int. Ids of released strings are reused.
+ * Not thread-safe; the owner locks around it.
+ */
+class StringTable {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private String[] strings = new String[64];
+    private int[] refs = new int[64];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int used;   // ids handed out so far, live or free
+
+    // Id of the string, adding it if new; each call must be matched by a release
+    int acquire(String s) {
+        Integer id = ids.get(s);
+        if (id == null) {
+            id = freeCount > 0 ? freeIds[--freeCount] : newId();
+            ids.put(s, id);
+            strings[id] = s;
+        }
+        refs[id]++;
+        return id;
+    }
+
+    void release(int id) {
+        if (--refs[id] > 0) return;
+        ids.remove(strings[id]);
+        strings[id] = null;
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        freeIds[freeCount++] = id;
+    }
+
+    String get(int id) { return strings[id]; }
+
+    // Upper bound for ids, for callers that keep per-id flags; free ids map to null
+    int idLimit() { return used; }
+
+    private int newId() {
+        if (used == strings.length) {
+            strings = Arrays.copyOf(strings, used * 2);
+            refs = Arrays.copyOf(refs, used * 2);
+        }
+        return used++;
+    }
+}
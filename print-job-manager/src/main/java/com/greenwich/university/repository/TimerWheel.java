@@ -0,0 +1,101 @@
+package com.greenwich.university.repository;
+
+import java.util.Arrays;
+
+/**
+ * Hashed timer wheel for job deadlines. A deadline is hashed to the slot of
+ * the tick it falls in; each tick only looks at its own slot, so scheduling
+ * is O(1) and a tick costs O(entries in that slot), never a scan of the
+ * queue. Entries due in a later turn of the wheel simply stay in the slot.
+ * Entries are just (job id, deadline) pairs in primitive arrays. Nothing is
+ * removed when a job is served or cancelled: the owner checks at expiry
+ * whether the job is still pending.
+ * All methods lock on the wheel.
+ */
+class TimerWheel {
+    private final long tickNanos;
+    private final int[][] ids;
+    private final long[][] deadlines;
+    private final int[] counts;
+    private long currentTick;     // every tick before this one has been processed
+    private volatile long nextDueNanos;
+    private int size;
+
+    /**
+     * @param tickNanos resolution; a job expires at most this long after its deadline
+     * @param slots     ticks per turn of the wheel
+     * @param nowNanos  epoch nanos to start counting ticks from
+     */
+    TimerWheel(long tickNanos, int slots, long nowNanos) {
+        if (tickNanos <= 0 || slots <= 0) throw new IllegalArgumentException("tick and slots must be > 0");
+        this.tickNanos = tickNanos;
+        this.ids = new int[slots][4];
+        this.deadlines = new long[slots][4];
+        this.counts = new int[slots];
+        this.currentTick = Math.floorDiv(nowNanos, tickNanos);
+        this.nextDueNanos = (currentTick + 1) * tickNanos;
+    }
+
+    synchronized void schedule(int jobId, long deadlineNanos) {
+        // A deadline already in the past goes into the slot processed next
+        long tick = Math.max(Math.floorDiv(deadlineNanos, tickNanos), currentTick);
+        int slot = (int) Math.floorMod(tick, (long) counts.length);
+        int n = counts[slot];
+        if (n == ids[slot].length) {
+            ids[slot] = Arrays.copyOf(ids[slot], n * 2);
+            deadlines[slot] = Arrays.copyOf(deadlines[slot], n * 2);
+        }
+        ids[slot][n] = jobId;
+        deadlines[slot][n] = deadlineNanos;
+        counts[slot]++;
+        size++;
+        if (deadlineNanos < nextDueNanos) nextDueNanos = deadlineNanos;
+    }
+
+    // Cheap unlocked check, so callers only take the lock once a tick has passed
+    boolean isDue(long nowNanos) { return nowNanos >= nextDueNanos; }
+
+    /**
+     * Processes every tick up to now and returns the ids whose deadline has
+     * passed. After a long pause at most one full turn is walked, since that
+     * already visits every slot.
+     */
+    synchronized int[] advance(long nowNanos) {
+        long target = Math.floorDiv(nowNanos, tickNanos);
+        if (target < currentTick) return new int[0];
+        int[] due = new int[0];
+        int found = 0;
+        long ticks = Math.min(target - currentTick + 1, counts.length);
+        for (long t = 0; t < ticks; t++) {
+            int slot = (int) Math.floorMod(currentTick + t, (long) counts.length);
+            int kept = 0;
+            for (int i = 0; i < counts[slot]; i++) {
+                if (deadlines[slot][i] <= nowNanos) {
+                    if (found == due.length) due = Arrays.copyOf(due, Math.max(8, found * 2));
+                    due[found++] = ids[slot][i];
+                } else {
+                    ids[slot][kept] = ids[slot][i];
+                    deadlines[slot][kept++] = deadlines[slot][i];
+                }
+            }
+            size -= counts[slot] - kept;
+            counts[slot] = kept;
+        }
+        // The current tick's slot may still hold deadlines later in this tick
+        currentTick = target;
+        nextDueNanos = Math.min((target + 1) * tickNanos, earliestInCurrentSlot());
+        return Arrays.copyOf(due, found);
+    }
+
+    synchronized int size() { return size; }
+
+    private long earliestInCurrentSlot() {
+        int slot = (int) Math.floorMod(currentTick, (long) counts.length);
+        long earliest = Long.MAX_VALUE;
+        long tickEnd = (currentTick + 1) * tickNanos;
+        for (int i = 0; i < counts[slot]; i++) {
+            if (deadlines[slot][i] < tickEnd) earliest = Math.min(earliest, deadlines[slot][i]);
+        }
+        return earliest;
+    }
+}
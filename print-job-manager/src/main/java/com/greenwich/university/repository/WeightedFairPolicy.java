@@ -0,0 +1,56 @@
+package com.greenwich.university.repository;
+
+import com.greenwich.university.domain.PrintJob;
+
+/**
+ * Weighted fair queuing across priority levels, measured in pages.
+ * Each job gets a virtual finish tag: the later of the current virtual time
+ * and its level's last tag, plus pages / weight. Serving the smallest tag
+ * gives each level a share of printed pages proportional to its weight, so
+ * LOW keeps moving under steady HIGH load (self-clocked: the virtual time
+ * is the tag of the job served last).
+ */
+public class WeightedFairPolicy implements SchedulingPolicy {
+    private static final long SCALE = 1_000_000L;
+
+    private final int[] weights;
+    private final long[] lastFinish;
+    private long virtualTime;
+
+    // Default weights: HIGH 4, NORMAL 2, LOW 1
+    public WeightedFairPolicy() {
+        this(4, 2, 1);
+    }
+
+    public WeightedFairPolicy(int highWeight, int normalWeight, int lowWeight) {
+        if (highWeight <= 0 || normalWeight <= 0 || lowWeight <= 0) throw new IllegalArgumentException("Weights must be > 0");
+        this.weights = new int[]{highWeight, normalWeight, lowWeight};
+        this.lastFinish = new long[weights.length];
+    }
+
+    @Override
+    public String getName() { return "Weighted fair (pages)"; }
+
+    @Override
+    public long rank(PrintJob job) {
+        int level = job.getPriorityLevel();
+        long start = Math.max(virtualTime, lastFinish[level]);
+        lastFinish[level] = start + cost(job);
+        return lastFinish[level];
+    }
+
+    private long cost(PrintJob job) { return job.getPages() * SCALE / weights[job.getPriorityLevel()]; }
+
+    // The job's pages no longer count against its old level, only against the new one
+    @Override
+    public long rerank(PrintJob current, long currentRank, PrintJob updated) {
+        int level = current.getPriorityLevel();
+        lastFinish[level] = Math.max(virtualTime, lastFinish[level] - cost(current));
+        return rank(updated);
+    }
+
+    @Override
+    public void served(PrintJob job, long rank) {
+        virtualTime = Math.max(virtualTime, rank);
+    }
+}
@@ -0,0 +1,45 @@
+package com.greenwich.university.repository;
+
+import java.util.Arrays;
+
+/**
+ * A LatencyHistogram over a sliding time window, built the same way as the
+ * wait buckets in QueueStats: the window is cut into slices, each with its
+ * own histogram, and a slice is cleared when its turn comes round again.
+ * Reading merges the slices still inside the window.
+ * Not thread-safe; the caller passes the time and holds the lock.
+ */
+class WindowedHistogram {
+    private final long sliceMillis;
+    private final long[] sliceIds;
+    private final LatencyHistogram[] slices;
+
+    WindowedHistogram(LatencyHistogram template, long windowMillis, int slices) {
+        if (windowMillis < slices || slices <= 0) throw new IllegalArgumentException("Need 0 < slices <= window millis");
+        this.sliceMillis = windowMillis / slices;
+        this.sliceIds = new long[slices];
+        this.slices = new LatencyHistogram[slices];
+        for (int i = 0; i < slices; i++) this.slices[i] = template.emptyCopy();
+        Arrays.fill(sliceIds, Long.MIN_VALUE);
+    }
+
+    void record(long nowMillis, long nanos) {
+        long id = Math.floorDiv(nowMillis, sliceMillis);
+        int slot = (int) Math.floorMod(id, (long) slices.length);
+        if (sliceIds[slot] != id) {
+            sliceIds[slot] = id;
+            slices[slot].reset();
+        }
+        slices[slot].record(nanos);
+    }
+
+    // A fresh histogram holding everything recorded inside the window
+    LatencyHistogram snapshot(long nowMillis) {
+        long oldest = Math.floorDiv(nowMillis, sliceMillis) - slices.length + 1;
+        LatencyHistogram merged = slices[0].emptyCopy();
+        for (int i = 0; i < slices.length; i++) {
+            if (sliceIds[i] >= oldest) merged.add(slices[i]);
+        }
+        return merged;
+    }
+}
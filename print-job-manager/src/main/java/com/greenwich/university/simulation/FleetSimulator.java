@@ -0,0 +1,212 @@
+package com.greenwich.university.simulation;
+
+import com.greenwich.university.appService.Admission;
+import com.greenwich.university.appService.AdmissionPolicy;
+import com.greenwich.university.appService.PrintJobService;
+import com.greenwich.university.domain.PrintJob;
+import com.greenwich.university.repository.PrintJobQueue;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Discrete-event simulation of a printer fleet in front of the real
+ * PrintJobQueue and PrintJobService. Nothing sleeps: the simulator keeps a
+ * list of future events (next arrival, each printer finishing, the next
+ * depth sample), jumps the SimulatedClock to the earliest one and handles
+ * it, so a week of traffic runs in a few seconds. Dequeue times, deadlines
+ * and queue statistics all come from the simulated clock.
+ * Each simulator runs once; make a new one (with a new policy) per run.
+ */
+public class FleetSimulator {
+    // Handled in this order when they fall on the same instant
+    private static final int PRINTED = 0;
+    private static final int ARRIVAL = 1;
+    private static final int SAMPLE = 2;
+    private static final String[] PRIORITIES = {"HIGH", "NORMAL", "LOW"};
+    private static final int HISTORY_LIMIT = 1_000;
+    private static final double NANOS_PER_HOUR = 3.6e12;
+
+    private static final class Event {
+        final long time;
+        final int type;
+        final PrintJob job;   // the job being printed, for PRINTED
+
+        Event(long time, int type, PrintJob job) {
+            this.time = time;
+            this.type = type;
+            this.job = job;
+        }
+    }
+
+    private final SimulationConfig config;
+    private final Random random;
+    private final double[] hourlyProfile;
+    private final double[] priorityMix;
+    private final PriorityQueue<Event> events = new PriorityQueue<>(
+            Comparator.<Event>comparingLong(e -> e.time).thenComparingInt(e -> e.type));
+    private boolean used;
+
+    // Run state
+    private long start;
+    private long end;
+    private SimulatedClock clock;
+    private PrintJobService service;
+    private int idlePrinters;
+    private long submitted;
+    private long rejected;
+    private long shed;
+    private long pagesPrinted;
+    private long busyNanos;
+    private final long[][] waits = new long[PRIORITIES.length][64];
+    private final int[] waitCounts = new int[PRIORITIES.length];
+    private int[] depthSamples = new int[64];
+    private int sampleCount;
+
+    public FleetSimulator(SimulationConfig config) {
+        this.config = config;
+        this.random = new Random(config.getSeed());
+        this.hourlyProfile = config.getHourlyProfile();
+        this.priorityMix = config.getPriorityMix();
+    }
+
+    public SimulationReport run() {
+        if (used) throw new IllegalStateException("A simulator runs once");
+        used = true;
+        long wallStart = System.nanoTime();
+
+        start = PrintJob.toEpochNanos(config.getStart());
+        end = start + config.getLength().toNanos();
+        clock = new SimulatedClock(start);
+        PrintJobQueue queue = new PrintJobQueue(config.getQueueCapacity(), false, HISTORY_LIMIT, null,
+                config.getPolicy(), true, clock);
+        AdmissionPolicy admission = config.getAdmission();
+        service = new PrintJobService(queue, new AdmissionPolicy(admission.getMemoryBudgetBytes(), Duration.ZERO,
+                admission.isShedLowerPriority()));
+        idlePrinters = config.getPrinters();
+
+        scheduleArrival(start);
+        events.add(new Event(start, SAMPLE, null));
+        while (!events.isEmpty() && events.peek().time <= end) {
+            Event event = events.poll();
+            clock.advanceTo(event.time);
+            switch (event.type) {
+                case PRINTED:
+                    idlePrinters++;
+                    pagesPrinted += event.job.getPages();
+                    service.recordPrinted(event.job);
+                    dispatch();
+                    break;
+                case ARRIVAL:
+                    arrive();
+                    scheduleArrival(event.time);
+                    break;
+                default:
+                    sample(queue.getSize());
+                    long next = event.time + config.getSampleEvery().toNanos();
+                    if (next < end) events.add(new Event(next, SAMPLE, null));
+            }
+        }
+        clock.advanceTo(end);
+
+        long[][] sorted = new long[PRIORITIES.length][];
+        for (int level = 0; level < sorted.length; level++) {
+            sorted[level] = Arrays.copyOf(waits[level], waitCounts[level]);
+            Arrays.sort(sorted[level]);
+        }
+        long served = queue.getStatistics().getServedCount();
+        return new SimulationReport(config, System.nanoTime() - wallStart, submitted, submitted - rejected,
+                rejected, shed, served, service.getExpiredCount(), pagesPrinted, queue.getSize(),
+                (double) busyNanos / ((double) config.getPrinters() * (end - start)),
+                Arrays.copyOf(depthSamples, sampleCount), sorted, queue.getPolicy().getName());
+    }
+
+    private void arrive() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        int pages = samplePages();
+        String priority = PRIORITIES[samplePriority()];
+        String owner = "user" + random.nextInt(config.getOwners());
+        LocalDateTime deadline = random.nextDouble() < config.getDeadlineFraction() ? now.plus(config.getDeadlineAfter()) : null;
+        PrintJob job = new PrintJob(owner + "-" + submitted + ".pdf", pages, priority, owner, now, deadline);
+        submitted++;
+        try {
+            Admission result = service.admit(job);
+            if (!result.isAccepted()) rejected++;
+            shed += result.getShedJobs().length;
+        } catch (InterruptedException e) {
+            // The simulated policy never waits; keep the flag for whoever runs us
+            Thread.currentThread().interrupt();
+            rejected++;
+        }
+        dispatch();
+    }
+
+    // Every idle printer takes the next job, if there is one
+    private void dispatch() {
+        long now = clock.nanos();
+        while (idlePrinters > 0) {
+            PrintJob job = service.takeNextJob();
+            if (job == null) return;
+            idlePrinters--;
+            recordWait(job.getPriorityLevel(), job.getDequeueEpochNanos() - job.getSubmissionEpochNanos());
+            long printNanos = config.getSetupPerJob().toNanos() + job.getPages() * 60_000_000_000L / config.getPagesPerMinute();
+            long done = now + printNanos;
+            busyNanos += Math.min(done, end) - now;
+            events.add(new Event(done, PRINTED, job));
+        }
+    }
+
+    /**
+     * Poisson arrivals at a rate that changes with the hour, by thinning:
+     * candidates come at the peak rate and each is kept with probability
+     * (rate at that time / peak rate).
+     */
+    private void scheduleArrival(long after) {
+        double peakPerNano = config.getPeakJobsPerHour() / NANOS_PER_HOUR;
+        long t = after;
+        while (true) {
+            t += (long) Math.ceil(-Math.log(1 - random.nextDouble()) / peakPerNano);
+            if (t > end) return;
+            if (random.nextDouble() < rateShare(t)) {
+                events.add(new Event(t, ARRIVAL, null));
+                return;
+            }
+        }
+    }
+
+    private double rateShare(long epochNanos) {
+        LocalDateTime at = PrintJob.fromEpochNanos(epochNanos);
+        double share = hourlyProfile[at.getHour()];
+        DayOfWeek day = at.getDayOfWeek();
+        return day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY ? share * config.getWeekendFactor() : share;
+    }
+
+    // Bounded Pareto by inversion: min / U^(1/alpha), capped
+    private int samplePages() {
+        double pages = config.getMinPages() / Math.pow(1 - random.nextDouble(), 1 / config.getParetoAlpha());
+        return (int) Math.min(config.getMaxPages(), Math.floor(pages));
+    }
+
+    private int samplePriority() {
+        double r = random.nextDouble();
+        for (int level = 0; level < priorityMix.length - 1; level++) {
+            if (r < priorityMix[level]) return level;
+            r -= priorityMix[level];
+        }
+        return priorityMix.length - 1;
+    }
+
+    private void recordWait(int level, long waitNanos) {
+        if (waitCounts[level] == waits[level].length) waits[level] = Arrays.copyOf(waits[level], waitCounts[level] * 2);
+        waits[level][waitCounts[level]++] = waitNanos;
+    }
+
+    private void sample(int depth) {
+        if (sampleCount == depthSamples.length) depthSamples = Arrays.copyOf(depthSamples, sampleCount * 2);
+        depthSamples[sampleCount++] = depth;
+    }
+}
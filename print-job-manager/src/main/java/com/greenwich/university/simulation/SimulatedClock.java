@@ -0,0 +1,68 @@
+package com.greenwich.university.simulation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A clock that only moves when the simulator says so. Time is kept as epoch
+ * nanos in UTC, the same encoding PrintJob uses for its timestamps, so
+ * LocalDateTime.now(clock) reads back exactly the simulated instant.
+ * Meant for one simulation thread.
+ */
+public class SimulatedClock extends Clock {
+    private long epochNanos;
+
+    public SimulatedClock(long startEpochNanos) {
+        this.epochNanos = startEpochNanos;
+    }
+
+    // Time never runs backwards
+    public void advanceTo(long epochNanos) {
+        if (epochNanos < this.epochNanos) throw new IllegalArgumentException("Simulated time cannot go back");
+        this.epochNanos = epochNanos;
+    }
+
+    public long nanos() { return epochNanos; }
+
+    @Override
+    public ZoneId getZone() { return ZoneOffset.UTC; }
+
+    // Another zone gets a view that reads the same simulated instant and moves along with it
+    @Override
+    public Clock withZone(ZoneId zone) {
+        if (zone.normalized().equals(ZoneOffset.UTC)) return this;
+        return new Zoned(this, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    @Override
+    public long millis() { return Math.floorDiv(epochNanos, 1_000_000L); }
+
+    private static final class Zoned extends Clock {
+        private final SimulatedClock time;
+        private final ZoneId zone;
+
+        Zoned(SimulatedClock time, ZoneId zone) {
+            this.time = time;
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() { return zone; }
+
+        @Override
+        public Clock withZone(ZoneId zone) { return time.withZone(zone); }
+
+        @Override
+        public Instant instant() { return time.instant(); }
+
+        @Override
+        public long millis() { return time.millis(); }
+    }
+}
@@ -0,0 +1,155 @@
+package com.greenwich.university.simulation;
+
+import com.greenwich.university.appService.AdmissionPolicy;
+import com.greenwich.university.repository.PriorityFifoPolicy;
+import com.greenwich.university.repository.SchedulingPolicy;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+
+/**
+ * Traffic and fleet settings for one FleetSimulator run. The defaults model a
+ * busy term week on one campus printer room; every setter checks its input.
+ *
+ * Arrivals are Poisson with a rate that follows the hour of day (and drops
+ * at weekends). Page counts are heavy-tailed: a bounded Pareto, so most jobs
+ * are a few pages and a few are whole theses.
+ * A SchedulingPolicy may keep state between jobs, so each run needs its own.
+ */
+public class SimulationConfig {
+    // Share of the peak arrival rate for each hour of the day
+    private static final double[] CAMPUS_DAY = {
+            0.02, 0.01, 0.01, 0.01, 0.01, 0.02, 0.05, 0.15, 0.45, 0.85, 1.0, 1.0,
+            0.9, 0.95, 1.0, 0.9, 0.75, 0.5, 0.35, 0.3, 0.25, 0.15, 0.08, 0.04};
+
+    private LocalDateTime start = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).atStartOfDay();
+    private Duration length = Duration.ofDays(7);
+    private long seed = 42;
+
+    private double peakJobsPerHour = 600;
+    private double[] hourlyProfile = CAMPUS_DAY.clone();
+    private double weekendFactor = 0.3;
+    private double[] priorityMix = {0.15, 0.60, 0.25};
+    private double paretoAlpha = 1.3;
+    private int minPages = 1;
+    private int maxPages = 300;
+    private int owners = 2_000;
+    private double deadlineFraction = 0;
+    private Duration deadlineAfter = Duration.ofHours(1);
+
+    private int printers = 3;
+    private int pagesPerMinute = 30;
+    private Duration setupPerJob = Duration.ofSeconds(5);
+    private int queueCapacity = 200;
+    private AdmissionPolicy admission = AdmissionPolicy.REJECT;
+    private SchedulingPolicy policy = new PriorityFifoPolicy();
+    private Duration sampleEvery = Duration.ofMinutes(15);
+
+    public LocalDateTime getStart() { return start; }
+    public Duration getLength() { return length; }
+    public long getSeed() { return seed; }
+    public double getPeakJobsPerHour() { return peakJobsPerHour; }
+    public double[] getHourlyProfile() { return hourlyProfile.clone(); }
+    public double getWeekendFactor() { return weekendFactor; }
+    public double[] getPriorityMix() { return priorityMix.clone(); }
+    public double getParetoAlpha() { return paretoAlpha; }
+    public int getMinPages() { return minPages; }
+    public int getMaxPages() { return maxPages; }
+    public int getOwners() { return owners; }
+    public double getDeadlineFraction() { return deadlineFraction; }
+    public Duration getDeadlineAfter() { return deadlineAfter; }
+    public int getPrinters() { return printers; }
+    public int getPagesPerMinute() { return pagesPerMinute; }
+    public Duration getSetupPerJob() { return setupPerJob; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public AdmissionPolicy getAdmission() { return admission; }
+    public SchedulingPolicy getPolicy() { return policy; }
+    public Duration getSampleEvery() { return sampleEvery; }
+
+    public void setStart(LocalDateTime start) { this.start = start; }
+
+    public void setLength(Duration length) {
+        if (length.isNegative() || length.isZero()) throw new IllegalArgumentException("Length must be > 0");
+        this.length = length;
+    }
+
+    public void setSeed(long seed) { this.seed = seed; }
+
+    public void setPeakJobsPerHour(double jobsPerHour) {
+        if (jobsPerHour <= 0) throw new IllegalArgumentException("Arrival rate must be > 0");
+        this.peakJobsPerHour = jobsPerHour;
+    }
+
+    // 24 non-negative weights, scaled so the busiest hour runs at the peak rate
+    public void setHourlyProfile(double[] profile) {
+        if (profile.length != 24) throw new IllegalArgumentException("Hourly profile needs 24 values");
+        double max = Arrays.stream(profile).max().getAsDouble();
+        if (max <= 0 || Arrays.stream(profile).anyMatch(v -> v < 0)) {
+            throw new IllegalArgumentException("Hourly profile must be >= 0 with at least one hour > 0");
+        }
+        this.hourlyProfile = Arrays.stream(profile).map(v -> v / max).toArray();
+    }
+
+    public void setWeekendFactor(double factor) {
+        if (factor < 0 || factor > 1) throw new IllegalArgumentException("Weekend factor must be in [0, 1]");
+        this.weekendFactor = factor;
+    }
+
+    // Relative weights of HIGH, NORMAL and LOW jobs
+    public void setPriorityMix(double high, double normal, double low) {
+        double sum = high + normal + low;
+        if (high < 0 || normal < 0 || low < 0 || sum <= 0) throw new IllegalArgumentException("Priority weights must be >= 0");
+        this.priorityMix = new double[]{high / sum, normal / sum, low / sum};
+    }
+
+    // Smaller alpha means a heavier tail; alpha <= 1 has no finite mean before the cap
+    public void setPageDistribution(double paretoAlpha, int minPages, int maxPages) {
+        if (paretoAlpha <= 0 || minPages <= 0 || maxPages < minPages) {
+            throw new IllegalArgumentException("Need alpha > 0 and 0 < minPages <= maxPages");
+        }
+        this.paretoAlpha = paretoAlpha;
+        this.minPages = minPages;
+        this.maxPages = maxPages;
+    }
+
+    public void setOwners(int owners) {
+        if (owners <= 0) throw new IllegalArgumentException("Owners must be > 0");
+        this.owners = owners;
+    }
+
+    // fraction of jobs that must print within after of being submitted
+    public void setDeadlines(double fraction, Duration after) {
+        if (fraction < 0 || fraction > 1 || after.isNegative() || after.isZero()) {
+            throw new IllegalArgumentException("Need fraction in [0, 1] and a positive deadline");
+        }
+        this.deadlineFraction = fraction;
+        this.deadlineAfter = after;
+    }
+
+    public void setFleet(int printers, int pagesPerMinute, Duration setupPerJob) {
+        if (printers <= 0 || pagesPerMinute <= 0 || setupPerJob.isNegative()) {
+            throw new IllegalArgumentException("Need printers > 0, pagesPerMinute > 0 and setup >= 0");
+        }
+        this.printers = printers;
+        this.pagesPerMinute = pagesPerMinute;
+        this.setupPerJob = setupPerJob;
+    }
+
+    public void setQueueCapacity(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be > 0");
+        this.queueCapacity = capacity;
+    }
+
+    // The wait step of the policy is skipped: simulated submitters cannot block on real time
+    public void setAdmission(AdmissionPolicy admission) { this.admission = admission; }
+
+    public void setPolicy(SchedulingPolicy policy) { this.policy = policy; }
+
+    public void setSampleEvery(Duration every) {
+        if (every.isNegative() || every.isZero()) throw new IllegalArgumentException("Sample interval must be > 0");
+        this.sampleEvery = every;
+    }
+}
@@ -0,0 +1,83 @@
+package com.greenwich.university.simulation;
+
+import java.time.Duration;
+
+/**
+ * What one FleetSimulator run measured. Waits are kept sorted per priority
+ * level (0 = HIGH, 1 = NORMAL, 2 = LOW), so percentiles are direct lookups.
+ */
+public class SimulationReport {
+    private final SimulationConfig config;
+    private final String policyName;
+    private final long wallNanos;
+    private final long submitted;
+    private final long accepted;
+    private final long rejected;
+    private final long shed;
+    private final long served;
+    private final long expired;
+    private final long pagesPrinted;
+    private final int leftInQueue;
+    private final double utilization;
+    private final int[] depthSamples;
+    private final long[][] sortedWaits;
+
+    SimulationReport(SimulationConfig config, long wallNanos, long submitted, long accepted, long rejected,
+                     long shed, long served, long expired, long pagesPrinted, int leftInQueue,
+                     double utilization, int[] depthSamples, long[][] sortedWaits, String policyName) {
+        this.config = config;
+        this.wallNanos = wallNanos;
+        this.submitted = submitted;
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.shed = shed;
+        this.served = served;
+        this.expired = expired;
+        this.pagesPrinted = pagesPrinted;
+        this.leftInQueue = leftInQueue;
+        this.utilization = utilization;
+        this.depthSamples = depthSamples;
+        this.sortedWaits = sortedWaits;
+        this.policyName = policyName;
+    }
+
+    public SimulationConfig getConfig() { return config; }
+    public String getPolicyName() { return policyName; }
+    public Duration getWallTime() { return Duration.ofNanos(wallNanos); }
+
+    public long getSubmitted() { return submitted; }
+    public long getAccepted() { return accepted; }
+    public long getRejected() { return rejected; }
+    public long getShed() { return shed; }
+    public long getServed() { return served; }
+    public long getExpired() { return expired; }
+    public long getPagesPrinted() { return pagesPrinted; }
+    public int getLeftInQueue() { return leftInQueue; }
+
+    // Share of the fleet's time spent printing, 0..1
+    public double getUtilization() { return utilization; }
+
+    public double getServedPerHour() { return served / hours(); }
+    public double getPagesPerHour() { return pagesPrinted / hours(); }
+
+    // Queue depth every config.getSampleEvery(), from the start
+    public int[] getDepthSamples() { return depthSamples.clone(); }
+
+    public int getMaxDepth() {
+        int max = 0;
+        for (int depth : depthSamples) max = Math.max(max, depth);
+        return max;
+    }
+
+    public int getServed(int level) { return sortedWaits[level].length; }
+
+    // p in [0, 1]; 0 when nothing of that level was served
+    public double getWaitPercentileSeconds(int level, double p) {
+        long[] waits = sortedWaits[level];
+        if (waits.length == 0) return 0;
+        int index = (int) Math.min(waits.length - 1, Math.max(0, Math.ceil(p * waits.length) - 1));
+        return waits[index] / 1e9;
+    }
+
+    private double hours() { return config.getLength().toNanos() / 3.6e12; }
+}
@@ -2,6 +2,11 @@ package com.greenwich.university.ui;
 
 public class Main {
     public static void main(String[] args) {
+        // Capacity planning: run a simulated week instead of the menu
+        if (args.length > 0 && args[0].equals("--simulate")) {
+            SimulationMode.run();
+            return;
+        }
         try {
             PrintJobManager manager = new PrintJobManager();
             manager.run();
@@ -1,24 +1,132 @@
 package com.greenwich.university.ui;
+import com.greenwich.university.appService.AdmissionController;
+import com.greenwich.university.appService.PrintDispatcher;
 import com.greenwich.university.appService.PrintJobService;
 import com.greenwich.university.domain.PrintJob;
+import com.greenwich.university.domain.Printer;
+import com.greenwich.university.repository.AgingPolicy;
+import com.greenwich.university.repository.EarliestDeadlineFirstPolicy;
+import com.greenwich.university.repository.FairSharePolicy;
+import com.greenwich.university.repository.LatencyHistogram;
+import com.greenwich.university.repository.PrintJobQueue;
+import com.greenwich.university.repository.PriorityFifoPolicy;
+import com.greenwich.university.repository.QueueJournal;
+import com.greenwich.university.repository.SchedulingPolicy;
+import com.greenwich.university.repository.SearchPage;
+import com.greenwich.university.repository.SpoolStore;
+import com.greenwich.university.repository.ShortestJobFirstPolicy;
+import com.greenwich.university.repository.WeightedFairPolicy;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 /**
  * UI Layer - Handles user interaction and presentation
  * Simplified analytics without bottleneck detection and recommendations
  */
 public class PrintJobManager {
+    private static final String[] LEVEL_LABELS = {"🔴 HIGH  ", "🟡 NORMAL", "🟢 LOW   "};
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    // -Dprintjobs.highWaitSlo=<seconds>: target for the p99 wait of HIGH jobs
+    private static final int HIGH_WAIT_SLO_SECONDS = Integer.getInteger("printjobs.highWaitSlo", 60);
     private PrintJobService service;
+    private PrintDispatcher dispatcher;
     private Scanner scanner;
     public PrintJobManager() {
-        this.service = new PrintJobService();
+        this.service = createService();
+        // Demo fleet; printing runs 60x faster than real time so results show up quickly
+        this.dispatcher = new PrintDispatcher(service, new Printer[]{
+                new Printer("Lab-A", 20, openPrinterOutput("Lab-A")),
+                new Printer("Lab-B", 30, openPrinterOutput("Lab-B")),
+                new Printer("Library", 45, openPrinterOutput("Library"))
+        }, 2, 60.0);
         this.scanner = new Scanner(System.in);
     }
+    // Run with -Dprintjobs.journal=<dir> to keep the queue across restarts,
+    // -Dprintjobs.policy=sjf|fair|aging|edf|owner to change the serving order,
+    // and -Dprintjobs.spool=<dir> to submit documents (their bytes are spooled there)
+    private PrintJobService createService() {
+        PrintJobQueue queue = new PrintJobQueue(5, true, createPolicy(System.getProperty("printjobs.policy", "")));
+        String journalDir = System.getProperty("printjobs.journal");
+        if (journalDir != null) {
+            try {
+                queue.enableJournal(new QueueJournal(Paths.get(journalDir), 32, 10_000));
+                System.out.println("💾 Queue restored from " + journalDir + " (" + queue.getSize() + " pending jobs)");
+            } catch (IOException e) {
+                System.out.println("❌ Could not open journal, running in memory only: " + e.getMessage());
+            }
+        }
+        String spoolDir = System.getProperty("printjobs.spool");
+        if (spoolDir != null) {
+            try {
+                queue.attachSpool(new SpoolStore(Paths.get(spoolDir), 64L << 20, 64 << 10, 8));
+                System.out.println("📄 Spooling documents in " + spoolDir);
+            } catch (IOException e) {
+                System.out.println("❌ Could not open spool, documents disabled: " + e.getMessage());
+            }
+        }
+        return new PrintJobService(queue);
+    }
+
+    // -Dprintjobs.printerDir=<dir>: each printer appends what it receives to <dir>/<name>.out,
+    // a local stand-in for the device; without it printers only simulate print time
+    private static WritableByteChannel openPrinterOutput(String printerName) {
+        String dir = System.getProperty("printjobs.printerDir");
+        if (dir == null) return null;
+        try {
+            Files.createDirectories(Paths.get(dir));
+            return FileChannel.open(Paths.get(dir, printerName + ".out"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.out.println("❌ No output for " + printerName + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Also used by the simulation mode
+    static SchedulingPolicy createPolicy(String name) {
+        switch (name.toLowerCase()) {
+            case "sjf": return new ShortestJobFirstPolicy();
+            case "fair": return new WeightedFairPolicy();
+            case "aging": return new AgingPolicy(Duration.ofMinutes(5));
+            case "edf": return new EarliestDeadlineFirstPolicy();
+            case "owner": return createFairSharePolicy();
+            default: return new PriorityFifoPolicy();
+        }
+    }
+
+    // -Dprintjobs.quantum=pages per turn, -Dprintjobs.quotas=owner:shares,... (e.g. staff:4,lab:2)
+    private static FairSharePolicy createFairSharePolicy() {
+        FairSharePolicy policy = new FairSharePolicy(
+                Integer.getInteger("printjobs.quantum", FairSharePolicy.DEFAULT_QUANTUM_PAGES));
+        for (String entry : System.getProperty("printjobs.quotas", "").split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) continue;
+            try {
+                policy.setQuota(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            } catch (IllegalArgumentException e) {
+                System.out.println("❌ Ignoring quota '" + entry.trim() + "': " + e.getMessage());
+            }
+        }
+        return policy;
+    }
+
     private void displayMenu() {
         System.out.println("\n" + "=".repeat(45));
         System.out.println("       PRINT JOB MANAGER SYSTEM");
         System.out.println("=".repeat(45));
 
-        System.out.println("📊 " + service.getBasicStats());
+        // The console doubles as the deadline clock when no printer is pulling jobs
+        int expired = service.expireOverdueJobs();
+        if (expired > 0) System.out.println("⌛ " + expired + " job(s) passed their deadline");
+
+        System.out.println("📊 " + service.getBasicStats() + " | " + service.getPolicyName());
         if (!service.isEmpty()) {
             System.out.println("⭐ Next: " + service.getNextJob());
         } else {
@@ -32,9 +140,11 @@ public class PrintJobManager {
         System.out.println("4. Search by filename");
         System.out.println("5. Display Queue Statistic");
         System.out.println("6. Monitoring Queue ");
-        System.out.println("7. Exit");
+        System.out.println("7. Printer fleet");
+        System.out.println("8. Manage job by ID");
+        System.out.println("9. Exit");
         System.out.println("=".repeat(45));
-        System.out.print("Select option (1-7): ");
+        System.out.print("Select option (1-9): ");
     }
 
 
@@ -49,13 +159,36 @@ public class PrintJobManager {
 
     private void submitJob() {
         System.out.println("\n--- Submit New Job ---");
-        System.out.print("File name: ");
-        String fileName = scanner.nextLine().trim();
+        Path document = null;
+        if (service.isSpoolEnabled()) {
+            System.out.print("Document path [none]: ");
+            String path = scanner.nextLine().trim();
+            if (!path.isEmpty()) {
+                document = Paths.get(path);
+                if (!Files.isRegularFile(document)) {
+                    System.out.println("❌ No such file: " + path);
+                    return;
+                }
+            }
+        }
+        String fileName;
+        if (document != null) {
+            fileName = document.getFileName().toString();
+        } else {
+            System.out.print("File name: ");
+            fileName = scanner.nextLine().trim();
+        }
 
         int pages = getValidPages();
         String priority = getValidPriority();
+        Duration deadline = getOptionalDeadline();
+        System.out.print("Owner (student/staff id) [" + PrintJob.DEFAULT_OWNER + "]: ");
+        String owner = scanner.nextLine().trim();
+        if (owner.isEmpty()) owner = PrintJob.DEFAULT_OWNER;
 
-        System.out.println(service.submitJob(fileName, pages, priority));
+        System.out.println(document != null
+                ? service.submitDocument(document, pages, priority, owner, deadline)
+                : service.submitJob(fileName, pages, priority, owner, deadline));
     }
 
     private int getValidPages() {
@@ -71,6 +204,21 @@ public class PrintJobManager {
         }
     }
 
+    private Duration getOptionalDeadline() {
+        while (true) {
+            System.out.print("Print within minutes [no deadline]: ");
+            String input = scanner.nextLine().trim();
+            if (input.isEmpty()) return null;
+            try {
+                int minutes = Integer.parseInt(input);
+                if (minutes > 0) return Duration.ofMinutes(minutes);
+                System.out.println("❌ Minutes must be > 0");
+            } catch (NumberFormatException e) {
+                System.out.println("❌ Enter valid number");
+            }
+        }
+    }
+
     private String getValidPriority() {
         while (true) {
             System.out.print("Priority (HIGH/NORMAL/LOW) [NORMAL]: ");
@@ -114,11 +262,6 @@ public class PrintJobManager {
 
     private void searchJobs() {
         System.out.println("\n--- Search by Filename ---");
-        if (service.isEmpty()) {
-            System.out.println("📭 No jobs to search");
-            return;
-        }
-
         System.out.print("Filename: ");
         String filename = scanner.nextLine().trim();
         if (filename.isEmpty()) {
@@ -126,14 +269,53 @@ public class PrintJobManager {
             return;
         }
 
-        PrintJob[] matches = service.searchByFileName(filename);
-        if (matches.length > 0) {
-            System.out.println("🔍 Found " + matches.length + " match(es):");
+        final int pageSize = 10;
+        int page = 0;
+        while (true) {
+            SearchPage result = service.searchAllByFileName(filename, page, pageSize);
+            if (result.getTotal() == 0) {
+                System.out.println("❌ No matches for: " + filename);
+                return;
+            }
+            if (page == 0) System.out.println("🔍 Found " + result.getTotal() + " match(es) in queue and history:");
+            PrintJob[] matches = result.getJobs();
             for (int i = 0; i < matches.length; i++) {
-                System.out.println((i + 1) + ". " + matches[i].toString());
+                String state = matches[i].isExpired() ? "expired" : matches[i].isDequeued() ? "printed" : "queued";
+                System.out.println((result.getOffset() + i + 1) + ". " + matches[i].toString() + " (" + state + ")");
             }
-        } else {
-            System.out.println("❌ No matches for: " + filename);
+            if (!result.hasMore()) return;
+            System.out.print("Show more? (y/n): ");
+            if (!scanner.nextLine().trim().toLowerCase().startsWith("y")) return;
+            page++;
+        }
+    }
+
+    private void manageJob() {
+        System.out.println("\n--- Manage Job ---");
+        System.out.print("Job ID: ");
+        int jobId;
+        try {
+            jobId = Integer.parseInt(scanner.nextLine().trim());
+        } catch (NumberFormatException e) {
+            System.out.println("❌ Enter valid number");
+            return;
+        }
+        PrintJob job = service.findJob(jobId);
+        if (job == null) {
+            System.out.println("❌ Job " + jobId + " is not in the queue");
+            return;
+        }
+        System.out.println("🔎 " + job);
+        System.out.print("c = cancel, p = change priority, Enter = back: ");
+        switch (scanner.nextLine().trim().toLowerCase()) {
+            case "c":
+                System.out.println(service.cancelJob(jobId));
+                break;
+            case "p":
+                System.out.println(service.changeJobPriority(jobId, getValidPriority()));
+                break;
+            default:
+                break;
         }
     }
 
@@ -176,9 +358,98 @@ public class PrintJobManager {
         String healthStatus = health >= 80 ? "Excellent" : health >= 60 ? "Good" : "Needs Attention";
         System.out.printf("🏥 Health: %s %s %d/100 (%s)\n", healthColor, healthBar, health, healthStatus);
         double waitTime = service.getAverageWaitingTime();
-        System.out.printf("⏱️ Wait Time: %.1f second \n", waitTime);
-        System.out.printf("📊 Queue Size: %d jobs\n", service.getAllJobs().length);
+        System.out.printf("⏱️ Wait Time: %.1f second (recent trend %.1f second)\n",
+                waitTime, service.getEwmaWaitingTime());
+        System.out.printf("📊 Queue Size: %d jobs\n", service.getQueueSize());
+        System.out.printf("⌛ Expired unprinted: %d jobs (%d pages saved)\n",
+                service.getExpiredCount(), service.getExpiredPages());
+
+        AdmissionController admission = service.getAdmission();
+        System.out.printf("🚪 Capacity: %d (base %d, max %d) | Occupancy %.0f%% | Peak %d jobs\n",
+                admission.getCapacity(), admission.getBaseCapacity(), admission.getMaxCapacity(),
+                admission.getOccupancyPercentage(), admission.getHighWaterMark());
+        System.out.printf("🚦 Admitted %d (%d after waiting, %d after growing) | Dropped %d | Rejected %d | Waiting now %d\n",
+                admission.getAdmittedCount(), admission.getAdmittedAfterWaitCount(),
+                admission.getAdmittedAfterGrowthCount(), admission.getShedCount(),
+                admission.getRejectedCount(), admission.getWaitingSubmitters());
+
+        System.out.printf("\n📐 LATENCY PERCENTILES (last %d min)\n", service.getStatsWindowMinutes());
+        System.out.println("-".repeat(45));
+        System.out.println("Wait in queue      p50     p90     p99    p999   jobs");
+        for (int level = 0; level < LEVEL_LABELS.length; level++) {
+            printLatencyRow(LEVEL_LABELS[level], service.getWaitHistogram(level));
+        }
+        System.out.println("Print time (taken to printed)");
+        for (int level = 0; level < LEVEL_LABELS.length; level++) {
+            printLatencyRow(LEVEL_LABELS[level], service.getServiceHistogram(level));
+        }
+        LatencyHistogram high = service.getWaitHistogram(0);
+        if (high.getTotalCount() > 0) {
+            double p99 = high.getValueAtPercentile(99) / 1e9;
+            System.out.printf("🎯 HIGH p99 wait %s vs SLO %ds: %s\n", formatLatency(high.getValueAtPercentile(99)),
+                    HIGH_WAIT_SLO_SECONDS, p99 <= HIGH_WAIT_SLO_SECONDS ? "✅ met" : "❌ missed");
+        }
+    }
+
+    private static void printLatencyRow(String label, LatencyHistogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            System.out.printf("%s         -       -       -       -      0\n", label);
+            return;
+        }
+        StringBuilder row = new StringBuilder(label);
+        for (double p : PERCENTILES) row.append(String.format(" %7s", formatLatency(histogram.getValueAtPercentile(p))));
+        System.out.println(row.append(String.format(" %6d", histogram.getTotalCount())));
     }
+
+    private static String formatLatency(long nanos) {
+        if (nanos < 1_000_000) return String.format("%dµs", nanos / 1_000);
+        if (nanos < 1_000_000_000) return String.format("%dms", nanos / 1_000_000);
+        if (nanos < 60_000_000_000L) return String.format("%.1fs", nanos / 1e9);
+        return String.format("%.1fm", nanos / 6e10);
+    }
+    private void managePrinters() {
+        System.out.println("\n--- Printer Fleet (" + dispatcher.getState() + ") ---");
+        for (Printer p : dispatcher.getPrinters()) {
+            System.out.println("🖨️ " + p);
+        }
+        System.out.printf("📈 Fleet throughput: %.1f pages/min | Backlog: %d jobs\n",
+                dispatcher.getFleetPagesPerMinute(), dispatcher.getBacklogSize());
+        System.out.print("s = start, t = stop, d = drain, Enter = back: ");
+        String action = scanner.nextLine().trim().toLowerCase();
+        try {
+            switch (action) {
+                case "s":
+                    dispatcher.start();
+                    System.out.println("✅ Printers started");
+                    break;
+                case "t":
+                    dispatcher.stop();
+                    System.out.println("✅ Printers stopped");
+                    break;
+                case "d":
+                    System.out.println(dispatcher.drain(5, TimeUnit.MINUTES)
+                            ? "✅ All jobs printed" : "⚠️ Drain timed out, printers stopped");
+                    break;
+                default:
+                    break;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("❌ Interrupted");
+        }
+    }
+
+    private void shutdown() {
+        try {
+            dispatcher.stop();
+            service.shutdown();
+        } catch (IOException e) {
+            System.out.println("❌ Could not flush journal: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void run() {
         System.out.println("🎉 Welcome to Print Job Manager System!");
 
@@ -208,11 +479,18 @@ public class PrintJobManager {
                         displayHealthMonitor();
                         break;
                     case 7:
+                        managePrinters();
+                        break;
+                    case 8:
+                        manageJob();
+                        break;
+                    case 9:
+                        shutdown();
                         System.out.println("👋 Thank you for using Print Job Manager System!");
                         System.out.println("Goodbye!");
                         return;
                     default:
-                        System.out.println("❌ Invalid option! Please select 1-7.");
+                        System.out.println("❌ Invalid option! Please select 1-9.");
 
                 }
 
@@ -0,0 +1,122 @@
+package com.greenwich.university.ui;
+
+import com.greenwich.university.appService.AdmissionPolicy;
+import com.greenwich.university.simulation.FleetSimulator;
+import com.greenwich.university.simulation.SimulationConfig;
+import com.greenwich.university.simulation.SimulationReport;
+import java.time.Duration;
+
+/**
+ * Runs a FleetSimulator instead of the interactive menu (Main --simulate) and
+ * prints the report. Settings come from system properties, all optional:
+ *   -Dsim.days=7 -Dsim.jobsPerHour=600 (peak) -Dsim.weekend=0.3 -Dsim.seed=42
+ *   -Dsim.mix=15,60,25 (HIGH,NORMAL,LOW) -Dsim.pages=1.3,1,300 (Pareto alpha,min,max)
+ *   -Dsim.owners=2000 -Dsim.deadlines=0.2,60 (share of jobs, minutes)
+ *   -Dsim.printers=3 -Dsim.ppm=30 -Dsim.setup=5 (seconds per job)
+ *   -Dsim.capacity=200 -Dsim.budgetKb=0 -Dsim.shed=false
+ *   -Dprintjobs.policy=... as for the menu
+ */
+class SimulationMode {
+    private static final String[] LEVELS = {"🔴 HIGH  ", "🟡 NORMAL", "🟢 LOW   "};
+    private static final char[] SPARKS = {'▁', '▂', '▃', '▄', '▅', '▆', '▇', '█'};
+
+    static void run() {
+        SimulationConfig config;
+        try {
+            config = configFromProperties();
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ Bad simulation setting: " + e.getMessage());
+            return;
+        }
+        System.out.printf("🧪 Simulating %d day(s): %d printer(s) at %d pages/min, queue of %d, %s%n",
+                config.getLength().toDays(), config.getPrinters(), config.getPagesPerMinute(),
+                config.getQueueCapacity(), config.getPolicy().getName());
+        print(new FleetSimulator(config).run());
+    }
+
+    private static SimulationConfig configFromProperties() {
+        SimulationConfig config = new SimulationConfig();
+        config.setLength(Duration.ofDays(Integer.getInteger("sim.days", 7)));
+        config.setSeed(Long.getLong("sim.seed", 42L));
+        String rate = System.getProperty("sim.jobsPerHour");
+        if (rate != null) config.setPeakJobsPerHour(Double.parseDouble(rate));
+        String weekend = System.getProperty("sim.weekend");
+        if (weekend != null) config.setWeekendFactor(Double.parseDouble(weekend));
+        double[] mix = numbers("sim.mix", 3);
+        if (mix != null) config.setPriorityMix(mix[0], mix[1], mix[2]);
+        double[] pages = numbers("sim.pages", 3);
+        if (pages != null) config.setPageDistribution(pages[0], (int) pages[1], (int) pages[2]);
+        config.setOwners(Integer.getInteger("sim.owners", config.getOwners()));
+        double[] deadlines = numbers("sim.deadlines", 2);
+        if (deadlines != null) config.setDeadlines(deadlines[0], Duration.ofMinutes((long) deadlines[1]));
+        config.setFleet(Integer.getInteger("sim.printers", config.getPrinters()),
+                Integer.getInteger("sim.ppm", config.getPagesPerMinute()),
+                Duration.ofSeconds(Integer.getInteger("sim.setup", (int) config.getSetupPerJob().getSeconds())));
+        config.setQueueCapacity(Integer.getInteger("sim.capacity", config.getQueueCapacity()));
+        config.setAdmission(new AdmissionPolicy(Long.getLong("sim.budgetKb", 0L) * 1024, Duration.ZERO,
+                Boolean.getBoolean("sim.shed")));
+        config.setPolicy(PrintJobManager.createPolicy(System.getProperty("printjobs.policy", "")));
+        return config;
+    }
+
+    // Comma-separated numbers, or null when the property is not set
+    private static double[] numbers(String property, int count) {
+        String value = System.getProperty(property);
+        if (value == null) return null;
+        String[] parts = value.split(",");
+        if (parts.length != count) throw new IllegalArgumentException(property + " needs " + count + " values");
+        double[] result = new double[count];
+        for (int i = 0; i < count; i++) result[i] = Double.parseDouble(parts[i].trim());
+        return result;
+    }
+
+    private static void print(SimulationReport report) {
+        System.out.printf("⏱️ Ran in %.2f s of real time%n", report.getWallTime().toMillis() / 1000.0);
+
+        System.out.println("\n📦 TRAFFIC");
+        System.out.println("-".repeat(45));
+        System.out.printf("Submitted: %,d | Accepted: %,d | Rejected: %,d | Shed: %,d%n",
+                report.getSubmitted(), report.getAccepted(), report.getRejected(), report.getShed());
+        System.out.printf("Printed: %,d jobs, %,d pages | Expired: %,d | Still queued: %,d%n",
+                report.getServed(), report.getPagesPrinted(), report.getExpired(), report.getLeftInQueue());
+
+        System.out.println("\n🖨️ THROUGHPUT");
+        System.out.println("-".repeat(45));
+        System.out.printf("%.1f jobs/hour, %.0f pages/hour, printers busy %.1f%% of the time%n",
+                report.getServedPerHour(), report.getPagesPerHour(), report.getUtilization() * 100);
+
+        System.out.println("\n⏳ WAIT PERCENTILES (minutes)");
+        System.out.println("-".repeat(45));
+        System.out.println("            jobs      p50      p90      p95      p99");
+        for (int level = 0; level < LEVELS.length; level++) {
+            System.out.printf("%s %8d %8.1f %8.1f %8.1f %8.1f%n", LEVELS[level], report.getServed(level),
+                    report.getWaitPercentileSeconds(level, 0.50) / 60, report.getWaitPercentileSeconds(level, 0.90) / 60,
+                    report.getWaitPercentileSeconds(level, 0.95) / 60, report.getWaitPercentileSeconds(level, 0.99) / 60);
+        }
+
+        System.out.println("\n📈 QUEUE DEPTH (peak per hour, one row per day)");
+        System.out.println("-".repeat(45));
+        printDepth(report);
+    }
+
+    private static void printDepth(SimulationReport report) {
+        int[] samples = report.getDepthSamples();
+        int perHour = (int) Math.max(1, Duration.ofHours(1).toNanos() / report.getConfig().getSampleEvery().toNanos());
+        int max = Math.max(1, report.getMaxDepth());
+        int hours = (samples.length + perHour - 1) / perHour;
+        for (int day = 0; day * 24 < hours; day++) {
+            StringBuilder line = new StringBuilder();
+            int dayPeak = 0;
+            for (int hour = day * 24; hour < Math.min(hours, day * 24 + 24); hour++) {
+                int peak = 0;
+                for (int i = hour * perHour; i < Math.min(samples.length, (hour + 1) * perHour); i++) {
+                    peak = Math.max(peak, samples[i]);
+                }
+                dayPeak = Math.max(dayPeak, peak);
+                line.append(SPARKS[(int) ((long) peak * (SPARKS.length - 1) / max)]);
+            }
+            System.out.printf("%s %s peak %d%n",
+                    report.getConfig().getStart().plusDays(day).getDayOfWeek().toString().substring(0, 3), line, dayPeak);
+        }
+    }
+}